@@ -0,0 +1,31 @@
+#!/bin/bash
+# Compares time-to-first-request of the plain jar with the startup-optimized build (AOT + CDS + startup profile),
+# both against the PostgreSQL database from docker-compose.yml. The plain jar runs first: it applies the schema
+# migrations, which the startup profile skips.
+#
+# Usage: scripts/compare-startup.sh            (RUNS=5 scripts/compare-startup.sh for more runs per variant)
+
+set -e
+
+RUNS=${RUNS:-3}
+JAR=store-manager-1.0.0-SNAPSHOT-exec.jar
+SCRIPTS=$(cd "$(dirname "$0")" && pwd)
+
+docker compose up -d storemanagerdb
+until docker compose exec -T storemanagerdb pg_isready -U admin -d storemanager > /dev/null; do
+    sleep 1
+done
+
+echo "Plain jar:"
+./mvnw -B -DskipTests clean package
+for i in $(seq "$RUNS"); do
+    "$SCRIPTS/measure-startup.sh" java -jar "target/$JAR"
+done
+
+echo "AOT + CDS + startup profile:"
+"$SCRIPTS/startup-cds.sh" build
+"$SCRIPTS/startup-cds.sh" train
+for i in $(seq "$RUNS"); do
+    (cd target/startup && "$SCRIPTS/measure-startup.sh" java -XX:SharedArchiveFile=application.jsa \
+        -Dspring.aot.enabled=true -Dspring.profiles.active=startup -jar "$JAR")
+done
@@ -0,0 +1,27 @@
+#!/bin/bash
+# Measures time-to-first-request: wall time from launching the JVM until the first authenticated
+# request to the application succeeds.
+#
+# Usage: scripts/measure-startup.sh <java command line...>
+#   scripts/measure-startup.sh java -jar target/store-manager-1.0.0-SNAPSHOT-exec.jar
+#   (cd target/startup && ../../scripts/measure-startup.sh java -XX:SharedArchiveFile=application.jsa \
+#       -Dspring.aot.enabled=true -Dspring.profiles.active=startup -jar store-manager-1.0.0-SNAPSHOT-exec.jar)
+
+URL=${URL:-http://localhost:8081/api/products/stats}
+START=$(date +%s%N)
+
+"$@" > startup-measure.log 2>&1 &
+PID=$!
+trap 'kill $PID 2>/dev/null' EXIT
+
+until curl -sf -u admin:password "$URL" > /dev/null; do
+    if ! kill -0 $PID 2>/dev/null; then
+        echo "Application exited before serving a request, see startup-measure.log"
+        exit 1
+    fi
+    sleep 0.05
+done
+
+END=$(date +%s%N)
+echo "Time to first request: $(( (END - START) / 1000000 )) ms"
+grep -E "Started StoreManagementApplication|First request served" startup-measure.log
@@ -0,0 +1,37 @@
+#!/bin/bash
+# Builds the startup-optimized application (Spring AOT), records a CDS archive with a training run
+# and starts the application from the extracted layout using that archive.
+#
+# Usage: scripts/startup-cds.sh [build|train|run]   (no argument runs all three steps)
+
+set -e
+
+APP_DIR=target/startup
+JAR=target/store-manager-1.0.0-SNAPSHOT-exec.jar
+JAVA_OPTS="-Dspring.aot.enabled=true -Dspring.profiles.active=startup"
+
+build() {
+    echo "Building with AOT processing..."
+    ./mvnw -B -Pstartup -DskipTests clean package
+    rm -rf "$APP_DIR"
+    java -Djarmode=tools -jar "$JAR" extract --destination "$APP_DIR"
+}
+
+train() {
+    # The training run refreshes the context and exits, dumping every class loaded so far into the archive.
+    echo "Recording CDS archive..."
+    (cd "$APP_DIR" && java -XX:ArchiveClassesAtExit=application.jsa -Dspring.context.exit=onRefresh \
+        $JAVA_OPTS -jar "$(basename "$JAR")")
+}
+
+run() {
+    echo "Starting with CDS archive..."
+    (cd "$APP_DIR" && exec java -XX:SharedArchiveFile=application.jsa $JAVA_OPTS -jar "$(basename "$JAR")")
+}
+
+case "$1" in
+    build) build ;;
+    train) train ;;
+    run) run ;;
+    *) build; train; run ;;
+esac
@@ -0,0 +1,70 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Copies descriptions from the legacy {@code product.description} column into the {@code product_description} table.
+ *
+ * This is the expand step: the column is left in place, so nodes of the previous release keep working during a
+ * rolling deployment. A later migration copies again what they wrote meanwhile and drops the column.
+ * Databases created by the migrations never had the column, and the copy is a no-op on them.
+ *
+ * Rows are copied in ID ranges outside a migration-wide transaction, each range committed on its own, so a large
+ * catalog is not copied in one long transaction; an interrupted copy is simply repeated, skipping copied rows.
+ */
+public class V5__copy_product_descriptions extends BaseJavaMigration {
+
+    private static final long BATCH_SIZE = 10_000;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        if (!legacyColumnExists(connection)) {
+            return;
+        }
+        long maxId;
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM product")) {
+            rows.next();
+            maxId = rows.getLong(1);
+        }
+        try (PreparedStatement copy = connection.prepareStatement(
+                "INSERT INTO product_description (product_id, content) "
+                        + "SELECT p.id, p.description FROM product p "
+                        + "WHERE p.id > ? AND p.id <= ? AND p.description IS NOT NULL "
+                        + "AND NOT EXISTS (SELECT 1 FROM product_description d WHERE d.product_id = p.id)")) {
+            for (long from = 0; from < maxId; from += BATCH_SIZE) {
+                copy.setLong(1, from);
+                copy.setLong(2, from + BATCH_SIZE);
+                copy.executeUpdate();
+            }
+        }
+    }
+
+    private static boolean legacyColumnExists(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        // Unquoted identifiers are stored lower case by PostgreSQL and upper case by most other databases.
+        for (String[] names : new String[][]{{"product", "description"}, {"PRODUCT", "DESCRIPTION"}}) {
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(),
+                    names[0], names[1])) {
+                if (columns.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Creates the append-only {@code product_price_history} table and its (product_id, changed_at) index.
+ *
+ * On PostgreSQL the table is range-partitioned by month on {@code changed_at}, with a default partition catching
+ * rows outside the monthly partitions; the monthly partitions themselves are created ahead of time by the
+ * application. Other databases get the same table without partitions.
+ *
+ * Databases where the application created the table itself before this migration existed are left as they are.
+ */
+public class V6__create_price_history extends BaseJavaMigration {
+
+    private static final String COLUMNS = "product_id BIGINT NOT NULL, changed_at TIMESTAMP NOT NULL, "
+            + "old_price NUMERIC(38, 2), new_price NUMERIC(38, 2) NOT NULL";
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        boolean partitioned = "PostgreSQL".equalsIgnoreCase(context.getConnection().getMetaData().getDatabaseProductName());
+        try (Statement statement = context.getConnection().createStatement()) {
+            if (partitioned) {
+                statement.execute("CREATE TABLE IF NOT EXISTS product_price_history (" + COLUMNS + ") "
+                        + "PARTITION BY RANGE (changed_at)");
+                statement.execute("CREATE TABLE IF NOT EXISTS product_price_history_default "
+                        + "PARTITION OF product_price_history DEFAULT");
+            } else {
+                statement.execute("CREATE TABLE IF NOT EXISTS product_price_history (" + COLUMNS + ")");
+            }
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_product_price_history_product_changed "
+                    + "ON product_price_history (product_id, changed_at)");
+        }
+    }
+}
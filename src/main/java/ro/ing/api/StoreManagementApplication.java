@@ -12,10 +12,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication  // Enables Spring Boot's autoconfiguration and component scanning
 @EnableJpaRepositories(basePackages = "ro.ing.api.repository")  // Enables JPA repositories in the specified package
 @EnableJpaAuditing
+@EnableScheduling  // Enables scheduled background tasks such as the product change stream flush
 public class StoreManagementApplication {
 
     /**
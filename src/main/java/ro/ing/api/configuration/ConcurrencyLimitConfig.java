@@ -0,0 +1,94 @@
+package ro.ing.api.configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ro.ing.api.controller.AIController;
+import ro.ing.api.controller.ProductController;
+import ro.ing.api.service.AdaptiveConcurrencyLimiter;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Puts an adaptive concurrency limit in front of the product and AI endpoints, one limit per controller,
+ * so that a slow database or AI provider sheds load early instead of tying up every Tomcat thread.
+ */
+@Configuration
+public class ConcurrencyLimitConfig implements WebMvcConfigurer {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double lowPriorityShare;
+    private final double reservedShare;
+    private final long windowMs;
+    private final int minWindowSamples;
+    private final int baselineWindows;
+
+    /**
+     * Constructor for ConcurrencyLimitConfig.
+     * @param meterRegistry registry of the limit gauges and rejection counters
+     * @param enabled whether the limit is applied
+     * @param initialLimit the limit before any latency has been observed
+     * @param minLimit the lowest limit
+     * @param maxLimit the highest limit
+     * @param tolerance how many times the baseline latency is tolerated before the limit shrinks
+     * @param lowPriorityShare share of the limit available to bulk reads
+     * @param reservedShare share of the limit kept for admin writes
+     * @param windowMs minimum length of a latency sampling window
+     * @param minWindowSamples minimum number of requests in a sampling window
+     * @param baselineWindows number of windows the baseline latency averages over
+     */
+    public ConcurrencyLimitConfig(MeterRegistry meterRegistry,
+                                  @Value("${store.concurrency-limit.enabled:true}") boolean enabled,
+                                  @Value("${store.concurrency-limit.initial-limit:20}") int initialLimit,
+                                  @Value("${store.concurrency-limit.min-limit:4}") int minLimit,
+                                  @Value("${store.concurrency-limit.max-limit:200}") int maxLimit,
+                                  @Value("${store.concurrency-limit.tolerance:2.0}") double tolerance,
+                                  @Value("${store.concurrency-limit.low-priority-share:0.5}") double lowPriorityShare,
+                                  @Value("${store.concurrency-limit.reserved-share:0.1}") double reservedShare,
+                                  @Value("${store.concurrency-limit.window-ms:100}") long windowMs,
+                                  @Value("${store.concurrency-limit.min-window-samples:10}") int minWindowSamples,
+                                  @Value("${store.concurrency-limit.baseline-windows:600}") int baselineWindows) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.lowPriorityShare = lowPriorityShare;
+        this.reservedShare = reservedShare;
+        this.windowMs = windowMs;
+        this.minWindowSamples = minWindowSamples;
+        this.baselineWindows = baselineWindows;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        Map<Class<?>, String> groups = Map.of(ProductController.class, "products", AIController.class, "ai");
+        Map<Class<?>, AdaptiveConcurrencyLimiter> limiters = Map.of(
+                ProductController.class, limiter(groups.get(ProductController.class)),
+                AIController.class, limiter(groups.get(AIController.class)));
+        registry.addInterceptor(new ConcurrencyLimitInterceptor(limiters, groups, meterRegistry));
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(String group) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, tolerance,
+                lowPriorityShare, reservedShare, TimeUnit.MILLISECONDS.toNanos(windowMs), minWindowSamples, baselineWindows);
+        Gauge.builder("http.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("group", group).register(meterRegistry);
+        Gauge.builder("http.concurrency.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("group", group).register(meterRegistry);
+        return limiter;
+    }
+}
@@ -0,0 +1,99 @@
+package ro.ing.api.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import ro.ing.api.exception.ServiceOverloadedException;
+import ro.ing.api.service.AdaptiveConcurrencyLimiter;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Admits the requests of the limited controllers through the {@link AdaptiveConcurrencyLimiter} of their group,
+ * rejecting the excess with a 503 before any database work starts.
+ *
+ * Admin writes get high priority and other requests normal priority, unless the handler method declares its own
+ * with {@link ConcurrencyPriority}. The request runs after Spring Security, so authentication is not counted.
+ * Asynchronous requests, such as streamed responses, give their slot back once the handler has returned and the
+ * servlet thread is free; the rest of their lifetime is bounded by whatever they wait on. Their near-zero handler time
+ * is not sampled, so it cannot pull the latency baseline down and inflate the limit.
+ */
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String LIMITER = ConcurrencyLimitInterceptor.class.getName() + ".limiter";
+    private static final String STARTED_AT = ConcurrencyLimitInterceptor.class.getName() + ".startedAt";
+
+    private final Map<Class<?>, AdaptiveConcurrencyLimiter> limiters;
+    private final Map<Class<?>, String> groups;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructor for ConcurrencyLimitInterceptor.
+     * @param limiters the limiter of each limited controller class
+     * @param groups the group name of each limited controller class, used as a metric tag
+     * @param meterRegistry registry of the rejection counters
+     */
+    public ConcurrencyLimitInterceptor(Map<Class<?>, AdaptiveConcurrencyLimiter> limiters, Map<Class<?>, String> groups,
+                                       MeterRegistry meterRegistry) {
+        this.limiters = limiters;
+        this.groups = groups;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod) || request.getAttribute(LIMITER) != null
+                || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        AdaptiveConcurrencyLimiter limiter = limiters.get(handlerMethod.getBeanType());
+        if (limiter == null) {
+            return true;
+        }
+        AdaptiveConcurrencyLimiter.Priority priority = priority(request, handlerMethod);
+        if (!limiter.tryAcquire(priority)) {
+            meterRegistry.counter("http.concurrency.rejected", "group", groups.get(handlerMethod.getBeanType()),
+                    "priority", priority.name().toLowerCase(Locale.ROOT)).increment();
+            throw new ServiceOverloadedException("Too many concurrent requests, please retry shortly.");
+        }
+        request.setAttribute(LIMITER, limiter);
+        request.setAttribute(STARTED_AT, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(LIMITER) instanceof AdaptiveConcurrencyLimiter limiter) {
+            request.removeAttribute(LIMITER);
+            limiter.release();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        release(request);
+    }
+
+    private static void release(HttpServletRequest request) {
+        if (request.getAttribute(LIMITER) instanceof AdaptiveConcurrencyLimiter limiter) {
+            request.removeAttribute(LIMITER);
+            limiter.release(System.nanoTime() - (Long) request.getAttribute(STARTED_AT));
+        }
+    }
+
+    private static AdaptiveConcurrencyLimiter.Priority priority(HttpServletRequest request, HandlerMethod handlerMethod) {
+        ConcurrencyPriority declared = handlerMethod.getMethodAnnotation(ConcurrencyPriority.class);
+        if (declared != null) {
+            return declared.value();
+        }
+        boolean write = !HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod());
+        return write && request.isUserInRole("ADMIN")
+                ? AdaptiveConcurrencyLimiter.Priority.HIGH
+                : AdaptiveConcurrencyLimiter.Priority.NORMAL;
+    }
+}
@@ -0,0 +1,19 @@
+package ro.ing.api.configuration;
+
+import ro.ing.api.service.AdaptiveConcurrencyLimiter;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the admission priority of a concurrency-limited endpoint, overriding the default of the
+ * {@link ConcurrencyLimitInterceptor}: high for admin writes, normal otherwise.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConcurrencyPriority {
+
+    AdaptiveConcurrencyLimiter.Priority value();
+}
@@ -29,7 +29,7 @@ public class SecurityConfig {
     /**
      * Configures the security filter chain for HTTP security.
      * - Disables CSRF protection for simplicity (not recommended for production).
-     * - Restricts access to `/api/products/**` endpoints to users with the `ADMIN` role.
+     * - Restricts access to `/api/products/**` and `/api/reactive/products/**` endpoints to users with the `ADMIN` role.
      * - Requires authentication for all other requests.
      * - Enables HTTP Basic authentication.
      *
@@ -43,6 +43,7 @@ public class SecurityConfig {
                 .csrf(csrfConfigurer -> csrfConfigurer.disable()) // Disable CSRF for simplicity; not recommended in production.
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/products/**").hasRole("ADMIN") // Restrict product management to ADMIN role.
+                        .requestMatchers("/api/reactive/products/**").hasRole("ADMIN") // Same access rules for the reactive read API.
                         .requestMatchers("/api/ai/products/**").hasAnyRole("USER", "ADMIN") // Allow both USER and ADMIN roles for AI endpoints.
                         .anyRequest().authenticated() // Require authentication for all other requests.
                 )
@@ -0,0 +1,16 @@
+package ro.ing.api.configuration;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import ro.ing.api.service.ShardContext;
+
+/**
+ * Hands out connections to the shard bound to the current thread by the shard router, or to shard 0 when none is bound.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        ShardContext context = ShardContext.current();
+        return context == null ? 0 : context.getShard();
+    }
+}
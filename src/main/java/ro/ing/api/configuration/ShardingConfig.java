@@ -0,0 +1,115 @@
+package ro.ing.api.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single DataSource with one connection pool per shard when {@code store.sharding.enabled} is set.
+ *
+ * The application DataSource routes each transaction to the shard bound by the shard router; connections are opened
+ * lazily, at the first statement, so the shard can be bound inside a transaction that has already begun. Every shard
+ * is migrated with the Flyway settings of {@code spring.flyway}. Shard 0 must be the existing database: the products
+ * created before sharding stay there.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "store.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    private final List<HikariDataSource> shards = new ArrayList<>();
+
+    /**
+     * Constructor for ShardingConfig, refusing settings that would read or write only one shard.
+     * @param properties the spring.datasource settings; the username, password and driver are shared by all shards
+     * @param urls the JDBC URLs of the shards, shard 0 first
+     * @param poolMaxSize the maximum number of connections per shard
+     * @param openInView whether an EntityManager is held open for each web request
+     * @param snapshotEnabled whether the catalog snapshot is enabled
+     * @param writeBehindEnabled whether buffered price writes are enabled
+     * @param backfillEnabled whether the description backfill is enabled
+     * @param reactiveEnabled whether the reactive product API is enabled
+     */
+    public ShardingConfig(DataSourceProperties properties,
+                          @Value("${store.sharding.urls}") List<String> urls,
+                          @Value("${store.sharding.pool-max-size:10}") int poolMaxSize,
+                          @Value("${spring.jpa.open-in-view:true}") boolean openInView,
+                          @Value("${store.products.snapshot.enabled:false}") boolean snapshotEnabled,
+                          @Value("${store.products.price-write-behind.enabled:false}") boolean writeBehindEnabled,
+                          @Value("${store.products.description-backfill.enabled:false}") boolean backfillEnabled,
+                          @Value("${store.products.reactive.enabled:false}") boolean reactiveEnabled) {
+        if (openInView) {
+            // The EntityManager of a request keeps its first connection, and with it its first shard, until the end.
+            throw new IllegalStateException("store.sharding.enabled requires spring.jpa.open-in-view=false.");
+        }
+        if (snapshotEnabled || writeBehindEnabled || backfillEnabled) {
+            throw new IllegalStateException("The catalog snapshot, price write-behind and description backfill "
+                    + "read a single database and cannot be enabled together with store.sharding.enabled.");
+        }
+        if (reactiveEnabled) {
+            // The R2DBC pool of the reactive repository is not routed and would only ever see shard 0.
+            throw new IllegalStateException("store.sharding.enabled requires store.products.reactive.enabled=false.");
+        }
+        for (int shard = 0; shard < urls.size(); shard++) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(urls.get(shard).trim())
+                    .build();
+            dataSource.setPoolName("shard-" + shard);
+            dataSource.setMaximumPoolSize(poolMaxSize);
+            shards.add(dataSource);
+        }
+    }
+
+    /**
+     * The application DataSource, routing to the shard bound to the current thread.
+     * @return the routing DataSource
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource() {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setLenientFallback(false);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Migrates every shard instead of only the application DataSource.
+     * @return the migration strategy
+     */
+    @Bean
+    public FlywayMigrationStrategy shardMigrationStrategy() {
+        return flyway -> shards.forEach(shard -> Flyway.configure()
+                .configuration(flyway.getConfiguration())
+                .dataSource(shard)
+                .load()
+                .migrate());
+    }
+
+    /**
+     * Closes the connection pools of the shards.
+     */
+    @PreDestroy
+    public void close() {
+        shards.forEach(HikariDataSource::close);
+    }
+}
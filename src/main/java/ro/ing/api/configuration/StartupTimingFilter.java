@@ -0,0 +1,52 @@
+package ro.ing.api.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the time from JVM start until the first HTTP request has been served.
+ *
+ * Spring Boot already publishes {@code application.started.time} and {@code application.ready.time};
+ * this filter adds {@code application.first.request.time}, which is what the autoscaler actually waits for.
+ */
+@Component
+public class StartupTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimingFilter.class);
+
+    private final AtomicLong firstRequestMillis = new AtomicLong(-1);
+
+    public StartupTimingFilter(MeterRegistry meterRegistry) {
+        TimeGauge.builder("application.first.request.time", firstRequestMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Time from JVM start until the first HTTP request was served")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (firstRequestMillis.get() < 0) {
+                long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+                if (firstRequestMillis.compareAndSet(-1, uptime)) {
+                    logger.info("First request served {} ms after JVM start", uptime);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ro.ing.api.configuration;
+
+import brave.TracingCustomizer;
+import brave.sampler.RateLimitingSampler;
+import brave.sampler.Sampler;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ro.ing.api.service.OpenAiService;
+import ro.ing.api.service.ProductService;
+import ro.ing.api.service.TraceStore;
+
+import java.util.Map;
+
+/**
+ * Tracing setup: rate-limited head sampling, local recording for tail sampling by the {@link TraceStore},
+ * and spans around the product service, the repositories and the outbound OpenAI calls.
+ */
+@Configuration(proxyBeanMethods = false)
+public class TracingConfig {
+
+    /**
+     * Samples at most the configured number of new traces per second, replacing Spring Boot's probability sampler,
+     * so tracing cost stays flat under load while quiet periods are still fully traced.
+     * @param tracesPerSecond maximum number of traces started per second
+     * @return the head sampler
+     */
+    @Bean
+    public Sampler rateLimitingSampler(@Value("${store.tracing.traces-per-second:10}") int tracesPerSecond) {
+        return RateLimitingSampler.create(tracesPerSecond);
+    }
+
+    /**
+     * Records every trace locally when tail sampling is enabled, so slow and failed requests reach the trace store
+     * even when the head sampler skipped them. Only sampled spans are exported.
+     * @param traceStore the in-memory trace store
+     * @return the customizer of the Brave tracing builder
+     */
+    @Bean
+    public TracingCustomizer tailSamplingCustomizer(TraceStore traceStore) {
+        return builder -> {
+            if (traceStore.isTailSampling()) {
+                builder.alwaysSampleLocal();
+            }
+        };
+    }
+
+    /**
+     * Adds spans to the product service, the OpenAI client and every repository.
+     * Declared static so the post-processor is registered before the beans it wraps are created.
+     * @param tracerProvider provider of the tracer, resolved on the first traced call
+     * @return the post-processor
+     */
+    @Bean
+    public static TracingPostProcessor tracingPostProcessor(ObjectProvider<Tracer> tracerProvider) {
+        return new TracingPostProcessor(tracerProvider, Map.of(
+                ProductService.class, new TracingPostProcessor.Traced("service", null),
+                OpenAiService.class, new TracingPostProcessor.Traced("openai", "openai")));
+    }
+}
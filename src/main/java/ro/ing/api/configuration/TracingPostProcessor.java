@@ -0,0 +1,151 @@
+package ro.ing.api.configuration;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps the calls of selected beans in spans of the application's tracer.
+ *
+ * Public methods declared by the traced service classes get a span named {@code Class.method}, and every query
+ * method of the Spring Data repositories gets a span named {@code Repository.method}. The interceptor is added
+ * in front of existing advisors, so a service span includes the time spent in its transaction.
+ * When the current request is not sampled the tracer hands out no-op spans and the overhead is a few method calls.
+ */
+public class TracingPostProcessor implements BeanPostProcessor {
+
+    /**
+     * How the spans of a traced class are tagged.
+     * @param component value of the {@code component} tag
+     * @param remoteService name of the remote service called, or null for local work
+     */
+    public record Traced(String component, String remoteService) {
+    }
+
+    /**
+     * Opens a span around each intercepted call and records the exception if the call fails.
+     */
+    static final class SpanInterceptor implements MethodInterceptor {
+        private final ObjectProvider<Tracer> tracerProvider;
+        private final String owner;
+        private final String component;
+        private final String remoteService;
+        private final Map<Method, String> spanNames = new ConcurrentHashMap<>();
+        private volatile Tracer tracer;
+
+        SpanInterceptor(ObjectProvider<Tracer> tracerProvider, String owner, String component, String remoteService) {
+            this.tracerProvider = tracerProvider;
+            this.owner = owner;
+            this.component = component;
+            this.remoteService = remoteService;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Tracer current = tracer();
+            if (current == null) {
+                return invocation.proceed();
+            }
+            Span span = current.nextSpan().name(spanName(invocation)).tag("component", component);
+            if (remoteService != null) {
+                span.remoteServiceName(remoteService);
+            }
+            span.start();
+            try (Tracer.SpanInScope ignored = current.withSpan(span)) {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                span.error(e);
+                throw e;
+            } finally {
+                span.end();
+            }
+        }
+
+        private Tracer tracer() {
+            Tracer current = tracer;
+            if (current == null) {
+                current = tracerProvider.getIfAvailable();
+                tracer = current;
+            }
+            return current;
+        }
+
+        private String spanName(MethodInvocation invocation) {
+            return spanNames.computeIfAbsent(invocation.getMethod(), method -> (owner != null ? owner
+                    : AopUtils.getTargetClass(invocation.getThis()).getSimpleName()) + "." + method.getName());
+        }
+    }
+
+    /**
+     * Matches the public methods declared by one class, leaving inherited {@code Object} methods alone.
+     */
+    private static final class DeclaredMethodsPointcut extends StaticMethodMatcherPointcut {
+        private final Class<?> type;
+
+        DeclaredMethodsPointcut(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            return method.getDeclaringClass() == type && Modifier.isPublic(method.getModifiers());
+        }
+    }
+
+    private final ObjectProvider<Tracer> tracerProvider;
+    private final Map<Class<?>, Traced> tracedClasses;
+
+    /**
+     * Constructor for TracingPostProcessor.
+     * @param tracerProvider provider of the tracer, resolved on the first traced call
+     * @param tracedClasses the traced bean classes and how their spans are tagged
+     */
+    public TracingPostProcessor(ObjectProvider<Tracer> tracerProvider, Map<Class<?>, Traced> tracedClasses) {
+        this.tracerProvider = tracerProvider;
+        this.tracedClasses = tracedClasses;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        // Repositories are proxies assembled by their factory bean, so the span is added while it builds them.
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, repository) -> proxyFactory.addAdvice(new SpanInterceptor(tracerProvider,
+                            repository.getRepositoryInterface().getSimpleName(), "repository", null))));
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> targetClass = AopUtils.getTargetClass(bean);
+        Traced traced = tracedClasses.get(targetClass);
+        if (traced == null) {
+            return bean;
+        }
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(new DeclaredMethodsPointcut(targetClass),
+                new SpanInterceptor(tracerProvider, null, traced.component(), traced.remoteService()));
+        if (bean instanceof Advised advised && !advised.isFrozen()) {
+            advised.addAdvisor(0, advisor);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(advisor);
+        return proxyFactory.getProxy(targetClass.getClassLoader());
+    }
+}
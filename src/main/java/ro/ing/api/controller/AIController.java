@@ -1,16 +1,30 @@
 package ro.ing.api.controller;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import ro.ing.api.exception.AiServiceUnavailableException;
 import ro.ing.api.exception.ProductNotFoundException;
 import ro.ing.api.entity.Product;
+import ro.ing.api.service.HotProductTracker;
 import ro.ing.api.service.OpenAiService;
 import ro.ing.api.service.ProductService;
 import ro.ing.api.service.RealTimeLoggerService;
 
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 @RestController
 @RequestMapping("/api/ai/products")
 public class AIController {
@@ -20,18 +34,27 @@ public class AIController {
     private final OpenAiService openAiService;
     private final ProductService productService;
     private final RealTimeLoggerService realTimeLoggerService;
+    private final HotProductTracker hotProductTracker;
+    private final MeterRegistry meterRegistry;
 
     /**
      * Constructor for AIController, injecting necessary services for product operations and AI functionality.
+     * The OpenAI and real-time logging services are injected as lazy proxies so they are only created on first use.
      * @param openAiService OpenAI service for AI-based operations
      * @param productService Service layer handling product-related operations
      * @param realTimeLoggerService Service for broadcasting logs to WebSocket clients
+     * @param hotProductTracker Tracker of the most accessed products
+     * @param meterRegistry Registry of the streaming latency timers
      */
     @Autowired
-    public AIController(OpenAiService openAiService, ProductService productService, RealTimeLoggerService realTimeLoggerService) {
+    public AIController(@Lazy OpenAiService openAiService, ProductService productService,
+                        @Lazy RealTimeLoggerService realTimeLoggerService, HotProductTracker hotProductTracker,
+                        MeterRegistry meterRegistry) {
         this.openAiService = openAiService;
         this.productService = productService;
         this.realTimeLoggerService = realTimeLoggerService;
+        this.hotProductTracker = hotProductTracker;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
@@ -63,6 +86,7 @@ public class AIController {
                 .orElseThrow(() -> new ProductNotFoundException("Product not found"));
         logger.info("Product found with ID: {}", id);
         realTimeLoggerService.sendLog("Product found with ID: " + id);
+        hotProductTracker.record(id, HotProductTracker.Source.AI);
         return ResponseEntity.ok(product);
     }
 
@@ -80,4 +104,51 @@ public class AIController {
         realTimeLoggerService.sendLog("AI text generated successfully.");
         return ResponseEntity.ok(aiResponse);
     }
+
+    /**
+     * Endpoint to generate AI-based text given a prompt, streamed as server-sent events while it is generated.
+     * Each token is sent as a {@code token} event with a JSON payload, {@code {"text":" world"}}, so that leading
+     * spaces survive SSE parsing, followed by a {@code done} event ({@code {}}), or an {@code error} event
+     * ({@code {"message":"..."}}) if the generation fails midway. When the client disconnects, the upstream generation
+     * is cancelled.
+     * The response is only committed once the first token (or the end of the stream) arrives, so that an AI service
+     * that is unavailable before producing anything is answered with {@code 503} and a {@code Retry-After} header
+     * rather than with an error event in a {@code 200} response.
+     * The time to the first token is recorded as {@code ai.generate.stream.first.token}.
+     * @param prompt The input prompt for generating an AI response
+     * @return the stream of events, once the first token has arrived
+     */
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Mono<ResponseEntity<Flux<ServerSentEvent<Map<String, String>>>>> streamText(@RequestParam String prompt) {
+        logger.info("Received streaming AI text generation request with prompt: {}", prompt);
+        realTimeLoggerService.sendLog("Received streaming AI text generation request with prompt: " + prompt);
+        long start = System.nanoTime();
+        AtomicBoolean firstToken = new AtomicBoolean();
+        Flux<String> tokens = openAiService.streamText(prompt)
+                .doOnNext(token -> {
+                    if (firstToken.compareAndSet(false, true)) {
+                        meterRegistry.timer("ai.generate.stream.first.token").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                })
+                .doFinally(signal -> Timer.builder("ai.generate.stream")
+                        .tag("outcome", signal == SignalType.ON_COMPLETE ? "completed" : signal == SignalType.CANCEL ? "cancelled" : "failed")
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        // The source must stay subscribed after the Mono completes: the events are read from it afterwards
+        return tokens.switchOnFirst((first, all) -> first.isOnError() && first.getThrowable() instanceof AiServiceUnavailableException
+                        ? Mono.error(first.getThrowable())
+                        : Mono.just(ResponseEntity.ok(events(all))), false)
+                .single();
+    }
+
+    private Flux<ServerSentEvent<Map<String, String>>> events(Flux<String> tokens) {
+        return tokens
+                .map(token -> ServerSentEvent.builder(Map.of("text", token)).event("token").build())
+                .concatWithValues(ServerSentEvent.builder(Map.<String, String>of()).event("done").build())
+                .onErrorResume(error -> {
+                    logger.warn("AI text stream failed: {}", error.getMessage());
+                    return Flux.just(ServerSentEvent.builder(Map.of("message", String.valueOf(error.getMessage())))
+                            .event("error").build());
+                });
+    }
 }
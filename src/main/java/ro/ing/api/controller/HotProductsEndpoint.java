@@ -0,0 +1,43 @@
+package ro.ing.api.controller;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import ro.ing.api.dto.HotProductWindowDTO;
+import ro.ing.api.service.HotProductTracker;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint exposing the most read products tracked by the {@link HotProductTracker},
+ * at {@code /actuator/hotproducts}.
+ */
+@Component
+@Endpoint(id = "hotproducts")
+public class HotProductsEndpoint {
+
+    private static final int DEFAULT_LIMIT = 10;
+
+    private final HotProductTracker hotProductTracker;
+
+    public HotProductsEndpoint(HotProductTracker hotProductTracker) {
+        this.hotProductTracker = hotProductTracker;
+    }
+
+    /**
+     * Lists the most accessed products of each window, most accessed first.
+     * @param source only count {@code lookup}, {@code search} or {@code ai} accesses; all sources by default
+     * @param limit maximum number of products per window, 10 by default
+     * @return one entry per window with its products and estimated access counts
+     * @throws InvalidEndpointRequestException if the limit is negative, answered with {@code 400 Bad Request}
+     */
+    @ReadOperation
+    public List<HotProductWindowDTO> hotProducts(@Nullable HotProductTracker.Source source, @Nullable Integer limit) {
+        if (limit != null && limit < 0) {
+            throw new InvalidEndpointRequestException("The limit must not be negative, got " + limit, "Negative limit");
+        }
+        return hotProductTracker.findHotProducts(source, limit == null ? DEFAULT_LIMIT : limit);
+    }
+}
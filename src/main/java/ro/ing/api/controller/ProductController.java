@@ -6,21 +6,41 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import ro.ing.api.configuration.ConcurrencyPriority;
+import ro.ing.api.dto.BulkDeleteRequestDTO;
+import ro.ing.api.dto.CatalogStatsDTO;
+import ro.ing.api.dto.ProductChangesDTO;
+import ro.ing.api.dto.MultiGetRequestDTO;
+import ro.ing.api.dto.ProductField;
+import ro.ing.api.dto.ProductLookupDTO;
+import ro.ing.api.dto.ProductSuggestionDTO;
 import ro.ing.api.entity.Product;
 import ro.ing.api.exception.InvalidProductDataException;
 import ro.ing.api.exception.ProductNotFoundException;
+import ro.ing.api.service.AdaptiveConcurrencyLimiter;
+import ro.ing.api.service.CatalogStatisticsService;
+import ro.ing.api.service.HotProductTracker;
+import ro.ing.api.service.PriceHistoryService;
+import ro.ing.api.service.PriceWriteBehindBuffer;
+import ro.ing.api.service.ProductJsonCache;
+import ro.ing.api.service.ProductSearchCache;
 import ro.ing.api.service.ProductService;
+import ro.ing.api.service.ProductSuggestionService;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
@@ -28,14 +48,38 @@ public class ProductController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
     private final ProductService productService;
+    private final CatalogStatisticsService catalogStatisticsService;
+    private final PriceWriteBehindBuffer priceWriteBehindBuffer;
+    private final ProductJsonCache productJsonCache;
+    private final ProductSearchCache productSearchCache;
+    private final PriceHistoryService priceHistoryService;
+    private final ProductSuggestionService productSuggestionService;
+    private final HotProductTracker hotProductTracker;
 
     /**
      * Constructor for ProductController.
      * @param productService service layer that handles product-related operations
+     * @param catalogStatisticsService service holding the incrementally maintained catalog statistics
+     * @param priceWriteBehindBuffer buffer used for price updates when write-behind mode is enabled
+     * @param productJsonCache cache of serialized single-product responses, used when enabled
+     * @param productSearchCache cache of search results, passing searches through to the service when disabled
+     * @param priceHistoryService service holding the append-only price history
+     * @param productSuggestionService service serving name autocomplete from memory
+     * @param hotProductTracker tracker of the most accessed products
      */
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, CatalogStatisticsService catalogStatisticsService,
+                             PriceWriteBehindBuffer priceWriteBehindBuffer, ProductJsonCache productJsonCache,
+                             ProductSearchCache productSearchCache, PriceHistoryService priceHistoryService,
+                             ProductSuggestionService productSuggestionService, HotProductTracker hotProductTracker) {
         this.productService = productService;
+        this.catalogStatisticsService = catalogStatisticsService;
+        this.priceWriteBehindBuffer = priceWriteBehindBuffer;
+        this.productJsonCache = productJsonCache;
+        this.productSearchCache = productSearchCache;
+        this.priceHistoryService = priceHistoryService;
+        this.productSuggestionService = productSuggestionService;
+        this.hotProductTracker = hotProductTracker;
     }
 
     /**
@@ -55,17 +99,52 @@ public class ProductController {
         return new ResponseEntity<>(savedProduct, HttpStatus.CREATED);
     }
 
+    /**
+     * Retrieves many products by ID in one call, e.g. {@code GET /api/products?ids=1,2,3}.
+     * @param ids the product IDs to retrieve
+     * @return ResponseEntity with one entry per requested ID, in request order, marking missing products
+     */
+    @GetMapping(params = "ids")
+    @ConcurrencyPriority(AdaptiveConcurrencyLimiter.Priority.LOW)
+    public ResponseEntity<List<ProductLookupDTO>> findProducts(@RequestParam List<Long> ids) {
+        logger.info("Retrieving {} products by ID", ids.size());
+        return ResponseEntity.ok(recordLookups(productService.findProductsByIds(ids)));
+    }
+
+    /**
+     * Retrieves many products by ID in one call; variant of {@link #findProducts(List)} for ID lists too long for a URL.
+     * @param request the product IDs to retrieve
+     * @return ResponseEntity with one entry per requested ID, in request order, marking missing products
+     */
+    @PostMapping("/multi-get")
+    @ConcurrencyPriority(AdaptiveConcurrencyLimiter.Priority.LOW)
+    public ResponseEntity<List<ProductLookupDTO>> findProducts(@RequestBody MultiGetRequestDTO request) {
+        logger.info("Retrieving products by ID from request body");
+        return ResponseEntity.ok(recordLookups(productService.findProductsByIds(request.getIds())));
+    }
+
     /**
      * Retrieves all products with pagination.
      * @param page the page number (0-based)
      * @param size the number of items per page
+     * @param fields optional comma-separated list of fields to return, e.g. {@code id,name,price}
      * @return ResponseEntity with a paginated list of products
      */
     @GetMapping("/all")
+    @ConcurrencyPriority(AdaptiveConcurrencyLimiter.Priority.LOW)
     public ResponseEntity<?> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        logger.info("Retrieving products - Page: {}, Size: {}", page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String fields) {
+        logger.info("Retrieving products - Page: {}, Size: {}, Fields: {}", page, size, fields);
+
+        Set<ProductField> fieldSet = ProductField.parse(fields);
+        if (fieldSet != null) {
+            if (page == 0 && size == 10) {
+                return ResponseEntity.ok(productService.getAllProductFields(fieldSet));
+            }
+            return ResponseEntity.ok(productService.getAllProductFields(fieldSet, PageRequest.of(page, size)));
+        }
 
         if (page == 0 && size == 10) {
             // Default behavior: return all products
@@ -85,15 +164,30 @@ public class ProductController {
     /**
      * Retrieves a product by its ID.
      * @param id the ID of the product to retrieve
+     * @param fields optional comma-separated list of fields to return, e.g. {@code id,name,price}
      * @return ResponseEntity with the found product or an exception if not found
      * @throws ProductNotFoundException if the product is not found
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Product> findProduct(@PathVariable Long id) {
+    public ResponseEntity<?> findProduct(@PathVariable Long id, @RequestParam(required = false) String fields) {
         logger.info("Retrieving product with ID: {}", id);
+        Set<ProductField> fieldSet = ProductField.parse(fields);
+        if (fieldSet != null) {
+            Map<String, Object> productFields = productService.findProductFields(id, fieldSet)
+                    .orElseThrow(() -> new ProductNotFoundException("Product not found"));
+            recordLookup(id);
+            return ResponseEntity.ok(productFields);
+        }
+        if (productJsonCache.isEnabled()) {
+            byte[] json = productJsonCache.findProductJson(id)
+                    .orElseThrow(() -> new ProductNotFoundException("Product not found"));
+            recordLookup(id);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+        }
         Product product = productService.findProduct(id)
                 .orElseThrow(() -> new ProductNotFoundException("Product not found"));
         logger.info("Product retrieved successfully: {}", product.getName());
+        recordLookup(id);
         return ResponseEntity.ok(product);
     }
 
@@ -101,12 +195,16 @@ public class ProductController {
      * Updates the price of a specific product.
      * @param id the ID of the product to update
      * @param newPrice the new price to set for the product
-     * @return ResponseEntity with the updated product
+     * @return ResponseEntity with the updated product, or 202 Accepted when the update was buffered in write-behind mode
      */
     @PutMapping("/{id}/price")
-    public ResponseEntity<Product> changePrice(@PathVariable Long id, @RequestBody Map<String, BigDecimal> request) {
+    public ResponseEntity<?> changePrice(@PathVariable Long id, @RequestBody Map<String, BigDecimal> request) {
         BigDecimal newPrice = request.get("newPrice");
         logger.info("Updating price of product with ID: {} to {}", id, newPrice);
+        if (priceWriteBehindBuffer.isEnabled()) {
+            priceWriteBehindBuffer.submit(id, newPrice);
+            return ResponseEntity.accepted().body(Map.of("id", id, "newPrice", newPrice));
+        }
         Product updatedProduct = productService.changePrice(id, newPrice);
         logger.info("Price updated successfully for product with ID: {}", id);
         return ResponseEntity.ok(updatedProduct);
@@ -150,21 +248,129 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Deletes many products at once, selected either by ID list or by filter criteria.
+     * @param request the IDs or filter criteria of the products to delete
+     * @return ResponseEntity with the number of deleted products
+     */
+    @PostMapping("/bulk-delete")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> bulkDeleteProducts(@RequestBody BulkDeleteRequestDTO request) {
+        logger.info("Bulk deleting products");
+        int deleted = productService.bulkDeleteProducts(request);
+        logger.info("Bulk deleted {} products", deleted);
+        return ResponseEntity.ok(Map.of("deleted", deleted));
+    }
+
     /**
      * Searches for products based on optional criteria.
      * @param name optional name substring to search for
      * @param minPrice optional minimum price filter
      * @param maxPrice optional maximum price filter
+     * @param fields optional comma-separated list of fields to return, e.g. {@code id,name,price}
      * @return ResponseEntity with a list of products matching the criteria
      */
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(
+    public ResponseEntity<List<?>> searchProducts(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) BigDecimal minPrice,
-            @RequestParam(required = false) BigDecimal maxPrice) {
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String fields) {
         logger.info("Searching for products with criteria - Name: {}, Min Price: {}, Max Price: {}", name, minPrice, maxPrice);
-        List<Product> products = productService.searchProducts(name, minPrice, maxPrice);
+        Set<ProductField> fieldSet = ProductField.parse(fields);
+        if (fieldSet != null) {
+            List<Map<String, Object>> productFields = productSearchCache.searchProductFields(name, minPrice, maxPrice, fieldSet);
+            logger.info("Found {} products matching the search criteria", productFields.size());
+            productFields.forEach(row -> hotProductTracker.record((Long) row.get(ProductField.ID.getAttribute()),
+                    HotProductTracker.Source.SEARCH));
+            return ResponseEntity.ok(productFields);
+        }
+        List<Product> products = productSearchCache.searchProducts(name, minPrice, maxPrice);
         logger.info("Found {} products matching the search criteria", products.size());
+        products.forEach(product -> hotProductTracker.record(product.getId(), HotProductTracker.Source.SEARCH));
         return ResponseEntity.ok(products);
     }
+
+    /**
+     * Suggests products for a search box as the user types, e.g. {@code GET /api/products/suggest?prefix=appl}.
+     * Answered from memory: products having a word that starts with the prefix, most retrieved first.
+     * @param prefix the text typed so far; case, accents and punctuation are ignored
+     * @param limit the maximum number of suggestions, 10 by default
+     * @return ResponseEntity with the suggestions
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggestProducts(@RequestParam String prefix,
+                                                                      @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productSuggestionService.suggest(prefix, limit));
+    }
+
+    /**
+     * Retrieves the products changed since a continuation token, for incremental synchronization.
+     * @param since the token returned by the previous call; omit it to perform a full synchronization
+     * @return ResponseEntity with the modified products, the deleted product IDs and the next token
+     */
+    @GetMapping("/changes")
+    @ConcurrencyPriority(AdaptiveConcurrencyLimiter.Priority.LOW)
+    public ResponseEntity<ProductChangesDTO> getChanges(@RequestParam(required = false) String since) {
+        logger.info("Retrieving product changes since token: {}", since);
+        ProductChangesDTO changes = productService.getChangesSince(since);
+        logger.info("Returning {} updated and {} deleted products", changes.getUpdated().size(), changes.getDeleted().size());
+        return ResponseEntity.ok(changes);
+    }
+
+    /**
+     * Retrieves the price history of a product over a time range, e.g.
+     * {@code /api/products/12/price-history?from=2024-11-01T00:00:00&to=2024-12-01T00:00:00&interval=day}.
+     * Changes are written asynchronously: one shows up here within {@code store.products.price-history.flush-interval-ms}
+     * of its commit, and the changes of that last interval are missing for good if the node crashes before writing them.
+     * Without an interval the changes are returned newest first, at most {@code store.products.price-history.max-points}
+     * of them; when that many come back, older ones are read by passing the oldest returned {@code changedAt} as {@code to}.
+     * @param id the ID of the product
+     * @param from optional inclusive start of the range, defaults to thirty days before {@code to}
+     * @param to optional exclusive end of the range, defaults to now
+     * @param interval optional aggregation interval (minute, hour, day, week, month); without it the changes are returned
+     * @return ResponseEntity with the price changes, or the per-interval aggregates when an interval is given
+     */
+    @GetMapping("/{id}/price-history")
+    public ResponseEntity<List<?>> getPriceHistory(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String interval) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(30);
+        logger.info("Retrieving price history of product with ID: {} from {} to {}, interval: {}", id, start, end, interval);
+        if (interval != null) {
+            return ResponseEntity.ok(priceHistoryService.getDownsampledPrices(id, start, end, PriceHistoryService.Interval.parse(interval)));
+        }
+        return ResponseEntity.ok(priceHistoryService.getPriceSeries(id, start, end));
+    }
+
+    /**
+     * Retrieves catalog statistics: product count, min/max/average price and the price histogram.
+     * The values are maintained in memory, so this endpoint does not query the database.
+     * @return ResponseEntity with the catalog statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<CatalogStatsDTO> getStatistics() {
+        logger.info("Retrieving catalog statistics");
+        return ResponseEntity.ok(catalogStatisticsService.getStatistics());
+    }
+
+    /**
+     * Counts a successful single-product retrieval for the hot product tracking and the suggestion ranking.
+     */
+    private void recordLookup(Long id) {
+        hotProductTracker.record(id, HotProductTracker.Source.LOOKUP);
+        productSuggestionService.recordView(id);
+    }
+
+    private List<ProductLookupDTO> recordLookups(List<ProductLookupDTO> lookups) {
+        for (ProductLookupDTO lookup : lookups) {
+            if (lookup.isFound()) {
+                hotProductTracker.record(lookup.getId(), HotProductTracker.Source.LOOKUP);
+            }
+        }
+        return lookups;
+    }
 }
@@ -0,0 +1,76 @@
+package ro.ing.api.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ro.ing.api.entity.Product;
+import ro.ing.api.exception.ProductNotFoundException;
+import ro.ing.api.repository.ReactiveProductRepository;
+import ro.ing.api.service.HotProductTracker;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-only product API backed by R2DBC, alongside the blocking {@link ProductController}.
+ *
+ * Handlers return {@link Mono} and {@link Flux}, so the servlet thread is released as soon as the query is issued
+ * and the response is completed asynchronously when the rows arrive. The catalog stream writes one product at a time
+ * and only requests the next row once the previous one has been written, so the client's read speed paces the query.
+ * Only registered with {@code store.products.reactive.enabled}.
+ */
+@RestController
+@ConditionalOnProperty(name = "store.products.reactive.enabled", havingValue = "true")
+@RequestMapping("/api/reactive/products")
+public class ReactiveProductController {
+
+    private final ReactiveProductRepository reactiveProductRepository;
+    private final HotProductTracker hotProductTracker;
+
+    public ReactiveProductController(ReactiveProductRepository reactiveProductRepository,
+                                     HotProductTracker hotProductTracker) {
+        this.reactiveProductRepository = reactiveProductRepository;
+        this.hotProductTracker = hotProductTracker;
+    }
+
+    /**
+     * Retrieves a product by its ID.
+     * @param id the ID of the product to retrieve
+     * @return the product, or 404 if it does not exist
+     */
+    @GetMapping("/{id}")
+    public Mono<Product> findProduct(@PathVariable Long id) {
+        return reactiveProductRepository.findById(id)
+                .doOnNext(product -> hotProductTracker.record(id, HotProductTracker.Source.LOOKUP))
+                .switchIfEmpty(Mono.error(() -> new ProductNotFoundException("Product not found")));
+    }
+
+    /**
+     * Searches for products with the same criteria as {@code GET /api/products/search}.
+     * @param name optional name substring to search for
+     * @param minPrice optional minimum price filter
+     * @param maxPrice optional maximum price filter
+     * @return the matching products, as a JSON array
+     */
+    @GetMapping("/search")
+    public Flux<Product> searchProducts(@RequestParam(required = false) String name,
+                                        @RequestParam(required = false) BigDecimal minPrice,
+                                        @RequestParam(required = false) BigDecimal maxPrice) {
+        return reactiveProductRepository.search(name, minPrice, maxPrice)
+                .doOnNext(product -> hotProductTracker.record(product.getId(), HotProductTracker.Source.SEARCH));
+    }
+
+    /**
+     * Streams the whole catalog, ordered by ID, as newline-delimited JSON or server-sent events.
+     * @return the products
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Product> streamProducts() {
+        return reactiveProductRepository.streamAll();
+    }
+}
@@ -0,0 +1,93 @@
+package ro.ing.api.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ro.ing.api.dto.StockDTO;
+import ro.ing.api.dto.StockReservationDTO;
+import ro.ing.api.exception.InvalidProductDataException;
+import ro.ing.api.service.StockService;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * REST endpoints for product stock: reading and adjusting the quantity, and the reserve/commit/release
+ * cycle used by the cart and order services.
+ */
+@RestController
+@RequestMapping("/api/products")
+public class StockController {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockController.class);
+    private final StockService stockService;
+
+    public StockController(StockService stockService) {
+        this.stockService = stockService;
+    }
+
+    /**
+     * Retrieves the stock of a product.
+     * @param id the ID of the product
+     * @return ResponseEntity with the on-hand, reserved and available quantities
+     */
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<StockDTO> getStock(@PathVariable Long id) {
+        return ResponseEntity.ok(stockService.getStock(id));
+    }
+
+    /**
+     * Adjusts the on-hand stock of a product, e.g. {@code {"delta": 50}} for a delivery.
+     * @param id the ID of the product
+     * @param request a map containing the signed change under {@code delta}
+     * @return ResponseEntity with the stock after the adjustment
+     */
+    @PostMapping("/{id}/stock/adjust")
+    public ResponseEntity<StockDTO> adjustStock(@PathVariable Long id, @RequestBody Map<String, Long> request) {
+        Long delta = request.get("delta");
+        if (delta == null) {
+            throw new InvalidProductDataException("Stock adjustment requires a delta.");
+        }
+        logger.info("Adjusting stock of product with ID: {} by {}", id, delta);
+        return ResponseEntity.ok(stockService.adjustStock(id, delta));
+    }
+
+    /**
+     * Reserves units of a product, e.g. {@code {"quantity": 2}}.
+     * @param id the ID of the product
+     * @param request a map containing the number of units under {@code quantity}
+     * @return ResponseEntity with the reservation and HTTP status CREATED, or 409 if not enough stock is available
+     */
+    @PostMapping("/{id}/stock/reservations")
+    public ResponseEntity<StockReservationDTO> reserve(@PathVariable Long id, @RequestBody Map<String, Long> request) {
+        Long quantity = request.get("quantity");
+        if (quantity == null) {
+            throw new InvalidProductDataException("Reservation requires a quantity.");
+        }
+        return new ResponseEntity<>(stockService.reserve(id, quantity), HttpStatus.CREATED);
+    }
+
+    /**
+     * Commits a reservation, turning the reserved units into a sale.
+     * @param reservationId the ID of the reservation
+     * @return ResponseEntity with HTTP status NO_CONTENT
+     */
+    @PostMapping("/stock/reservations/{reservationId}/commit")
+    public ResponseEntity<Void> commit(@PathVariable UUID reservationId) {
+        stockService.commit(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Releases a reservation, making its units available again.
+     * @param reservationId the ID of the reservation
+     * @return ResponseEntity with HTTP status NO_CONTENT
+     */
+    @DeleteMapping("/stock/reservations/{reservationId}")
+    public ResponseEntity<Void> release(@PathVariable UUID reservationId) {
+        stockService.release(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+}
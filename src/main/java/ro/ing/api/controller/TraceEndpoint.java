@@ -0,0 +1,56 @@
+package ro.ing.api.controller;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import ro.ing.api.dto.TraceDTO;
+import ro.ing.api.service.TraceStore;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actuator endpoint exposing the traces kept in memory by the {@link TraceStore}, at {@code /actuator/traces}.
+ */
+@Component
+@Endpoint(id = "traces")
+public class TraceEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final TraceStore traceStore;
+
+    public TraceEndpoint(TraceStore traceStore) {
+        this.traceStore = traceStore;
+    }
+
+    /**
+     * Lists the kept traces, slowest first.
+     * @param minDurationMs only traces whose root span took at least this long
+     * @param span only traces with a span whose name contains this text, e.g. {@code OpenAiService}
+     * @param limit maximum number of traces returned, 20 by default
+     * @return the matching traces with their spans
+     * @throws InvalidEndpointRequestException if the limit is negative, answered with {@code 400 Bad Request}
+     */
+    @ReadOperation
+    public List<TraceDTO> traces(@Nullable Long minDurationMs, @Nullable String span, @Nullable Integer limit) {
+        if (limit != null && limit < 0) {
+            throw new InvalidEndpointRequestException("The limit must not be negative, got " + limit, "Negative limit");
+        }
+        long minDurationMicros = minDurationMs == null ? 0 : TimeUnit.MILLISECONDS.toMicros(minDurationMs);
+        return traceStore.findTraces(minDurationMicros, span, limit == null ? DEFAULT_LIMIT : limit);
+    }
+
+    /**
+     * Returns one kept trace.
+     * @param traceId the hexadecimal trace ID, as logged in {@code traceId}
+     * @return the trace, or null (404) if it was not kept or has been overwritten
+     */
+    @ReadOperation
+    public TraceDTO trace(@Selector String traceId) {
+        return traceStore.findTrace(traceId).orElse(null);
+    }
+}
@@ -0,0 +1,28 @@
+package ro.ing.api.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Data Transfer Object for the admin bulk delete endpoint.
+ * Either a list of product IDs or at least one filter criterion (name substring, price range) must be provided.
+ */
+@Getter
+@Setter
+public class BulkDeleteRequestDTO {
+
+    private List<Long> ids;
+    private String name;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+
+    /**
+     * @return true if any filter criterion is set
+     */
+    public boolean hasFilter() {
+        return name != null || minPrice != null || maxPrice != null;
+    }
+}
@@ -0,0 +1,24 @@
+package ro.ing.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Data Transfer Object for the catalog statistics endpoint.
+ * Contains product counts, price aggregates and the price histogram used for faceted navigation.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogStatsDTO {
+
+    private long productCount;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private BigDecimal averagePrice;
+    private List<PriceBucketDTO> priceHistogram;
+    private LocalDateTime reconciledAt;
+}
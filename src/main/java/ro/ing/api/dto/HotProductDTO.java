@@ -0,0 +1,16 @@
+package ro.ing.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Data Transfer Object for one frequently accessed product.
+ * {@code estimatedAccesses} is never below the true count and exceeds it by at most the window's {@code maxOverestimate}.
+ */
+@Getter
+@AllArgsConstructor
+public class HotProductDTO {
+
+    private Long id;
+    private long estimatedAccesses;
+}
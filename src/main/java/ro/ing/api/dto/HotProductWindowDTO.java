@@ -0,0 +1,26 @@
+package ro.ing.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Data Transfer Object for the most accessed products of one sliding time window, e.g. the last five minutes.
+ */
+@Getter
+@AllArgsConstructor
+public class HotProductWindowDTO {
+
+    private String window;
+    private Instant from;
+    private long totalAccesses;
+
+    /**
+     * Bound on how much any estimate exceeds the true count, with high probability.
+     */
+    private long maxOverestimate;
+
+    private List<HotProductDTO> products;
+}
@@ -0,0 +1,16 @@
+package ro.ing.api.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for the POST variant of the multi-get endpoint, used when the ID list is too long for a URL.
+ */
+@Getter
+@Setter
+public class MultiGetRequestDTO {
+
+    private List<Long> ids;
+}
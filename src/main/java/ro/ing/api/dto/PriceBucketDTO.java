@@ -0,0 +1,19 @@
+package ro.ing.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Data Transfer Object for one bucket of the catalog price histogram.
+ * A bucket covers prices from {@code from} (inclusive) up to {@code to} (exclusive); {@code to} is null for the last bucket.
+ */
+@Getter
+@AllArgsConstructor
+public class PriceBucketDTO {
+
+    private BigDecimal from;
+    private BigDecimal to;
+    private long count;
+}
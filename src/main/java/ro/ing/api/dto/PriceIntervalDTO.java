@@ -0,0 +1,22 @@
+package ro.ing.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Data Transfer Object for one interval of a downsampled price history.
+ * Aggregates the prices set between {@code start} (inclusive) and the start of the next interval.
+ */
+@Getter
+@AllArgsConstructor
+public class PriceIntervalDTO {
+
+    private LocalDateTime start;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private BigDecimal averagePrice;
+    private long changes;
+}
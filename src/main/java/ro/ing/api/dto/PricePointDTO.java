@@ -0,0 +1,20 @@
+package ro.ing.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Data Transfer Object for one recorded price change of a product.
+ * {@code oldPrice} is null for the price a product was created with.
+ */
+@Getter
+@AllArgsConstructor
+public class PricePointDTO {
+
+    private LocalDateTime changedAt;
+    private BigDecimal oldPrice;
+    private BigDecimal newPrice;
+}
@@ -0,0 +1,22 @@
+package ro.ing.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ro.ing.api.entity.Product;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object returned by the incremental sync endpoint.
+ * Contains the products created or modified since the supplied token, the IDs of products deleted since then,
+ * the token to pass on the next call and whether more changes are waiting beyond this page.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangesDTO {
+
+    private List<Product> updated;
+    private List<Long> deleted;
+    private String nextToken;
+    private boolean hasMore;
+}
@@ -0,0 +1,63 @@
+package ro.ing.api.dto;
+
+import ro.ing.api.exception.InvalidProductDataException;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Product attributes that can be requested through the {@code fields=} parameter of the product endpoints.
+ * Each constant maps the public JSON name to the attribute of the Product entity selected by the projection query.
+ */
+public enum ProductField {
+    ID("id"),
+    NAME("name"),
+    PRICE("price"),
+    DESCRIPTION("description"),
+    CREATED_DATE("createdDate"),
+    UPDATED_DATE("updatedDate");
+
+    private final String attribute;
+
+    ProductField(String attribute) {
+        this.attribute = attribute;
+    }
+
+    /**
+     * @return the JSON property and entity attribute name of this field
+     */
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * Parses a comma-separated field list such as {@code id,name,price}.
+     * The ID is always included so that clients can correlate the returned rows.
+     * @param fields the comma-separated field names, or null/blank for all fields
+     * @return the requested fields, or null if the parameter was not given
+     * @throws InvalidProductDataException if an unknown field is requested
+     */
+    public static Set<ProductField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<ProductField> result = EnumSet.of(ID);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            result.add(fromAttribute(trimmed));
+        }
+        return result;
+    }
+
+    private static ProductField fromAttribute(String name) {
+        for (ProductField field : values()) {
+            if (field.attribute.equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        throw new InvalidProductDataException("Unknown product field: " + name);
+    }
+}
@@ -0,0 +1,21 @@
+package ro.ing.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ro.ing.api.entity.Product;
+
+/**
+ * One entry of a multi-get response.
+ * Entries are returned in the order the IDs were requested; {@code found} is false and {@code product}
+ * is omitted for IDs that do not exist.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductLookupDTO {
+
+    private Long id;
+    private boolean found;
+    private Product product;
+}
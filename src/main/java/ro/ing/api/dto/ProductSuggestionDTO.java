@@ -0,0 +1,17 @@
+package ro.ing.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Data Transfer Object for one autocomplete suggestion.
+ * {@code popularity} is the number of times the product was retrieved since the index was loaded.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductSuggestionDTO {
+
+    private Long id;
+    private String name;
+    private long popularity;
+}
@@ -0,0 +1,27 @@
+package ro.ing.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Data Transfer Object for one finished span of a trace kept in the in-memory trace store.
+ * {@code parentId} is omitted for the root span and {@code error} for spans that completed normally.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SpanDTO {
+
+    private String spanId;
+    private String parentId;
+    private String name;
+    private String remoteService;
+    private Instant startedAt;
+    private long durationMicros;
+    private String error;
+    private Map<String, String> tags;
+}
@@ -0,0 +1,19 @@
+package ro.ing.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Data Transfer Object describing the current stock of a product.
+ * {@code onHand} counts every unit in stock, {@code reserved} the units held by open reservations
+ * and {@code available} the units that can still be reserved.
+ */
+@Getter
+@AllArgsConstructor
+public class StockDTO {
+
+    private Long productId;
+    private long onHand;
+    private long reserved;
+    private long available;
+}
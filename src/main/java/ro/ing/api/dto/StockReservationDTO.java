@@ -0,0 +1,21 @@
+package ro.ing.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Data Transfer Object returned when stock is reserved.
+ * The reservation must be committed or released before {@code expiresAt}, after which it is released automatically.
+ */
+@Getter
+@AllArgsConstructor
+public class StockReservationDTO {
+
+    private UUID reservationId;
+    private Long productId;
+    private long quantity;
+    private Instant expiresAt;
+}
@@ -0,0 +1,25 @@
+package ro.ing.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Data Transfer Object for a finished trace kept in the in-memory trace store.
+ * {@code name} and {@code durationMicros} are those of the root span; {@code retainedBecause} is
+ * {@code sampled}, {@code slow} or {@code error}. Spans are ordered by start time.
+ */
+@Getter
+@AllArgsConstructor
+public class TraceDTO {
+
+    private String traceId;
+    private String name;
+    private Instant startedAt;
+    private long durationMicros;
+    private String retainedBecause;
+    private int droppedSpans;
+    private List<SpanDTO> spans;
+}
@@ -8,7 +8,9 @@
 
 package ro.ing.api.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.CreatedDate;
@@ -26,10 +28,11 @@ public class Product {
 
     /**
      * Unique identifier for each product.
-     * Generated automatically by the database using the IDENTITY strategy.
+     * Generated automatically by the database using the IDENTITY strategy, or with sharding enabled,
+     * a Snowflake ID naming the shard that holds the product.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ShardedId
     private Long id;
 
     /**
@@ -44,8 +47,17 @@ public class Product {
 
     /**
      * Description of the product, providing additional details.
+     * <p>
+     * Stored in the separate {@code product_description} table and loaded only when first accessed,
+     * so reading names and prices never pulls description pages. Requires the Hibernate bytecode enhancement
+     * configured in the build.
+     * </p>
      */
-    private String description;
+    @OneToOne(mappedBy = "product", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @JsonIgnore
+    private ProductDescription descriptionContent;
 
     /**
      * Timestamp indicating when the product was created.
@@ -65,4 +77,31 @@ public class Product {
      */
     @LastModifiedDate
     private LocalDateTime updatedDate;
+
+    /**
+     * Returns the product description, loading it on first access.
+     * @return the description, or null if the product has none
+     */
+    public String getDescription() {
+        return descriptionContent == null ? null : descriptionContent.getContent();
+    }
+
+    /**
+     * Sets the product description, creating or removing the description row as needed.
+     * The description is stored in its own row, so the update date is touched explicitly to keep
+     * the product itself dirty and audited.
+     * @param description the new description, or null to remove it
+     */
+    public void setDescription(String description) {
+        if (id != null) {
+            updatedDate = LocalDateTime.now();
+        }
+        if (description == null) {
+            descriptionContent = null;
+        } else if (descriptionContent == null) {
+            descriptionContent = new ProductDescription(this, description);
+        } else {
+            descriptionContent.setContent(description);
+        }
+    }
 }
@@ -0,0 +1,58 @@
+/**
+ * ProductDescription holds the (possibly long, AI-generated) description of a product.
+ *
+ * Descriptions live in their own table, keyed by the product ID, so that the product rows stay narrow
+ * and name/price queries and scans never read description pages. Rows are removed together with their
+ * product, including by bulk deletes, through the ON DELETE CASCADE foreign key.
+ */
+
+package ro.ing.api.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.type.SqlTypes;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "product_description")
+public class ProductDescription {
+
+    /**
+     * ID of the described product, shared with the product row.
+     */
+    @Id
+    private Long productId;
+
+    /**
+     * The product this description belongs to.
+     */
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "product_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Product product;
+
+    /**
+     * The description text; mapped to an unbounded text column.
+     */
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    @Column(nullable = false)
+    private String content;
+
+    /**
+     * Constructs the description of a product.
+     * @param product the described product
+     * @param content the description text
+     */
+    public ProductDescription(Product product, String content) {
+        this.product = product;
+        this.content = content;
+    }
+}
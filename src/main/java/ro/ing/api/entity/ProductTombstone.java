@@ -0,0 +1,52 @@
+/**
+ * ProductTombstone records the deletion of a product so that incremental sync clients can learn about it.
+ *
+ * Deleted products no longer have a row in the product table, so the change feed reads deletions
+ * from this table instead. Tombstones are purged once they are older than the configured retention.
+ */
+
+package ro.ing.api.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "product_tombstone")
+public class ProductTombstone {
+
+    /**
+     * Unique identifier of the tombstone itself.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * ID of the deleted product.
+     */
+    @Column(nullable = false)
+    private Long productId;
+
+    /**
+     * Timestamp indicating when the product was deleted.
+     */
+    @Column(nullable = false)
+    private LocalDateTime deletedDate;
+
+    /**
+     * Constructs a tombstone for a deleted product.
+     * @param productId the ID of the deleted product
+     * @param deletedDate the moment the product was deleted
+     */
+    public ProductTombstone(Long productId, LocalDateTime deletedDate) {
+        this.productId = productId;
+        this.deletedDate = deletedDate;
+    }
+}
@@ -0,0 +1,38 @@
+package ro.ing.api.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.id.IdentityGenerator;
+import ro.ing.api.service.ShardContext;
+
+import java.util.EnumSet;
+
+/**
+ * Generates product IDs. A product inserted on a shard bound by the shard router gets a Snowflake ID naming that
+ * shard; otherwise, as without sharding, the identity column of the database assigns the ID.
+ */
+public class ShardedIdGenerator extends IdentityGenerator implements BeforeExecutionGenerator {
+
+    @Override
+    public boolean generatedOnExecution() {
+        return true;
+    }
+
+    @Override
+    public boolean generatedOnExecution(Object entity, SharedSessionContractImplementor session) {
+        return ShardContext.current() == null;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        return ShardContext.current().nextId();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
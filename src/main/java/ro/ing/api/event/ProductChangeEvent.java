@@ -0,0 +1,70 @@
+/**
+ * ProductChangeEvent describes a single create, update, price change or delete applied to a product.
+ *
+ * Events are published by ProductService through Spring's ApplicationEventPublisher so that listeners
+ * (such as the STOMP change stream) can react to catalog changes once the surrounding transaction commits.
+ */
+
+package ro.ing.api.event;
+
+import lombok.Getter;
+import ro.ing.api.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+public class ProductChangeEvent {
+
+    private final ProductChangeType type;
+    private final Long productId;
+    private final String name;
+    private final BigDecimal price;
+
+    /**
+     * Price before the change, or null when the product did not exist before (creation).
+     */
+    private final BigDecimal previousPrice;
+
+    private final LocalDateTime occurredAt;
+
+    /**
+     * Constructs a new ProductChangeEvent.
+     * @param type the kind of change
+     * @param productId the ID of the changed product
+     * @param name the product name after the change (may be null for deletes)
+     * @param price the product price after the change (may be null for deletes)
+     * @param previousPrice the product price before the change
+     * @param occurredAt the moment the change was applied
+     */
+    public ProductChangeEvent(ProductChangeType type, Long productId, String name, BigDecimal price,
+                              BigDecimal previousPrice, LocalDateTime occurredAt) {
+        this.type = type;
+        this.productId = productId;
+        this.name = name;
+        this.price = price;
+        this.previousPrice = previousPrice;
+        this.occurredAt = occurredAt;
+    }
+
+    /**
+     * Creates an event describing the current state of a product.
+     * @param type the kind of change
+     * @param product the product after the change
+     * @param previousPrice the product price before the change
+     * @return a new ProductChangeEvent
+     */
+    public static ProductChangeEvent of(ProductChangeType type, Product product, BigDecimal previousPrice) {
+        return new ProductChangeEvent(type, product.getId(), product.getName(), product.getPrice(),
+                previousPrice, LocalDateTime.now());
+    }
+
+    /**
+     * Creates an event describing the deletion of a product.
+     * @param productId the ID of the deleted product
+     * @return a new ProductChangeEvent of type DELETED
+     */
+    public static ProductChangeEvent deleted(Long productId) {
+        return new ProductChangeEvent(ProductChangeType.DELETED, productId, null, null, null, LocalDateTime.now());
+    }
+}
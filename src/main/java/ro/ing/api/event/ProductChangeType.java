@@ -0,0 +1,11 @@
+package ro.ing.api.event;
+
+/**
+ * Kind of change applied to a product, as carried by {@link ProductChangeEvent}.
+ */
+public enum ProductChangeType {
+    CREATED,
+    UPDATED,
+    PRICE_CHANGED,
+    DELETED
+}
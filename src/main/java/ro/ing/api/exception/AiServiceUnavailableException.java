@@ -0,0 +1,34 @@
+/**
+ * AiServiceUnavailableException is thrown when a call to the AI provider fails fast or keeps failing:
+ * too many calls are already in flight, the circuit breaker is open, or every retry failed or timed out.
+ *
+ * It carries how long the client should wait before trying again and maps to a 503 Service Unavailable status code.
+ */
+
+package ro.ing.api.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)  // Returns 503 status code when this exception is thrown
+public class AiServiceUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructs a new AiServiceUnavailableException with a specified detail message.
+     * @param message the detail message explaining the reason for the exception
+     * @param retryAfterSeconds how long the client should wait before retrying
+     */
+    public AiServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return how long the client should wait before retrying, in seconds
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * ChangeTokenExpiredException is thrown when an incremental sync token is older than the tombstone retention.
+ *
+ * Deletions older than the retention period have been purged, so the client can no longer be given a complete
+ * delta and must perform a full resynchronization. The exception maps to a 410 Gone status code.
+ */
+
+package ro.ing.api.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GONE)  // Returns 410 status code when this exception is thrown
+public class ChangeTokenExpiredException extends RuntimeException {
+
+    /**
+     * Constructs a new ChangeTokenExpiredException with a specified detail message.
+     * @param message the detail message explaining the reason for the exception
+     */
+    public ChangeTokenExpiredException(String message) {
+        super(message);
+    }
+}
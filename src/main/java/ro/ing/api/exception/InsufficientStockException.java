@@ -0,0 +1,23 @@
+/**
+ * InsufficientStockException is thrown when a reservation or stock adjustment asks for more units than are available.
+ *
+ * Units held by open reservations are not available, so this is also raised when the remaining stock is reserved.
+ * The exception maps to a 409 Conflict status code.
+ */
+
+package ro.ing.api.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)  // Returns 409 status code when this exception is thrown
+public class InsufficientStockException extends RuntimeException {
+
+    /**
+     * Constructs a new InsufficientStockException with a specified detail message.
+     * @param message the detail message explaining the reason for the exception
+     */
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
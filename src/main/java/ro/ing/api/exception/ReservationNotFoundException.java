@@ -0,0 +1,23 @@
+/**
+ * ReservationNotFoundException is thrown when a stock reservation does not exist.
+ *
+ * Reservations disappear once they are committed, released or expired, so committing or releasing
+ * the same reservation twice also raises it. The exception maps to a 404 Not Found status code.
+ */
+
+package ro.ing.api.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)  // Returns 404 status code when this exception is thrown
+public class ReservationNotFoundException extends RuntimeException {
+
+    /**
+     * Constructs a new ReservationNotFoundException with a specified detail message.
+     * @param message the detail message explaining the reason for the exception
+     */
+    public ReservationNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * ServiceOverloadedException is thrown when a request is shed because its endpoint group is at its concurrency limit.
+ *
+ * The limit adapts to the latency of the requests in flight, so the client should retry after a short pause.
+ * The exception maps to a 503 Service Unavailable status code.
+ */
+
+package ro.ing.api.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)  // Returns 503 status code when this exception is thrown
+public class ServiceOverloadedException extends RuntimeException {
+
+    /**
+     * Constructs a new ServiceOverloadedException with a specified detail message.
+     * @param message the detail message explaining the reason for the exception
+     */
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
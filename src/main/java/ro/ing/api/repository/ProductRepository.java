@@ -8,19 +8,59 @@
 
 package ro.ing.api.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ro.ing.api.entity.Product;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     boolean existsByName(String name);
+
+    /**
+     * Loads all products together with their descriptions in a single query,
+     * avoiding one lazy description load per product when the full entities are returned.
+     * @return list of all products
+     */
+    @EntityGraph(attributePaths = "descriptionContent")
+    @Override
+    List<Product> findAll();
+
+    /**
+     * Loads a product together with its description, so that it can still be serialized after the session is closed.
+     * @param id the ID of the product
+     * @return the product, or empty if it does not exist
+     */
+    @EntityGraph(attributePaths = "descriptionContent")
+    @Override
+    Optional<Product> findById(Long id);
+
+    /**
+     * Loads a page of products together with their descriptions.
+     * @param pageable the pagination information
+     * @return a page of products
+     */
+    @EntityGraph(attributePaths = "descriptionContent")
+    @Override
+    Page<Product> findAll(Pageable pageable);
+
     /**
      * Finds products by a name substring, ignoring case.
      * @param name partial or full name of the product
      * @return list of products with names that contain the specified substring, case-insensitive
      */
+    @EntityGraph(attributePaths = "descriptionContent")
     List<Product> findByNameContainingIgnoreCase(String name);
 
     /**
@@ -29,6 +69,7 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      * @param maxPrice maximum price of the product
      * @return list of products with prices between minPrice and maxPrice
      */
+    @EntityGraph(attributePaths = "descriptionContent")
     List<Product> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice);
 
     /**
@@ -38,5 +79,128 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      * @param maxPrice maximum price of the product
      * @return list of products with names containing the specified substring and prices within the specified range
      */
+    @EntityGraph(attributePaths = "descriptionContent")
     List<Product> findByNameAndPriceBetween(String name, BigDecimal minPrice, BigDecimal maxPrice);
+
+    /**
+     * Loads the products with the given IDs, together with their descriptions, in a single {@code IN} query.
+     * @param ids the product IDs to load
+     * @return the existing products among the given IDs, in no particular order
+     */
+    @EntityGraph(attributePaths = "descriptionContent")
+    List<Product> findByIdIn(Collection<Long> ids);
+
+    /**
+     * Finds the next chunk of products in ID order after {@code afterId}, for the full synchronization.
+     * @param afterId exclusive lower bound for the product ID
+     * @param pageable the chunk size (only the page size is used)
+     * @return list of products in ascending ID order
+     */
+    @EntityGraph(attributePaths = "descriptionContent")
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    /**
+     * Finds the next chunk of products changed after the given position in (updatedDate, id) order.
+     * Served by the index on the updated_date column.
+     * @param updatedDate the last modification timestamp of the last product already read
+     * @param afterId the ID of the last product already read
+     * @param pageable the chunk size (only the page size is used)
+     * @return list of products modified after the position, oldest change first
+     */
+    @EntityGraph(attributePaths = "descriptionContent")
+    @Query("select p from Product p where p.updatedDate >= :updatedDate"
+            + " and (p.updatedDate > :updatedDate or p.id > :afterId)"
+            + " order by p.updatedDate, p.id")
+    List<Product> findChangedAfter(@Param("updatedDate") LocalDateTime updatedDate, @Param("afterId") Long afterId,
+                                   Pageable pageable);
+
+    /**
+     * Finds the IDs of products created or modified after the given moment, without loading them.
+     * Served by the index on the updated_date column.
+     * @param since exclusive lower bound for the last modification timestamp
+     * @return list of product IDs modified after {@code since}
+     */
+    @Query("select p.id from Product p where p.updatedDate > :since")
+    List<Long> findIdsUpdatedAfter(@Param("since") LocalDateTime since);
+
+    /**
+     * Reads only the ID and price of every product, used to reconcile the in-memory catalog statistics.
+     * @return list of {@code [id, price]} pairs
+     */
+    @Query("select p.id, p.price from Product p")
+    List<Object[]> findAllIdsAndPrices();
+
+    /**
+     * Reads only the ID and name of every product, used to build the in-memory suggestion index.
+     * @return list of {@code [id, name]} pairs
+     */
+    @Query("select p.id, p.name from Product p")
+    List<Object[]> findAllIdsAndNames();
+
+    /**
+     * Finds the next chunk of products without a description, in ID order after {@code afterId}.
+     * The description is joined explicitly with a left join: navigating {@code p.descriptionContent} in the where
+     * clause would be an inner join, which never finds a product without a description.
+     * @param afterId exclusive lower bound for the product ID
+     * @param pageable the chunk size (only the page size is used)
+     * @return list of {@code [id, name]} pairs in ascending ID order
+     */
+    @Query("select p.id, p.name from Product p left join p.descriptionContent d"
+            + " where p.id > :afterId and d is null order by p.id")
+    List<Object[]> findIdsAndNamesWithoutDescription(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Counts the products without a description after the given ID.
+     * @param afterId exclusive lower bound for the product ID
+     * @return the number of products without a description
+     */
+    @Query("select count(p) from Product p left join p.descriptionContent d where p.id > :afterId and d is null")
+    long countWithoutDescription(@Param("afterId") Long afterId);
+
+    /**
+     * Deletes a product with a single {@code DELETE ... WHERE id = ?} statement, without loading it first.
+     * @param id the ID of the product to delete
+     * @return number of deleted rows, 0 if the product does not exist
+     */
+    @Modifying
+    @Query("delete from Product p where p.id = :id")
+    int deleteProductById(@Param("id") Long id);
+
+    /**
+     * Deletes all products with the given IDs in a single set-based statement.
+     * @param ids the IDs of the products to delete
+     * @return number of deleted rows
+     */
+    @Modifying
+    @Query("delete from Product p where p.id in :ids")
+    int deleteProductsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Finds which of the given product IDs exist and locks their rows until the transaction ends, so that they are
+     * still there when the transaction deletes them.
+     * @param ids candidate product IDs
+     * @return the subset of IDs that exist
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p.id from Product p where p.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Finds the next chunk of product IDs matching the optional criteria, in ID order after {@code afterId}.
+     * Used to walk the matching set in keyset order without offsets.
+     * @param afterId exclusive lower bound for the product ID
+     * @param name optional case-insensitive name substring
+     * @param minPrice optional minimum price
+     * @param maxPrice optional maximum price
+     * @param pageable the chunk size (only the page size is used)
+     * @return list of matching product IDs in ascending order
+     */
+    @Query("select p.id from Product p where p.id > :afterId"
+            + " and (:name is null or lower(p.name) like lower(concat('%', :name, '%')))"
+            + " and (:minPrice is null or p.price >= :minPrice)"
+            + " and (:maxPrice is null or p.price <= :maxPrice)"
+            + " order by p.id")
+    List<Long> findIdsMatching(@Param("afterId") Long afterId, @Param("name") String name,
+                               @Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice,
+                               Pageable pageable);
 }
@@ -0,0 +1,44 @@
+package ro.ing.api.repository;
+
+import org.springframework.data.domain.Pageable;
+import ro.ing.api.dto.ProductField;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Projection queries that select only the requested product columns.
+ * Rows are returned as ordered maps keyed by the field name, so Jackson writes exactly the selected fields.
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Finds the requested fields of one product.
+     * @param id the ID of the product
+     * @param fields the fields to select
+     * @return the selected fields, or empty if the product does not exist
+     */
+    Optional<Map<String, Object>> findFieldsById(Long id, Set<ProductField> fields);
+
+    /**
+     * Finds the requested fields of all products, optionally paged.
+     * @param fields the fields to select
+     * @param pageable the page to read, or {@link Pageable#unpaged()} for all products
+     * @return the selected fields of each product, ordered by ID
+     */
+    List<Map<String, Object>> findAllFields(Set<ProductField> fields, Pageable pageable);
+
+    /**
+     * Finds the requested fields of the products matching the search criteria.
+     * The criteria are combined exactly like {@code ProductService.searchProducts}.
+     * @param fields the fields to select
+     * @param name optional name (exact when combined with a price range, otherwise a case-insensitive substring)
+     * @param minPrice optional minimum price
+     * @param maxPrice optional maximum price
+     * @return the selected fields of each matching product
+     */
+    List<Map<String, Object>> searchFields(Set<ProductField> fields, String name, BigDecimal minPrice, BigDecimal maxPrice);
+}
@@ -0,0 +1,99 @@
+package ro.ing.api.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Pageable;
+import ro.ing.api.dto.ProductField;
+import ro.ing.api.entity.Product;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Criteria API implementation of {@link ProductRepositoryCustom}.
+ * The SELECT clause lists only the requested attributes, so unrequested columns are never read.
+ */
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Map<String, Object>> findFieldsById(Long id, Set<ProductField> fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        query.multiselect(selections(root, fields)).where(cb.equal(root.get("id"), id));
+        return entityManager.createQuery(query).getResultList().stream().findFirst().map(ProductRepositoryCustomImpl::toMap);
+    }
+
+    @Override
+    public List<Map<String, Object>> findAllFields(Set<ProductField> fields, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        query.multiselect(selections(root, fields)).orderBy(cb.asc(root.get("id")));
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+        }
+        return toMaps(typedQuery.getResultList());
+    }
+
+    @Override
+    public List<Map<String, Object>> searchFields(Set<ProductField> fields, String name, BigDecimal minPrice, BigDecimal maxPrice) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (name != null && minPrice != null && maxPrice != null) {
+            predicates.add(cb.equal(root.get("name"), name));
+            predicates.add(cb.between(root.get("price"), minPrice, maxPrice));
+        } else if (name != null) {
+            predicates.add(cb.like(cb.upper(root.get("name")), "%" + name.toUpperCase(Locale.ROOT) + "%"));
+        } else if (minPrice != null && maxPrice != null) {
+            predicates.add(cb.between(root.get("price"), minPrice, maxPrice));
+        }
+        query.multiselect(selections(root, fields)).where(predicates.toArray(new Predicate[0]));
+        return toMaps(entityManager.createQuery(query).getResultList());
+    }
+
+    private static List<Selection<?>> selections(Root<Product> root, Set<ProductField> fields) {
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (ProductField field : fields) {
+            if (field == ProductField.DESCRIPTION) {
+                // Descriptions live in their own table; join it only when they are requested.
+                selections.add(root.join("descriptionContent", JoinType.LEFT).get("content").alias(field.getAttribute()));
+            } else {
+                selections.add(root.get(field.getAttribute()).alias(field.getAttribute()));
+            }
+        }
+        return selections;
+    }
+
+    private static List<Map<String, Object>> toMaps(List<Tuple> tuples) {
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            rows.add(toMap(tuple));
+        }
+        return rows;
+    }
+
+    private static Map<String, Object> toMap(Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (TupleElement<?> element : tuple.getElements()) {
+            row.put(element.getAlias(), tuple.get(element));
+        }
+        return row;
+    }
+}
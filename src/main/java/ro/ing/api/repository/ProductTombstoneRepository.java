@@ -0,0 +1,67 @@
+package ro.ing.api.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ro.ing.api.entity.ProductTombstone;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * ProductTombstoneRepository provides access to the deletion markers used by the product change feed.
+ */
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Long> {
+
+    /**
+     * Finds tombstones recorded after the given moment, oldest first.
+     * @param since exclusive lower bound for the deletion timestamp
+     * @return list of tombstones deleted after {@code since}
+     */
+    List<ProductTombstone> findByDeletedDateAfterOrderByDeletedDateAsc(LocalDateTime since);
+
+    /**
+     * Finds the IDs of products deleted after the given moment, without loading their tombstones.
+     * Served by the index on the deleted_date column.
+     * @param since exclusive lower bound for the deletion timestamp
+     * @return list of product IDs deleted after {@code since}
+     */
+    @Query("select t.productId from ProductTombstone t where t.deletedDate > :since")
+    List<Long> findProductIdsDeletedAfter(@Param("since") LocalDateTime since);
+
+    /**
+     * Finds the next chunk of tombstones recorded after the given position in (deletedDate, productId) order.
+     * @param deletedDate the deletion timestamp of the last tombstone already read
+     * @param afterProductId the product ID of the last tombstone already read
+     * @param pageable the chunk size (only the page size is used)
+     * @return list of tombstones after the position, oldest first
+     */
+    @Query("select t from ProductTombstone t where t.deletedDate >= :deletedDate"
+            + " and (t.deletedDate > :deletedDate or t.productId > :afterProductId)"
+            + " order by t.deletedDate, t.productId")
+    List<ProductTombstone> findDeletedAfter(@Param("deletedDate") LocalDateTime deletedDate,
+                                            @Param("afterProductId") Long afterProductId, Pageable pageable);
+
+    /**
+     * Removes tombstones older than the given moment in a single statement.
+     * @param cutoff exclusive upper bound for the deletion timestamp
+     * @return number of removed tombstones
+     */
+    @Modifying
+    @Query("delete from ProductTombstone t where t.deletedDate < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Records tombstones for all existing products among the given IDs with a single insert-select.
+     * Must run before the products are deleted.
+     * @param ids the IDs of the products about to be deleted
+     * @param deletedDate the deletion timestamp
+     * @return number of recorded tombstones
+     */
+    @Modifying
+    @Query("insert into ProductTombstone (productId, deletedDate) select p.id, :deletedDate from Product p where p.id in :ids")
+    int recordDeletions(@Param("ids") Collection<Long> ids, @Param("deletedDate") LocalDateTime deletedDate);
+}
@@ -0,0 +1,149 @@
+package ro.ing.api.repository;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ro.ing.api.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking, read-only access to products over R2DBC, backing {@code /api/reactive/products}.
+ *
+ * The repository owns its connection pool instead of exposing an R2DBC {@code ConnectionFactory} bean: such a bean
+ * would make Spring Boot back off from the JDBC DataSource that JPA and every writer rely on. Both pools point at the
+ * same database; writes stay on JPA, so the rows read here are those committed by the blocking side.
+ *
+ * The repository, and with it the second pool, only exists with {@code store.products.reactive.enabled}.
+ */
+@Repository
+@ConditionalOnProperty(name = "store.products.reactive.enabled", havingValue = "true")
+public class ReactiveProductRepository {
+
+    private static final String SELECT = "SELECT p.id, p.name, p.price, d.content AS description, p.created_date, p.updated_date"
+            + " FROM product p LEFT JOIN product_description d ON d.product_id = p.id";
+
+    private final ConnectionPool connectionPool;
+    private final DatabaseClient databaseClient;
+    private final int fetchSize;
+
+    /**
+     * Constructor for ReactiveProductRepository.
+     * @param url the R2DBC URL; when blank it is derived from the JDBC URL, which only works for plain URLs such as
+     *            {@code jdbc:postgresql://host:5432/db}
+     * @param jdbcUrl the JDBC URL of the application's database
+     * @param username the database username
+     * @param password the database password
+     * @param maxPoolSize maximum number of pooled R2DBC connections
+     * @param fetchSize rows fetched per round trip while streaming the catalog
+     */
+    public ReactiveProductRepository(@Value("${store.products.reactive.url:}") String url,
+                                     @Value("${spring.datasource.url}") String jdbcUrl,
+                                     @Value("${spring.datasource.username:}") String username,
+                                     @Value("${spring.datasource.password:}") String password,
+                                     @Value("${store.products.reactive.pool-max-size:20}") int maxPoolSize,
+                                     @Value("${store.products.reactive.fetch-size:256}") int fetchSize) {
+        ConnectionFactoryOptions.Builder options;
+        if (StringUtils.hasText(url)) {
+            options = ConnectionFactoryOptions.parse(url).mutate();
+        } else {
+            try {
+                options = ConnectionFactoryOptions.parse(jdbcUrl.replaceFirst("^jdbc:", "r2dbc:")).mutate();
+            } catch (IllegalArgumentException e) {
+                // JDBC URLs with driver-specific parameters (e.g. jdbc:h2:mem:x;DB_CLOSE_DELAY=-1) are not R2DBC URLs.
+                throw new IllegalStateException("store.products.reactive.enabled requires store.products.reactive.url: "
+                        + "no R2DBC URL can be derived from spring.datasource.url.", e);
+            }
+        }
+        if (StringUtils.hasText(username)) {
+            options.option(ConnectionFactoryOptions.USER, username);
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options.build()))
+                .maxSize(maxPoolSize)
+                .build());
+        this.databaseClient = DatabaseClient.create(connectionPool);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Closes the connection pool with the application context.
+     */
+    @PreDestroy
+    public void close() {
+        connectionPool.dispose();
+    }
+
+    /**
+     * Finds a product by its ID.
+     * @param id the ID of the product
+     * @return the product, or an empty Mono if it does not exist
+     */
+    public Mono<Product> findById(Long id) {
+        return databaseClient.sql(SELECT + " WHERE p.id = :id")
+                .bind("id", id)
+                .map(ReactiveProductRepository::toProduct)
+                .one();
+    }
+
+    /**
+     * Searches products with the same criteria as {@code ProductService#searchProducts}: an exact name within
+     * a price range when all three are given, otherwise a case-insensitive name substring, otherwise a price range.
+     * @param name optional name
+     * @param minPrice optional minimum price
+     * @param maxPrice optional maximum price
+     * @return the matching products
+     */
+    public Flux<Product> search(String name, BigDecimal minPrice, BigDecimal maxPrice) {
+        DatabaseClient.GenericExecuteSpec spec;
+        if (name != null && minPrice != null && maxPrice != null) {
+            spec = databaseClient.sql(SELECT + " WHERE p.name = :name AND p.price BETWEEN :minPrice AND :maxPrice")
+                    .bind("name", name).bind("minPrice", minPrice).bind("maxPrice", maxPrice);
+        } else if (name != null) {
+            spec = databaseClient.sql(SELECT + " WHERE UPPER(p.name) LIKE UPPER(:name)")
+                    .bind("name", "%" + name + "%");
+        } else if (minPrice != null && maxPrice != null) {
+            spec = databaseClient.sql(SELECT + " WHERE p.price BETWEEN :minPrice AND :maxPrice")
+                    .bind("minPrice", minPrice).bind("maxPrice", maxPrice);
+        } else {
+            spec = databaseClient.sql(SELECT);
+        }
+        return spec.map(ReactiveProductRepository::toProduct).all();
+    }
+
+    /**
+     * Streams the whole catalog ordered by ID. Rows are fetched from the database in chunks as the subscriber
+     * requests them, so a slow client holds back the query instead of buffering the catalog in memory.
+     * @return the products
+     */
+    public Flux<Product> streamAll() {
+        return databaseClient.sql(SELECT + " ORDER BY p.id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(ReactiveProductRepository::toProduct)
+                .all();
+    }
+
+    private static Product toProduct(Readable row) {
+        Product product = new Product();
+        // The description is set first: on a product with an ID it would also touch the update date.
+        product.setDescription(row.get("description", String.class));
+        product.setId(row.get("id", Long.class));
+        product.setName(row.get("name", String.class));
+        product.setPrice(row.get("price", BigDecimal.class));
+        product.setCreatedDate(row.get("created_date", LocalDateTime.class));
+        product.setUpdatedDate(row.get("updated_date", LocalDateTime.class));
+        return product;
+    }
+}
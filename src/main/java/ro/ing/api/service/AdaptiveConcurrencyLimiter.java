@@ -0,0 +1,179 @@
+package ro.ing.api.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that follows the latency of the work it admits.
+ *
+ * Completed calls are sampled in short windows. At the end of a window the average latency is compared with a
+ * slow-moving baseline: while it stays within {@code tolerance} times the baseline the limit grows by a fifth of its
+ * square root per window, and once it rises above that the limit shrinks in proportion, down to half per window.
+ * So when the database slows down, the number of requests waiting on it drops instead of every thread piling up on
+ * the pool, and the limit recovers as latency does. The limit only grows while it is actually being used.
+ *
+ * Priorities share the limit: low priority calls may use {@code lowPriorityShare} of it, normal calls all but
+ * {@code reservedShare}, and high priority calls all of it, so bulk reads are shed first and admin writes last.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * Admission priority of a call.
+     */
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    /**
+     * Weight of a window in the smoothed limit while it grows.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double lowPriorityShare;
+    private final double reservedShare;
+    private final long windowNanos;
+    private final int minWindowSamples;
+    private final int baselineWindows;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    private long windowStart = System.nanoTime();
+    private long windowLatencySum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private double baselineNanos;
+
+    /**
+     * Constructor for AdaptiveConcurrencyLimiter.
+     * @param initialLimit the limit before any latency has been observed
+     * @param minLimit the lowest limit
+     * @param maxLimit the highest limit
+     * @param tolerance how many times the baseline latency a window may average before the limit shrinks
+     * @param lowPriorityShare share of the limit low priority calls may use
+     * @param reservedShare share of the limit kept for high priority calls
+     * @param windowNanos minimum length of a sampling window
+     * @param minWindowSamples minimum number of calls in a sampling window
+     * @param baselineWindows number of windows the baseline latency averages over
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance,
+                                      double lowPriorityShare, double reservedShare, long windowNanos,
+                                      int minWindowSamples, int baselineWindows) {
+        if (minLimit < 1 || maxLimit < minLimit || tolerance < 1) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= max and the tolerance must be at least 1.");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.lowPriorityShare = lowPriorityShare;
+        this.reservedShare = reservedShare;
+        this.windowNanos = windowNanos;
+        this.minWindowSamples = minWindowSamples;
+        this.baselineWindows = baselineWindows;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Admits a call if its priority still has room under the current limit.
+     * Every admitted call must be followed by {@link #release(long)}.
+     * @param priority the priority of the call
+     * @return false if the call should be rejected
+     */
+    public boolean tryAcquire(Priority priority) {
+        int allowed = allowed(priority);
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends an admitted call and samples its latency.
+     * @param latencyNanos how long the call took
+     */
+    public void release(long latencyNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        sample(latencyNanos, inFlightBefore, System.nanoTime());
+    }
+
+    /**
+     * Ends an admitted call without sampling its latency, for calls whose duration says nothing about the load,
+     * such as an asynchronous handler that returned before its work was done.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Returns the current limit.
+     * @return the number of calls admitted at once
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Returns the number of admitted calls that have not completed yet.
+     * @return the calls in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private int allowed(Priority priority) {
+        int current = (int) limit;
+        return switch (priority) {
+            case HIGH -> current;
+            case NORMAL -> Math.max(1, current - (int) Math.ceil(current * reservedShare));
+            case LOW -> Math.max(1, (int) (current * lowPriorityShare));
+        };
+    }
+
+    private synchronized void sample(long latencyNanos, int inFlightBefore, long now) {
+        windowLatencySum += latencyNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightBefore);
+        if (windowSamples < minWindowSamples || now - windowStart < windowNanos) {
+            return;
+        }
+        double averageNanos = Math.max(1, (double) windowLatencySum / windowSamples);
+        int maxInFlight = windowMaxInFlight;
+        windowStart = now;
+        windowLatencySum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+
+        if (baselineNanos == 0) {
+            baselineNanos = averageNanos;
+        } else {
+            baselineNanos += (averageNanos - baselineNanos) / baselineWindows;
+        }
+        // After a slow period the baseline has absorbed some of the slow latency; let it come down faster.
+        if (baselineNanos > 2 * averageNanos) {
+            baselineNanos = (baselineNanos + averageNanos) / 2;
+        }
+
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baselineNanos / averageNanos));
+        double next;
+        if (gradient < 1.0) {
+            // Shrinks at once and without headroom, so even a small limit comes down within a window.
+            next = current * gradient;
+        } else if (maxInFlight < current / 2) {
+            // Not enough demand to tell whether a higher limit would hold; keep it.
+            return;
+        } else {
+            next = current + SMOOTHING * Math.sqrt(current);
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+}
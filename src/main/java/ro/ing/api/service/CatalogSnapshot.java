@@ -0,0 +1,473 @@
+package ro.ing.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ro.ing.api.entity.Product;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.repository.ProductRepository;
+import ro.ing.api.repository.ProductTombstoneRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only copy of the catalog in a memory-mapped file, used by {@link ProductService#findProduct(Long)} so that a
+ * freshly started node does not send every product lookup to the database.
+ *
+ * The running service periodically, and on shutdown, writes the whole catalog to a compact binary file: a header,
+ * an index of (id, record offset) pairs sorted by ID, fixed-width product records and a section holding the
+ * variable-length descriptions. On startup the file is mapped and serves lookups right away by binary search over the
+ * index; in the background the node catches up by marking every product changed or deleted after the snapshot was
+ * taken as stale. Stale and unknown products, and names longer than the record width, are read from the database.
+ * Until the catch-up has finished, lookups may return data as old as the snapshot.
+ *
+ * Local changes are marked as they commit. Changes made on other nodes are picked up by polling the change feed every
+ * {@code store.products.snapshot.poll-interval-ms}. Like the catch-up, every poll starts an overlap window before the
+ * previous one, so a change stamped earlier but committed later is still seen.
+ */
+@Service
+public class CatalogSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+    private static final int MAGIC = 0x43415453;  // "CATS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int INDEX_ENTRY_BYTES = 16;
+    private static final int RECORD_FIXED_BYTES = 50;
+    private static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+    private static final int NULL_SCALE = Integer.MIN_VALUE;
+
+    private static final String SELECT = "SELECT p.id, p.name, p.price, p.created_date, p.updated_date, d.content"
+            + " FROM product p LEFT JOIN product_description d ON d.product_id = p.id ORDER BY p.id";
+
+    /**
+     * A mapped snapshot file.
+     */
+    private record Mapped(ByteBuffer buffer, int count, long descriptionsOffset, LocalDateTime takenAt) {
+    }
+
+    private final ProductRepository productRepository;
+    private final ProductTombstoneRepository tombstoneRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Path path;
+    private final int nameWidth;
+
+    // Products changed since the mapped snapshot was taken, with the moment they were marked.
+    private final Map<Long, LocalDateTime> stale = new ConcurrentHashMap<>();
+    private volatile Mapped current;
+    // Where the next poll of the change feed starts; null until the snapshot is caught up.
+    private volatile LocalDateTime pollFrom;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Value("${store.products.changes.tombstone-retention-days:30}")
+    private int tombstoneRetentionDays = 30;
+
+    @Value("${store.products.changes.overlap-seconds:60}")
+    private long overlapSeconds = 60;
+
+    /**
+     * Constructor for CatalogSnapshot.
+     * @param productRepository repository used to find the products changed after the snapshot
+     * @param tombstoneRepository repository used to find the products deleted after the snapshot
+     * @param jdbcTemplate template used to stream the catalog into a new snapshot
+     * @param transactionTemplate template holding the streaming read in one transaction
+     * @param meterRegistry registry for the hit and miss metrics
+     * @param enabled whether snapshots are written and used for lookups
+     * @param path location of the snapshot file, required when enabled; it must survive restarts
+     * @param nameWidth bytes reserved for the UTF-8 name in each record
+     */
+    public CatalogSnapshot(ProductRepository productRepository, ProductTombstoneRepository tombstoneRepository,
+                           JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                           @Value("${store.products.snapshot.enabled:false}") boolean enabled,
+                           @Value("${store.products.snapshot.path:}") String path,
+                           @Value("${store.products.snapshot.name-width:96}") int nameWidth) {
+        this.productRepository = productRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        if (enabled && path.isBlank()) {
+            throw new IllegalStateException("store.products.snapshot.enabled requires store.products.snapshot.path: "
+                    + "the snapshot must be on storage that survives restarts.");
+        }
+        this.enabled = enabled;
+        this.path = enabled ? Path.of(path) : null;
+        this.nameWidth = nameWidth;
+        this.hits = Counter.builder("products.snapshot.hits").register(meterRegistry);
+        this.misses = Counter.builder("products.snapshot.misses").register(meterRegistry);
+        Gauge.builder("products.snapshot.size", this, snapshot -> snapshot.current == null ? 0 : snapshot.current.count())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Maps the snapshot left by the previous run, if any, and starts catching up on the changes made since.
+     */
+    @PostConstruct
+    public void open() {
+        if (!enabled || !Files.isRegularFile(path)) {
+            return;
+        }
+        Mapped snapshot;
+        try {
+            snapshot = map(path);
+        } catch (IOException | IllegalStateException e) {
+            logger.warn("Ignoring unreadable catalog snapshot {}", path, e);
+            return;
+        }
+        if (snapshot.takenAt().isBefore(LocalDateTime.now().minusDays(tombstoneRetentionDays))) {
+            // Deletions older than the tombstone retention can no longer be caught up on.
+            logger.info("Ignoring catalog snapshot taken at {}, older than the tombstone retention", snapshot.takenAt());
+            return;
+        }
+        current = snapshot;
+        logger.info("Mapped catalog snapshot of {} products taken at {}", snapshot.count(), snapshot.takenAt());
+        Thread catchUp = new Thread(() -> catchUp(snapshot.takenAt()), "catalog-snapshot-catch-up");
+        catchUp.setDaemon(true);
+        catchUp.start();
+    }
+
+    private void catchUp(LocalDateTime takenAt) {
+        try {
+            markChangedSince(takenAt.minusSeconds(overlapSeconds));
+            logger.info("Catalog snapshot caught up: {} products changed since {}", stale.size(), takenAt);
+        } catch (RuntimeException e) {
+            // Without the catch-up the snapshot cannot be trusted.
+            current = null;
+            logger.error("Catching up on the catalog snapshot failed, lookups go to the database", e);
+        }
+    }
+
+    /**
+     * Marks the products changed on any node since the previous poll as stale.
+     */
+    @Scheduled(fixedDelayString = "${store.products.snapshot.poll-interval-ms:5000}")
+    public void poll() {
+        if (!enabled || current == null || pollFrom == null) {
+            return;
+        }
+        try {
+            markChangedSince(pollFrom);
+        } catch (RuntimeException e) {
+            // The next poll starts from the same point.
+            logger.warn("Polling the change feed for the catalog snapshot failed", e);
+        }
+    }
+
+    private void markChangedSince(LocalDateTime since) {
+        LocalDateTime started = LocalDateTime.now();
+        productRepository.findIdsUpdatedAfter(since).forEach(id -> stale.put(id, started));
+        tombstoneRepository.findProductIdsDeletedAfter(since).forEach(id -> stale.put(id, started));
+        pollFrom = started.minusSeconds(overlapSeconds);
+    }
+
+    /**
+     * Looks a product up in the snapshot.
+     * @param id the ID of the product
+     * @return the product as of the snapshot, or empty if it is not in the snapshot or has changed since
+     */
+    public Optional<Product> find(Long id) {
+        Mapped snapshot = current;
+        if (snapshot == null || id == null || stale.containsKey(id)) {
+            misses.increment();
+            return Optional.empty();
+        }
+        int index = indexOf(snapshot, id);
+        if (index < 0) {
+            misses.increment();
+            return Optional.empty();
+        }
+        long recordOffset = snapshot.buffer().getLong(HEADER_BYTES + index * INDEX_ENTRY_BYTES + 8);
+        Product product = readRecord(snapshot, (int) recordOffset);
+        // A change may have been committed while the record was being read.
+        if (stale.containsKey(id)) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(product);
+    }
+
+    /**
+     * Marks a product as changed, so it is read from the database instead of the snapshot.
+     * @param event the committed product change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        if (enabled && event.getProductId() != null) {
+            stale.put(event.getProductId(), LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Writes a new snapshot of the catalog and switches lookups to it.
+     */
+    @Scheduled(fixedDelayString = "${store.products.snapshot.write-interval-ms:300000}",
+            initialDelayString = "${store.products.snapshot.write-interval-ms:300000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime takenAt = write();
+            Mapped snapshot = map(path);
+            if (pollFrom == null) {
+                pollFrom = takenAt.minusSeconds(overlapSeconds);
+            }
+            current = snapshot;
+            // Changes committed before the snapshot was read are part of it.
+            stale.values().removeIf(marked -> marked.isBefore(takenAt));
+            logger.info("Wrote catalog snapshot of {} products to {}", snapshot.count(), path);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Writing the catalog snapshot to {} failed", path, e);
+        }
+    }
+
+    /**
+     * Writes a last snapshot on shutdown, so the next start has a recent one.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            write();
+            logger.info("Wrote catalog snapshot to {}", path);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Writing the catalog snapshot to {} failed", path, e);
+        }
+    }
+
+    private synchronized LocalDateTime write() throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path records = Files.createTempFile(directory, "records", ".tmp");
+        Path descriptions = Files.createTempFile(directory, "descriptions", ".tmp");
+        Path assembled = Files.createTempFile(directory, "catalog", ".tmp");
+        try {
+            LocalDateTime takenAt = LocalDateTime.now();
+            RecordWriter writer;
+            try (OutputStream recordOut = new BufferedOutputStream(Files.newOutputStream(records), 1 << 16);
+                 OutputStream descriptionOut = new BufferedOutputStream(Files.newOutputStream(descriptions), 1 << 16)) {
+                writer = new RecordWriter(recordOut, descriptionOut, nameWidth);
+                JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+                streaming.setFetchSize(1000);
+                // PostgreSQL only streams with a fetch size inside a transaction.
+                transactionTemplate.executeWithoutResult(status -> streaming.query(SELECT, writer));
+            }
+
+            int count = writer.count;
+            int recordBytes = RECORD_FIXED_BYTES + nameWidth;
+            long recordsOffset = HEADER_BYTES + (long) count * INDEX_ENTRY_BYTES;
+            long descriptionsOffset = recordsOffset + (long) count * recordBytes;
+            long length = descriptionsOffset + Files.size(descriptions);
+            try (FileChannel out = FileChannel.open(assembled, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 FileChannel recordIn = FileChannel.open(records);
+                 FileChannel descriptionIn = FileChannel.open(descriptions)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(nameWidth).putInt(recordBytes).putInt(0)
+                        .putLong(toMicros(takenAt)).putLong(HEADER_BYTES).putLong(recordsOffset).putLong(descriptionsOffset)
+                        .putLong(length).flip();
+                writeFully(out, header);
+                ByteBuffer entries = ByteBuffer.allocate(INDEX_ENTRY_BYTES * 4096);
+                for (int i = 0; i < count; i++) {
+                    if (!entries.hasRemaining()) {
+                        writeFully(out, entries.flip());
+                        entries.clear();
+                    }
+                    entries.putLong(writer.ids[i]).putLong(recordsOffset + (long) i * recordBytes);
+                }
+                writeFully(out, entries.flip());
+                transferFully(recordIn, out);
+                transferFully(descriptionIn, out);
+                out.force(true);
+            }
+            // Readers that still map the previous file keep their mapping; new readers see the complete new file.
+            Files.move(assembled, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return takenAt;
+        } finally {
+            Files.deleteIfExists(records);
+            Files.deleteIfExists(descriptions);
+            Files.deleteIfExists(assembled);
+        }
+    }
+
+    /**
+     * Writes the fixed-width record and the description of each row, in ID order, and collects the IDs for the index.
+     */
+    private static final class RecordWriter implements RowCallbackHandler {
+        private final OutputStream recordOut;
+        private final OutputStream descriptionOut;
+        private final int nameWidth;
+        private final ByteBuffer record;
+        private long[] ids = new long[1024];
+        private int count;
+        private long descriptionOffset;
+
+        RecordWriter(OutputStream recordOut, OutputStream descriptionOut, int nameWidth) {
+            this.recordOut = recordOut;
+            this.descriptionOut = descriptionOut;
+            this.nameWidth = nameWidth;
+            this.record = ByteBuffer.allocate(RECORD_FIXED_BYTES + nameWidth);
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            String nameValue = rs.getString(2);
+            byte[] name = nameValue == null ? null : nameValue.getBytes(StandardCharsets.UTF_8);
+            BigDecimal price = rs.getBigDecimal(3);
+            if ((name != null && name.length > nameWidth) || (price != null && price.unscaledValue().bitLength() > 63)) {
+                return;  // Does not fit a record; the product is read from the database.
+            }
+            String descriptionValue = rs.getString(6);
+            byte[] description = descriptionValue == null ? null : descriptionValue.getBytes(StandardCharsets.UTF_8);
+            long id = rs.getLong(1);
+            record.clear();
+            record.putLong(id);
+            record.putLong(price == null ? 0 : price.unscaledValue().longValueExact());
+            record.putInt(price == null ? NULL_SCALE : price.scale());
+            record.putLong(toMicros(rs.getTimestamp(4)));
+            record.putLong(toMicros(rs.getTimestamp(5)));
+            record.putLong(descriptionOffset);
+            record.putInt(description == null ? -1 : description.length);
+            record.putShort((short) (name == null ? -1 : name.length));
+            if (name != null) {
+                record.put(name);
+            }
+            try {
+                recordOut.write(record.array());
+                if (description != null) {
+                    descriptionOut.write(description);
+                    descriptionOffset += description.length;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[count++] = id;
+        }
+    }
+
+    private static Mapped map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Unexpected catalog snapshot size " + size);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getLong(56) != size) {
+                throw new IllegalStateException("Not a complete version " + VERSION + " catalog snapshot");
+            }
+            return new Mapped(buffer, buffer.getInt(8), buffer.getLong(48), fromMicros(buffer.getLong(24)));
+        }
+    }
+
+    private static int indexOf(Mapped snapshot, long id) {
+        ByteBuffer buffer = snapshot.buffer();
+        int low = 0;
+        int high = snapshot.count() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long candidate = buffer.getLong(HEADER_BYTES + middle * INDEX_ENTRY_BYTES);
+            if (candidate < id) {
+                low = middle + 1;
+            } else if (candidate > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private static Product readRecord(Mapped snapshot, int offset) {
+        ByteBuffer buffer = snapshot.buffer();
+        Product product = new Product();
+        int descriptionLength = buffer.getInt(offset + 44);
+        if (descriptionLength >= 0) {
+            byte[] description = new byte[descriptionLength];
+            buffer.get((int) (snapshot.descriptionsOffset() + buffer.getLong(offset + 36)), description);
+            // Set before the ID: on a product with an ID it would also touch the update date.
+            product.setDescription(new String(description, StandardCharsets.UTF_8));
+        }
+        product.setId(buffer.getLong(offset));
+        int scale = buffer.getInt(offset + 16);
+        product.setPrice(scale == NULL_SCALE ? null : new BigDecimal(BigInteger.valueOf(buffer.getLong(offset + 8)), scale));
+        product.setCreatedDate(fromMicros(buffer.getLong(offset + 20)));
+        product.setUpdatedDate(fromMicros(buffer.getLong(offset + 28)));
+        short nameLength = buffer.getShort(offset + 48);
+        if (nameLength >= 0) {
+            byte[] name = new byte[nameLength];
+            buffer.get(offset + RECORD_FIXED_BYTES, name);
+            product.setName(new String(name, StandardCharsets.UTF_8));
+        }
+        return product;
+    }
+
+    private static long toMicros(Timestamp timestamp) {
+        return timestamp == null ? NULL_TIMESTAMP : toMicros(timestamp.toLocalDateTime());
+    }
+
+    private static long toMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        if (micros == NULL_TIMESTAMP) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000), (int) Math.floorMod(micros, 1_000_000) * 1_000,
+                ZoneOffset.UTC);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static void transferFully(FileChannel in, FileChannel out) throws IOException {
+        long position = 0;
+        long size = in.size();
+        while (position < size) {
+            position += in.transferTo(position, size - position, out);
+        }
+    }
+}
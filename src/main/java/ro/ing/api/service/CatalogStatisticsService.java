@@ -0,0 +1,199 @@
+package ro.ing.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ro.ing.api.dto.CatalogStatsDTO;
+import ro.ing.api.dto.PriceBucketDTO;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.event.ProductChangeType;
+import ro.ing.api.repository.ProductRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Keeps catalog statistics (count, min/max/average price and a price histogram) up to date in memory.
+ *
+ * The aggregates are adjusted on every committed product change, so reading them never touches the database.
+ * A periodic reconciliation pass rebuilds them from a narrow id/price scan to correct any drift, for example
+ * from writes made by other nodes.
+ */
+@Service
+public class CatalogStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogStatisticsService.class);
+
+    private final ProductRepository productRepository;
+    private final ShardRouter shards;
+    private final BigDecimal[] bucketBounds;
+
+    private final Map<Long, BigDecimal> prices = new HashMap<>();
+    private final TreeMap<BigDecimal, Integer> priceCounts = new TreeMap<>();
+    private final long[] bucketCounts;
+    private BigDecimal priceSum = BigDecimal.ZERO;
+    private long pricedCount;
+    private LocalDateTime reconciledAt;
+
+    /**
+     * Products changed while a reconciliation scan is running; their live value wins over the scanned one.
+     */
+    private Set<Long> touchedDuringReconcile;
+
+    /**
+     * Constructor for CatalogStatisticsService.
+     * @param productRepository the repository used for the reconciliation scan
+     * @param shards router running the reconciliation scan on every shard
+     * @param bucketBounds ascending upper bounds of the price histogram buckets
+     */
+    public CatalogStatisticsService(ProductRepository productRepository, ShardRouter shards,
+                                    @Value("${store.products.stats.histogram-bounds:10,25,50,100,250,500,1000}") BigDecimal[] bucketBounds) {
+        this.productRepository = productRepository;
+        this.shards = shards;
+        this.bucketBounds = bucketBounds.clone();
+        Arrays.sort(this.bucketBounds);
+        this.bucketCounts = new long[this.bucketBounds.length + 1];
+    }
+
+    /**
+     * Applies a committed product change to the aggregates.
+     * @param event the committed product change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChange(ProductChangeEvent event) {
+        Long id = event.getProductId();
+        if (id == null) {
+            return;
+        }
+        if (event.getType() == ProductChangeType.DELETED) {
+            remove(id);
+        } else {
+            put(id, event.getPrice());
+        }
+        if (touchedDuringReconcile != null) {
+            touchedDuringReconcile.add(id);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the current aggregates.
+     * @return the catalog statistics
+     */
+    public synchronized CatalogStatsDTO getStatistics() {
+        BigDecimal average = pricedCount == 0
+                ? null
+                : priceSum.divide(BigDecimal.valueOf(pricedCount), 2, RoundingMode.HALF_UP);
+        List<PriceBucketDTO> histogram = new ArrayList<>(bucketCounts.length);
+        for (int i = 0; i < bucketCounts.length; i++) {
+            BigDecimal from = i == 0 ? BigDecimal.ZERO : bucketBounds[i - 1];
+            BigDecimal to = i < bucketBounds.length ? bucketBounds[i] : null;
+            histogram.add(new PriceBucketDTO(from, to, bucketCounts[i]));
+        }
+        return new CatalogStatsDTO(prices.size(),
+                priceCounts.isEmpty() ? null : priceCounts.firstKey(),
+                priceCounts.isEmpty() ? null : priceCounts.lastKey(),
+                average, histogram, reconciledAt);
+    }
+
+    /**
+     * Loads the aggregates once the application has started.
+     * A failure is only logged so that an unavailable database does not prevent the application from starting;
+     * the next scheduled reconciliation will retry.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            logger.warn("Initial catalog statistics reconciliation failed, retrying on the next scheduled pass", e);
+        }
+    }
+
+    /**
+     * Rebuilds the aggregates from the database, keeping changes that were applied while the scan was running.
+     */
+    @Scheduled(fixedDelayString = "${store.products.stats.reconcile-interval-ms:600000}",
+            initialDelayString = "${store.products.stats.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        synchronized (this) {
+            touchedDuringReconcile = new HashSet<>();
+        }
+        try {
+            Map<Long, BigDecimal> scanned = new HashMap<>();
+            for (List<Object[]> rows : shards.onEachShard(shard -> productRepository.findAllIdsAndPrices())) {
+                for (Object[] row : rows) {
+                    scanned.put((Long) row[0], (BigDecimal) row[1]);
+                }
+            }
+            synchronized (this) {
+                for (Long id : touchedDuringReconcile) {
+                    if (prices.containsKey(id)) {
+                        scanned.put(id, prices.get(id));
+                    } else {
+                        scanned.remove(id);
+                    }
+                }
+                rebuild(scanned);
+                reconciledAt = LocalDateTime.now();
+            }
+            logger.info("Reconciled catalog statistics for {} products", scanned.size());
+        } finally {
+            synchronized (this) {
+                touchedDuringReconcile = null;
+            }
+        }
+    }
+
+    private void rebuild(Map<Long, BigDecimal> scanned) {
+        prices.clear();
+        priceCounts.clear();
+        Arrays.fill(bucketCounts, 0);
+        priceSum = BigDecimal.ZERO;
+        pricedCount = 0;
+        scanned.forEach(this::put);
+    }
+
+    private void put(Long id, BigDecimal price) {
+        if (prices.containsKey(id)) {
+            removePrice(prices.get(id));
+        }
+        prices.put(id, price);
+        if (price != null) {
+            priceCounts.merge(price, 1, Integer::sum);
+            bucketCounts[bucketOf(price)]++;
+            priceSum = priceSum.add(price);
+            pricedCount++;
+        }
+    }
+
+    private void remove(Long id) {
+        if (prices.containsKey(id)) {
+            removePrice(prices.remove(id));
+        }
+    }
+
+    private void removePrice(BigDecimal price) {
+        if (price == null) {
+            return;
+        }
+        priceCounts.computeIfPresent(price, (key, count) -> count == 1 ? null : count - 1);
+        bucketCounts[bucketOf(price)]--;
+        priceSum = priceSum.subtract(price);
+        pricedCount--;
+    }
+
+    private int bucketOf(BigDecimal price) {
+        int bucket = 0;
+        while (bucket < bucketBounds.length && price.compareTo(bucketBounds[bucket]) >= 0) {
+            bucket++;
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,98 @@
+package ro.ing.api.service;
+
+import ro.ing.api.exception.InvalidProductDataException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of a client in the product change feed, handed out as an opaque continuation token.
+ *
+ * A full synchronization pages through the products by ID and remembers when it started. An incremental
+ * synchronization keeps a keyset cursor for the products, ordered by (updatedDate, id), and one for the tombstones,
+ * ordered by (deletedDate, productId), plus the watermark: the latest change timestamp handed out so far.
+ * Once a client has caught up, both cursors are moved back to an overlap window behind the watermark, so changes
+ * stamped before the watermark but committed after it was read are still returned on the next call.
+ *
+ * @param fullSync whether the client is still paging through the full synchronization
+ * @param watermark when the full synchronization started, or the latest change timestamp handed out
+ * @param productDate the updatedDate of the last product handed out
+ * @param productId the ID of the last product handed out
+ * @param tombstoneDate the deletedDate of the last tombstone handed out
+ * @param tombstoneProductId the product ID of the last tombstone handed out
+ */
+record ChangeToken(boolean fullSync, LocalDateTime watermark, LocalDateTime productDate, long productId,
+                   LocalDateTime tombstoneDate, long tombstoneProductId) {
+
+    private static final String FULL = "F";
+    private static final String DELTA = "D";
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Starts a full synchronization.
+     * @param start when the synchronization starts; changes from then on are read incrementally afterwards
+     * @return the position before the first product
+     */
+    static ChangeToken fullSync(LocalDateTime start) {
+        return new ChangeToken(true, start, null, 0, null, 0);
+    }
+
+    /**
+     * Returns the position of a client that has read every change up to the watermark.
+     * @param watermark the latest change timestamp handed out
+     * @param overlapSeconds how far behind the watermark the next read starts
+     * @return the position at the start of the overlap window
+     */
+    static ChangeToken caughtUp(LocalDateTime watermark, long overlapSeconds) {
+        LocalDateTime from = watermark.minusSeconds(overlapSeconds);
+        return new ChangeToken(false, watermark, from, 0, from, 0);
+    }
+
+    /**
+     * @param id the ID of the last product handed out by the full synchronization
+     * @return the position after that product
+     */
+    ChangeToken afterProduct(long id) {
+        return new ChangeToken(true, watermark, null, id, null, 0);
+    }
+
+    /**
+     * Decodes a continuation token. Tokens issued before paging, a bare timestamp, are read as caught up to it.
+     * @param token the token returned by a previous call
+     * @param overlapSeconds the overlap window applied to bare timestamps
+     * @return the decoded position
+     * @throws InvalidProductDataException if the token cannot be decoded
+     */
+    static ChangeToken decode(String token, long overlapSeconds) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                    .split("\\" + SEPARATOR, -1);
+            if (parts.length == 1) {
+                return caughtUp(LocalDateTime.parse(parts[0]), overlapSeconds);
+            }
+            if (parts.length == 3 && parts[0].equals(FULL)) {
+                return new ChangeToken(true, LocalDateTime.parse(parts[1]), null, Long.parseLong(parts[2]), null, 0);
+            }
+            if (parts.length == 6 && parts[0].equals(DELTA)) {
+                return new ChangeToken(false, LocalDateTime.parse(parts[1]), LocalDateTime.parse(parts[2]),
+                        Long.parseLong(parts[3]), LocalDateTime.parse(parts[4]), Long.parseLong(parts[5]));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // Reported below, like a token of the wrong shape.
+        }
+        throw new InvalidProductDataException("Invalid change token.");
+    }
+
+    /**
+     * @return the token to hand to the client
+     */
+    String encode() {
+        String value = fullSync
+                ? String.join(SEPARATOR, FULL, watermark.toString(), Long.toString(productId))
+                : String.join(SEPARATOR, DELTA, watermark.toString(), productDate.toString(), Long.toString(productId),
+                        tombstoneDate.toString(), Long.toString(tombstoneProductId));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,95 @@
+package ro.ing.api.service;
+
+/**
+ * Stops calling a failing dependency for a while instead of letting every caller wait for it to time out.
+ *
+ * The breaker opens after {@code failureThreshold} consecutive failed calls and rejects calls until
+ * {@code openNanos} have passed. It then lets a single trial call through: if it succeeds the breaker closes,
+ * otherwise it opens again for another period. A trial call whose outcome is never reported is given up after
+ * the same period, so the breaker cannot stay half-open forever.
+ */
+public class CircuitBreaker {
+
+    /**
+     * State of the breaker.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long changedAt;
+
+    /**
+     * Constructor for CircuitBreaker.
+     * @param failureThreshold the number of consecutive failures that opens the breaker
+     * @param openNanos how long the breaker rejects calls before letting a trial call through
+     */
+    public CircuitBreaker(int failureThreshold, long openNanos) {
+        if (failureThreshold < 1 || openNanos < 0) {
+            throw new IllegalArgumentException("The failure threshold must be at least 1 and the open time not negative.");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+    }
+
+    /**
+     * Asks whether a call may go through. Every permitted call should be followed by
+     * {@link #onSuccess()} or {@link #onFailure()}.
+     * @return false if the call should fail fast
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - changedAt < openNanos) {
+            return false;
+        }
+        // Open long enough, or the previous trial call never reported back: let one trial call through.
+        state = State.HALF_OPEN;
+        changedAt = now;
+        return true;
+    }
+
+    /**
+     * Reports a successful call, closing the breaker.
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Reports a failed call, opening the breaker after a failed trial call or too many failures in a row.
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            changedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Returns the current state.
+     * @return the state
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns how long the breaker keeps rejecting calls.
+     * @return the remaining open time in nanoseconds, 0 unless the breaker is open
+     */
+    public synchronized long getRemainingOpenNanos() {
+        return state == State.OPEN ? Math.max(0, openNanos - (System.nanoTime() - changedAt)) : 0;
+    }
+}
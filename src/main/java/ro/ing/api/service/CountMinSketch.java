@@ -0,0 +1,78 @@
+package ro.ing.api.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size frequency estimator for long keys.
+ *
+ * Each of the rows counts every key in one cell picked by its own hash, so a key's estimate, the smallest of its
+ * cells, never falls below its true count and exceeds it only by what colliding keys added. With {@code w} cells per
+ * row and {@code N} counted occurrences in total, the excess is at most {@code e / w * N} with probability
+ * {@code 1 - e^-rows}. Memory does not grow with the number of distinct keys, and counting is lock-free.
+ */
+public class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    private final AtomicLongArray cells;
+    private final int width;
+    private final int mask;
+
+    /**
+     * Constructor for CountMinSketch.
+     * @param width the number of cells per row, rounded up to a power of two
+     */
+    public CountMinSketch(int width) {
+        if (width < 1 || width > 1 << 24) {
+            throw new IllegalArgumentException("The width must be between 1 and 2^24.");
+        }
+        this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.mask = this.width - 1;
+        this.cells = new AtomicLongArray(SEEDS.length * this.width);
+    }
+
+    /**
+     * Counts occurrences of a key.
+     * @param key the key
+     * @param count the number of occurrences
+     * @return the estimated count of the key after adding
+     */
+    public long add(long key, long count) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            estimate = Math.min(estimate, cells.addAndGet(cell(row, key), count));
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the estimated count of a key: never less than the true count.
+     * @param key the key
+     * @return the estimated count
+     */
+    public long estimate(long key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            estimate = Math.min(estimate, cells.get(cell(row, key)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the number of cells per row.
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    private int cell(int row, long key) {
+        long hash = key ^ SEEDS[row];
+        // 64-bit finalizer of MurmurHash3: spreads sequential IDs over all cells.
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return row * width + (int) (hash & mask);
+    }
+}
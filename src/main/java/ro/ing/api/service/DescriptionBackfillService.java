@@ -0,0 +1,337 @@
+package ro.ing.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ro.ing.api.entity.Product;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.event.ProductChangeType;
+import ro.ing.api.exception.AiServiceUnavailableException;
+import ro.ing.api.repository.ProductRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background job generating the descriptions of products that have none.
+ *
+ * A pass walks the products without a description in ID order, one page at a time, starting after the checkpoint
+ * stored in {@code job_checkpoint}. Each page is split into requests of several prompts each, sent to
+ * {@link OpenAiService#generateTexts(List)} by a fixed number of worker threads. The generated descriptions of a page
+ * are written in one transaction together with the new checkpoint, so after a restart the job resumes with the first
+ * page it had not written. When the AI service is unavailable the pass stops without moving the checkpoint past the
+ * products it could not describe, and the next pass retries them; products the API rejects are skipped until the
+ * pass reaches the end of the catalog and the checkpoint starts over.
+ *
+ * Only one node runs a pass at a time: before starting, a node takes the lease on the checkpoint row, which expires
+ * unless it is renewed with every page written. Each checkpoint write is conditional on still holding the lease, so a
+ * node whose lease has been taken over (after a long pause, say) rolls its page back and stops instead of writing
+ * descriptions twice.
+ */
+@Service
+public class DescriptionBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DescriptionBackfillService.class);
+
+    static final String JOB_NAME = "description-backfill";
+
+    /**
+     * Thrown inside a page's transaction when the lease has been lost, rolling the page back.
+     */
+    private static class LeaseLostException extends RuntimeException {
+    }
+
+    private final ProductRepository productRepository;
+    private final OpenAiService openAiService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int pageSize;
+    private final int productsPerRequest;
+    private final long leaseSeconds;
+    private final ExecutorService workers;
+    private final String holder = UUID.randomUUID().toString();
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopping;
+    private final AtomicLong checkpoint = new AtomicLong();
+    private final AtomicLong remaining = new AtomicLong();
+
+    private final Counter generatedCounter;
+    private final Counter failedCounter;
+    private final Timer requestTimer;
+
+    /**
+     * Constructor for DescriptionBackfillService.
+     * @param productRepository repository used to find the products without a description and to write them back
+     * @param openAiService the OpenAI service generating the descriptions, resolved on first use
+     * @param eventPublisher publisher of the UPDATED events, sent when a page commits
+     * @param transactionTemplate template running the write of each page in its own transaction
+     * @param jdbcTemplate template used to read and write the checkpoint
+     * @param meterRegistry registry for the progress and throughput metrics
+     * @param enabled whether the scheduled passes run at all
+     * @param pageSize number of products read and written per page
+     * @param productsPerRequest number of products described by one request to the API
+     * @param parallelism number of requests to the API in flight at once
+     * @param leaseSeconds how long the lease on the job lasts without a page being written
+     */
+    public DescriptionBackfillService(ProductRepository productRepository, @Lazy OpenAiService openAiService,
+                                      ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate,
+                                      JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                      @Value("${store.products.description-backfill.enabled:false}") boolean enabled,
+                                      @Value("${store.products.description-backfill.page-size:100}") int pageSize,
+                                      @Value("${store.products.description-backfill.products-per-request:10}") int productsPerRequest,
+                                      @Value("${store.products.description-backfill.parallelism:2}") int parallelism,
+                                      @Value("${store.products.description-backfill.lease-seconds:600}") long leaseSeconds) {
+        this.productRepository = productRepository;
+        this.openAiService = openAiService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.pageSize = pageSize;
+        this.productsPerRequest = productsPerRequest;
+        this.leaseSeconds = leaseSeconds;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "description-backfill-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("products.description.backfill.checkpoint", checkpoint, AtomicLong::get)
+                .description("Highest product ID processed by the current pass")
+                .register(meterRegistry);
+        Gauge.builder("products.description.backfill.remaining", remaining, AtomicLong::get)
+                .description("Products without a description left in the current pass")
+                .register(meterRegistry);
+        generatedCounter = Counter.builder("products.description.backfill.generated")
+                .description("Descriptions generated and written")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("products.description.backfill.failed")
+                .description("Products whose description could not be generated")
+                .register(meterRegistry);
+        requestTimer = Timer.builder("products.description.backfill.request")
+                .description("Duration of one request to the AI service")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a pass if the job is enabled and no pass is running yet.
+     */
+    @Scheduled(fixedDelayString = "${store.products.description-backfill.interval-ms:3600000}",
+            initialDelayString = "${store.products.description-backfill.initial-delay-ms:60000}")
+    public void scheduledRun() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    /**
+     * Generates descriptions from the checkpoint on, until every product has been visited, the AI service becomes
+     * unavailable or the application shuts down. Does nothing while another node holds the job.
+     * @return the number of descriptions written
+     */
+    public int run() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        if (!acquireLease()) {
+            running.set(false);
+            logger.debug("Description backfill is running on another node");
+            return 0;
+        }
+        try {
+            long afterId = readCheckpoint();
+            checkpoint.set(afterId);
+            remaining.set(productRepository.countWithoutDescription(afterId));
+            logger.info("Description backfill starting after product {}, {} products without a description",
+                    afterId, remaining.get());
+            int written = 0;
+            while (!stopping) {
+                List<Object[]> page = productRepository.findIdsAndNamesWithoutDescription(afterId, PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    if (writeCheckpoint(0)) {  // Start over with the next pass, retrying the products that were skipped
+                        logger.info("Description backfill pass complete, {} descriptions written", written);
+                    }
+                    break;
+                }
+                PageResult result = process(page);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        write(result.descriptions());
+                        if (!writeCheckpoint(result.lastId())) {
+                            throw new LeaseLostException();
+                        }
+                    });
+                } catch (LeaseLostException e) {
+                    logger.warn("Description backfill stopped after product {}: another node took the job over", afterId);
+                    break;
+                }
+                written += result.descriptions().size();
+                generatedCounter.increment(result.descriptions().size());
+                remaining.addAndGet(-(result.descriptions().size() + result.failed()));
+                checkpoint.set(result.lastId());
+                if (result.unavailable()) {
+                    logger.warn("Description backfill paused after product {}: the AI service is unavailable", result.lastId());
+                    break;
+                }
+                afterId = result.lastId();
+            }
+            return written;
+        } finally {
+            releaseLease();
+            running.set(false);
+        }
+    }
+
+    /**
+     * Stops the current pass after its page and the worker threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        workers.shutdown();
+    }
+
+    /**
+     * The descriptions generated for a page, the last product ID the checkpoint may move to, and whether the
+     * AI service was unavailable for some of the products.
+     */
+    private record PageResult(Map<Long, String> descriptions, long lastId, int failed, boolean unavailable) {
+    }
+
+    private PageResult process(List<Object[]> page) {
+        List<List<Object[]>> requests = new ArrayList<>();
+        for (int from = 0; from < page.size(); from += productsPerRequest) {
+            requests.add(page.subList(from, Math.min(page.size(), from + productsPerRequest)));
+        }
+        List<Future<List<String>>> futures = new ArrayList<>(requests.size());
+        for (List<Object[]> request : requests) {
+            List<String> prompts = request.stream().map(row -> ProductService.descriptionPrompt((String) row[1])).toList();
+            futures.add(workers.submit(() -> requestTimer.recordCallable(() -> openAiService.generateTexts(prompts))));
+        }
+
+        Map<Long, String> descriptions = new HashMap<>();
+        long lastId = -1;
+        int failed = 0;
+        boolean unavailable = false;
+        for (int i = 0; i < requests.size(); i++) {
+            List<Object[]> request = requests.get(i);
+            try {
+                List<String> texts = futures.get(i).get();
+                for (int j = 0; j < request.size(); j++) {
+                    String text = texts.get(j);
+                    if (text == null || text.isEmpty()) {
+                        failed++;
+                    } else {
+                        descriptions.put((Long) request.get(j)[0], text);
+                    }
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof AiServiceUnavailableException) {
+                    unavailable = true;
+                } else {
+                    failed += request.size();
+                    logger.warn("Could not generate the descriptions of {} products", request.size(), e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopping = true;
+                unavailable = true;
+            }
+            if (!unavailable) {
+                // The checkpoint only covers the requests before the first one that could not reach the service
+                lastId = (Long) request.get(request.size() - 1)[0];
+            }
+        }
+        if (lastId < 0) {
+            lastId = checkpoint.get();
+        }
+        failedCounter.increment(failed);
+        return new PageResult(descriptions, lastId, failed, unavailable);
+    }
+
+    private void write(Map<Long, String> descriptions) {
+        if (descriptions.isEmpty()) {
+            return;
+        }
+        for (Product product : productRepository.findByIdIn(descriptions.keySet())) {
+            // A description may have been added since the page was read; it is kept.
+            if (product.getDescription() == null) {
+                product.setDescription(descriptions.get(product.getId()));
+                eventPublisher.publishEvent(ProductChangeEvent.of(ProductChangeType.UPDATED, product, product.getPrice()));
+            }
+        }
+        productRepository.flush();
+    }
+
+    private long readCheckpoint() {
+        List<Long> lastIds = jdbcTemplate.queryForList("SELECT last_id FROM job_checkpoint WHERE job_name = ?",
+                Long.class, JOB_NAME);
+        return lastIds.isEmpty() ? 0 : lastIds.get(0);
+    }
+
+    /**
+     * Moves the checkpoint and renews the lease, provided this node still holds it.
+     * @param lastId the new checkpoint
+     * @return whether this node still held the lease
+     */
+    private boolean writeCheckpoint(long lastId) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.update("UPDATE job_checkpoint SET last_id = ?, updated_at = ?, lease_expires_at = ? "
+                + "WHERE job_name = ? AND lease_holder = ?", lastId, now, now.plusSeconds(leaseSeconds), JOB_NAME, holder) == 1;
+    }
+
+    /**
+     * Takes the lease on the job if no other node holds it or its lease has expired, creating the checkpoint row on
+     * the first run.
+     * @return whether this node holds the lease
+     */
+    private boolean acquireLease() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusSeconds(leaseSeconds);
+        if (jdbcTemplate.update("UPDATE job_checkpoint SET lease_holder = ?, lease_expires_at = ? WHERE job_name = ? "
+                + "AND (lease_holder IS NULL OR lease_holder = ? OR lease_expires_at < ?)",
+                holder, expiresAt, JOB_NAME, holder, now) == 1) {
+            return true;
+        }
+        try {
+            return jdbcTemplate.update("INSERT INTO job_checkpoint (job_name, last_id, updated_at, lease_holder, lease_expires_at) "
+                    + "SELECT ?, 0, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM job_checkpoint WHERE job_name = ?)",
+                    JOB_NAME, now, holder, expiresAt, JOB_NAME) == 1;
+        } catch (DuplicateKeyException e) {
+            return false;  // Another node created the row first and holds the lease
+        }
+    }
+
+    private void releaseLease() {
+        jdbcTemplate.update("UPDATE job_checkpoint SET lease_holder = NULL, lease_expires_at = NULL "
+                + "WHERE job_name = ? AND lease_holder = ?", JOB_NAME, holder);
+    }
+}
@@ -0,0 +1,237 @@
+package ro.ing.api.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ro.ing.api.dto.HotProductDTO;
+import ro.ing.api.dto.HotProductWindowDTO;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks which products are read most, per access source, over sliding time windows and in constant memory.
+ *
+ * Time is cut into buckets of {@code store.products.hot.bucket-ms}. Each bucket counts accesses in a
+ * {@link CountMinSketch} and keeps a bounded set of heavy-hitter candidates: a product joins the set once its
+ * estimate exceeds that of the weakest candidate, which it then replaces. The candidates are kept in a min-heap by
+ * estimate, so the weakest one is found without scanning the set. A window is the union of its most recent buckets,
+ * so the longest configured window bounds the memory used. Recording an access is a few atomic additions; the
+ * candidate set is only locked when a product's estimate exceeds the admission threshold.
+ */
+@Service
+public class HotProductTracker {
+
+    /**
+     * Where an access comes from.
+     */
+    public enum Source {
+        LOOKUP,
+        SEARCH,
+        AI
+    }
+
+    /**
+     * Accesses of one source during one bucket of time.
+     */
+    private static final class Bucket {
+        private final Instant startedAt;
+        private final CountMinSketch sketch;
+        private final LongAdder total = new LongAdder();
+        private final Set<Long> candidates = ConcurrentHashMap.newKeySet();
+
+        /**
+         * The candidates by their estimate when last read, weakest first; guarded by the bucket's lock.
+         */
+        private final PriorityQueue<Candidate> byEstimate = new PriorityQueue<>(Comparator.comparingLong(Candidate::estimate));
+
+        /**
+         * Estimate of the weakest candidate, refreshed on every admission check; candidate estimates only grow, so it
+         * stays a lower bound in between.
+         */
+        private volatile long admissionThreshold;
+
+        Bucket(Instant startedAt, int sketchWidth) {
+            this.startedAt = startedAt;
+            this.sketch = new CountMinSketch(sketchWidth);
+        }
+
+        void record(long id, int capacity) {
+            total.increment();
+            long estimate = sketch.add(id, 1);
+            if (estimate > admissionThreshold && !candidates.contains(id)) {
+                admit(id, estimate, capacity);
+            }
+        }
+
+        private synchronized void admit(long id, long estimate, int capacity) {
+            if (candidates.contains(id)) {
+                return;
+            }
+            if (candidates.size() < capacity) {
+                candidates.add(id);
+                byEstimate.add(new Candidate(id, estimate));
+                if (candidates.size() == capacity) {
+                    admissionThreshold = weakestEstimate();
+                }
+                return;
+            }
+            if (estimate > weakestEstimate()) {
+                candidates.remove(byEstimate.poll().id());
+                candidates.add(id);
+                byEstimate.add(new Candidate(id, estimate));
+            }
+            admissionThreshold = weakestEstimate();
+        }
+
+        /**
+         * Brings the head of the heap up to date and returns its estimate. Estimates only grow, so once the head's
+         * recorded estimate is still current, no other candidate can be weaker.
+         */
+        private long weakestEstimate() {
+            while (true) {
+                Candidate weakest = byEstimate.peek();
+                long current = sketch.estimate(weakest.id());
+                if (current == weakest.estimate()) {
+                    return current;
+                }
+                byEstimate.poll();
+                byEstimate.add(new Candidate(weakest.id(), current));
+            }
+        }
+    }
+
+    private record Candidate(long id, long estimate) {
+    }
+
+    private final int sketchWidth;
+    private final int candidatesPerBucket;
+    private final int[] windowMinutes;
+    private final int[] windowBuckets;
+
+    /**
+     * Ring of buckets, one array of per-source buckets per slot; {@code head} is the slot being filled.
+     */
+    private final AtomicReferenceArray<Bucket[]> ring;
+    private volatile int head;
+    private volatile Bucket[] current;
+
+    /**
+     * Constructor for HotProductTracker.
+     * @param bucketMs length of one bucket of time
+     * @param windowMinutes lengths of the reported windows
+     * @param sketchWidth cells per row of each bucket's sketch
+     * @param candidatesPerBucket heavy-hitter candidates kept per bucket and source
+     */
+    public HotProductTracker(@Value("${store.products.hot.bucket-ms:60000}") long bucketMs,
+                             @Value("${store.products.hot.windows-minutes:1,5,15}") int[] windowMinutes,
+                             @Value("${store.products.hot.sketch-width:1024}") int sketchWidth,
+                             @Value("${store.products.hot.candidates:100}") int candidatesPerBucket) {
+        this.sketchWidth = sketchWidth;
+        this.candidatesPerBucket = candidatesPerBucket;
+        this.windowMinutes = windowMinutes.clone();
+        this.windowBuckets = new int[windowMinutes.length];
+        int slots = 1;
+        for (int i = 0; i < windowMinutes.length; i++) {
+            windowBuckets[i] = (int) Math.max(1, Math.ceil(windowMinutes[i] * 60_000.0 / bucketMs));
+            slots = Math.max(slots, windowBuckets[i]);
+        }
+        this.ring = new AtomicReferenceArray<>(slots);
+        this.current = newBuckets();
+        this.ring.set(0, current);
+    }
+
+    /**
+     * Counts one access to a product.
+     * @param id the ID of the accessed product
+     * @param source where the access comes from
+     */
+    public void record(Long id, Source source) {
+        if (id != null) {
+            current[source.ordinal()].record(id, candidatesPerBucket);
+        }
+    }
+
+    /**
+     * Starts a new bucket, dropping the oldest one once the longest window is full.
+     */
+    @Scheduled(fixedRateString = "${store.products.hot.bucket-ms:60000}",
+            initialDelayString = "${store.products.hot.bucket-ms:60000}")
+    public synchronized void rotate() {
+        Bucket[] next = newBuckets();
+        int nextHead = (head + 1) % ring.length();
+        ring.set(nextHead, next);
+        head = nextHead;
+        current = next;
+    }
+
+    /**
+     * Returns the most accessed products of every configured window.
+     * @param source only count accesses from this source, or null for all sources
+     * @param limit the maximum number of products per window
+     * @return one entry per window, shortest first
+     */
+    public List<HotProductWindowDTO> findHotProducts(Source source, int limit) {
+        int newest = head;
+        List<HotProductWindowDTO> windows = new ArrayList<>(windowMinutes.length);
+        for (int w = 0; w < windowMinutes.length; w++) {
+            List<Bucket> buckets = new ArrayList<>();
+            for (int i = 0; i < windowBuckets[w]; i++) {
+                Bucket[] slot = ring.get(Math.floorMod(newest - i, ring.length()));
+                if (slot == null) {
+                    break;
+                }
+                for (Source each : Source.values()) {
+                    if (source == null || source == each) {
+                        buckets.add(slot[each.ordinal()]);
+                    }
+                }
+            }
+            windows.add(window(windowMinutes[w] + "m", buckets, limit));
+        }
+        return windows;
+    }
+
+    private HotProductWindowDTO window(String name, List<Bucket> buckets, int limit) {
+        Set<Long> ids = new HashSet<>();
+        Instant from = Instant.now();
+        long total = 0;
+        long maxOverestimate = 0;
+        for (Bucket bucket : buckets) {
+            ids.addAll(bucket.candidates);
+            from = bucket.startedAt.isBefore(from) ? bucket.startedAt : from;
+            long bucketTotal = bucket.total.sum();
+            total += bucketTotal;
+            maxOverestimate += (long) Math.ceil(Math.E * bucketTotal / bucket.sketch.getWidth());
+        }
+        List<HotProductDTO> products = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            long estimate = 0;
+            for (Bucket bucket : buckets) {
+                estimate += bucket.sketch.estimate(id);
+            }
+            products.add(new HotProductDTO(id, estimate));
+        }
+        products.sort(Comparator.comparingLong(HotProductDTO::getEstimatedAccesses).reversed()
+                .thenComparing(HotProductDTO::getId));
+        return new HotProductWindowDTO(name, from, total, maxOverestimate,
+                products.subList(0, Math.min(limit, products.size())));
+    }
+
+    private Bucket[] newBuckets() {
+        Instant now = Instant.now();
+        Bucket[] buckets = new Bucket[Source.values().length];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket(now, sketchWidth);
+        }
+        return buckets;
+    }
+}
@@ -4,36 +4,105 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import ro.ing.api.exception.AiServiceUnavailableException;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Calls the OpenAI completions API.
+ *
+ * One HTTP client is shared by all calls, so connections are reused (multiplexed over HTTP/2 where the server
+ * supports it). Every attempt is bounded by the connect and request timeouts; timeouts, connection errors, 429 and
+ * 5xx responses are retried with exponential backoff and full jitter. A {@link CircuitBreaker} fails calls fast while
+ * the API keeps failing, and a bulkhead caps the calls in flight so a slow API cannot hold every request thread.
+ * Calls that cannot be served end in an {@link AiServiceUnavailableException}.
+ *
+ * {@link #streamText(String)} uses the streaming mode of the API and relays each token as soon as its event arrives.
+ */
 @Service
+@Lazy  // Created on the first AI call rather than during startup
 public class OpenAiService {
 
-    private static final String API_URL = "https://api.openai.com/v1/completions";
     private static final Logger logger = Logger.getLogger(OpenAiService.class.getName());
 
     private final String apiKey;
+    private final String apiUrl;
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final Duration requestTimeout;
+    private final Duration streamIdleTimeout;
+    private final int maxAttempts;
+    private final long backoffInitialMs;
+    private final long backoffMaxMs;
+    private final Semaphore bulkhead;
+    private final long bulkheadWaitMs;
+    private final CircuitBreaker circuitBreaker;
 
     /**
-     * Constructor for OpenAiService, injecting the API key from application properties.
+     * Constructor for OpenAiService, injecting the API key, endpoint and client settings from application properties.
      * @param apiKey the OpenAI API key for authorization
+     * @param apiUrl the completions endpoint, overridable to point at a local stub server
+     * @param connectTimeoutMs the maximum time to establish a connection
+     * @param requestTimeoutMs the maximum time of one attempt, from sending the request to receiving the response
+     * @param maxAttempts the number of attempts per call, including the first one
+     * @param backoffInitialMs the upper bound of the pause before the first retry; it doubles with every retry
+     * @param backoffMaxMs the highest upper bound of a pause between attempts
+     * @param maxConcurrent the maximum number of calls in flight
+     * @param bulkheadWaitMs how long a call waits for a free slot before failing
+     * @param failureThreshold the number of consecutive failed attempts that opens the circuit breaker
+     * @param openMs how long the open circuit breaker fails calls before letting a trial call through
+     * @param streamIdleTimeoutMs the maximum time a streamed call waits for its next token, the first one included
      */
-    public OpenAiService(@Value("${openai.api.key}") String apiKey) {
+    public OpenAiService(@Value("${openai.api.key}") String apiKey,
+                         @Value("${openai.api.url:https://api.openai.com/v1/completions}") String apiUrl,
+                         @Value("${openai.client.connect-timeout-ms:2000}") long connectTimeoutMs,
+                         @Value("${openai.client.request-timeout-ms:15000}") long requestTimeoutMs,
+                         @Value("${openai.client.max-attempts:3}") int maxAttempts,
+                         @Value("${openai.client.backoff-initial-ms:200}") long backoffInitialMs,
+                         @Value("${openai.client.backoff-max-ms:2000}") long backoffMaxMs,
+                         @Value("${openai.client.max-concurrent:16}") int maxConcurrent,
+                         @Value("${openai.client.bulkhead-wait-ms:100}") long bulkheadWaitMs,
+                         @Value("${openai.client.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                         @Value("${openai.client.circuit-breaker.open-ms:30000}") long openMs,
+                         @Value("${openai.client.stream-idle-timeout-ms:10000}") long streamIdleTimeoutMs) {
         this.apiKey = apiKey;
-        this.httpClient = HttpClient.newHttpClient();
+        this.apiUrl = apiUrl;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
         this.objectMapper = new ObjectMapper();
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.streamIdleTimeout = Duration.ofMillis(streamIdleTimeoutMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffInitialMs = backoffInitialMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.bulkheadWaitMs = bulkheadWaitMs;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, TimeUnit.MILLISECONDS.toNanos(openMs));
         logger.log(Level.INFO, "OpenAiService initialized with API key present: {0}", apiKey != null);
     }
 
@@ -49,10 +118,11 @@ public class OpenAiService {
     /**
      * Sends a request to the OpenAI API to generate text based on a provided prompt.
      * @param prompt the prompt to send to OpenAI for generating a response
-     * @return the generated text response from OpenAI, or an error message if the request fails
+     * @return the generated text response from OpenAI, or an error message if the API rejects the request
+     * @throws AiServiceUnavailableException if the API is not reachable, keeps failing or too many calls are in flight
      */
     public String generateText(String prompt) {
-        logger.log(Level.INFO, "Preparing request to OpenAI for prompt: {0}", prompt);
+        logger.log(Level.FINE, "Preparing request to OpenAI for prompt: {0}", prompt);
 
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("model", "gpt-3.5-turbo");  // Set to an accessible model
@@ -60,20 +130,7 @@ public class OpenAiService {
         requestBody.put("max_tokens", 100);
 
         try {
-            String requestBodyJson = objectMapper.writeValueAsString(requestBody);
-            logger.log(Level.INFO, "Serialized request body for OpenAI: {0}", requestBodyJson);
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(API_URL))
-                    .header("Authorization", "Bearer " + apiKey)
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBodyJson))
-                    .build();
-
-            logger.log(Level.INFO, "Sending request to OpenAI API...");
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            logger.log(Level.INFO, "Received response from OpenAI API: {0}", response.body());
-
+            HttpResponse<String> response = send(requestBody);
             JsonNode responseJson = objectMapper.readTree(response.body());
 
             // Check if there's an error field in the response
@@ -86,16 +143,16 @@ public class OpenAiService {
             // Extract the generated text from a successful response
             if (responseJson.has("choices") && responseJson.path("choices").has(0)) {
                 String generatedText = responseJson.path("choices").get(0).path("text").asText().trim();
-                logger.log(Level.INFO, "Generated text from OpenAI: {0}", generatedText);
+                logger.log(Level.FINE, "Generated text from OpenAI: {0}", generatedText);
                 return generatedText;
             } else {
-                logger.log(Level.SEVERE, "Unexpected response format from OpenAI API: {0}", response.body());
+                logger.log(Level.SEVERE, "Unexpected response format from OpenAI API (status {0})", response.statusCode());
                 return "Unexpected response format from OpenAI API";
             }
 
         } catch (IOException e) {
-            logger.log(Level.SEVERE, "IOException occurred while generating text with OpenAI API", e);
-            return "Error generating text due to network issue";
+            logger.log(Level.SEVERE, "Could not read the response of the OpenAI API", e);
+            return "Unexpected response format from OpenAI API";
 
         } catch (InterruptedException e) {
             logger.log(Level.SEVERE, "Request was interrupted while generating text with OpenAI API", e);
@@ -103,4 +160,287 @@ public class OpenAiService {
             return "Request was interrupted";
         }
     }
+
+    /**
+     * Generates the texts for several prompts with a single request, passing the prompts as an array.
+     * @param prompts the prompts, each answered with one completion
+     * @return the generated texts, in the order of the prompts; null for a prompt the API returned no choice for
+     * @throws AiServiceUnavailableException if the API is not reachable, keeps failing or too many calls are in flight
+     * @throws IllegalStateException if the API rejects the request or answers in an unexpected format
+     */
+    public List<String> generateTexts(List<String> prompts) {
+        logger.log(Level.FINE, "Preparing request to OpenAI for {0} prompts", prompts.size());
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", "gpt-3.5-turbo");
+        requestBody.put("prompt", prompts);
+        requestBody.put("max_tokens", 100);  // Per prompt
+
+        try {
+            JsonNode responseJson = objectMapper.readTree(send(requestBody).body());
+            if (responseJson.has("error")) {
+                throw new IllegalStateException("Error from OpenAI API: " + responseJson.path("error").path("message").asText());
+            }
+            String[] texts = new String[prompts.size()];
+            JsonNode choices = responseJson.path("choices");
+            for (int i = 0; i < choices.size(); i++) {
+                JsonNode choice = choices.get(i);
+                int index = choice.path("index").asInt(i);
+                if (index >= 0 && index < texts.length) {
+                    texts[index] = choice.path("text").asText().trim();
+                }
+            }
+            return Arrays.asList(texts);
+
+        } catch (IOException e) {
+            throw new IllegalStateException("Unexpected response format from OpenAI API", e);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AiServiceUnavailableException("Request was interrupted", 1);
+        }
+    }
+
+    /**
+     * Streams the text generated for a prompt, token by token, using the streaming mode of the OpenAI API.
+     *
+     * The call is admitted by the bulkhead and the circuit breaker before this method returns, and holds its bulkhead
+     * slot until the returned Flux terminates, so the Flux must be subscribed. It is not retried: a retry after the
+     * first token would repeat text the subscriber already has. Cancelling the subscription aborts the upstream
+     * response, which stops the generation. A stream that goes quiet for longer than the idle timeout is aborted the
+     * same way, so a stalled generation does not keep its bulkhead slot.
+     * @param prompt the prompt to send to OpenAI
+     * @return the generated tokens, in order; fails with an {@link AiServiceUnavailableException} if the API answers
+     *         429 or 5xx, cannot be reached or stalls, and with an IllegalStateException if it rejects the request
+     * @throws AiServiceUnavailableException if the circuit breaker is open or too many calls are in flight
+     */
+    public Flux<String> streamText(String prompt) {
+        logger.log(Level.FINE, "Preparing streaming request to OpenAI for prompt: {0}", prompt);
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", "gpt-3.5-turbo");
+        requestBody.put("prompt", prompt);
+        requestBody.put("max_tokens", 100);
+        requestBody.put("stream", true);
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder()
+                    .uri(URI.create(apiUrl))
+                    .timeout(requestTimeout)  // Bounds the wait for the response headers, not the whole stream
+                    .header("Authorization", "Bearer " + apiKey)
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "text/event-stream")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(requestBody)))
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            if (!bulkhead.tryAcquire(bulkheadWaitMs, TimeUnit.MILLISECONDS)) {
+                logger.log(Level.WARNING, "Rejected OpenAI streaming request: too many requests in flight");
+                throw new AiServiceUnavailableException("Too many AI requests in progress", 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AiServiceUnavailableException("Request was interrupted", 1);
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            bulkhead.release();
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(circuitBreaker.getRemainingOpenNanos()) + 1);
+            throw new AiServiceUnavailableException("The AI service is temporarily unavailable", retryAfter);
+        }
+        return Flux.<String>create(sink -> stream(request, sink))
+                .timeout(streamIdleTimeout)
+                .onErrorMap(TimeoutException.class, e -> {
+                    logger.log(Level.WARNING, "OpenAI stream sent no token for {0} ms", streamIdleTimeout.toMillis());
+                    return new AiServiceUnavailableException("The AI service stopped responding", 1);
+                })
+                .doFinally(signal -> bulkhead.release());
+    }
+
+    /**
+     * Returns the state of the circuit breaker guarding the API.
+     * @return the circuit breaker state
+     */
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker.getState();
+    }
+
+    private HttpResponse<String> send(Map<String, Object> requestBody) throws IOException, InterruptedException {
+        String requestBodyJson = objectMapper.writeValueAsString(requestBody);
+        logger.log(Level.FINE, "Serialized request body for OpenAI: {0}", requestBodyJson);
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(apiUrl))
+                .timeout(requestTimeout)
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(requestBodyJson))
+                .build();
+
+        if (!bulkhead.tryAcquire(bulkheadWaitMs, TimeUnit.MILLISECONDS)) {
+            logger.log(Level.WARNING, "Rejected OpenAI request: too many requests in flight");
+            throw new AiServiceUnavailableException("Too many AI requests in progress", 1);
+        }
+        try {
+            HttpResponse<String> response = sendWithRetries(request);
+            logger.log(Level.FINE, "Received response from OpenAI API: {0}", response.body());
+            return response;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private HttpResponse<String> sendWithRetries(HttpRequest request) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            if (!circuitBreaker.tryAcquire()) {
+                long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(circuitBreaker.getRemainingOpenNanos()) + 1);
+                throw new AiServiceUnavailableException("The AI service is temporarily unavailable", retryAfter);
+            }
+            String failure;
+            try {
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                if (!isRetryable(response.statusCode())) {
+                    circuitBreaker.onSuccess();
+                    return response;
+                }
+                failure = "status " + response.statusCode();
+            } catch (IOException e) {
+                // Connection errors and HttpTimeoutException, raised when an attempt exceeds the request timeout
+                failure = e.toString();
+            }
+            circuitBreaker.onFailure();
+            if (attempt >= maxAttempts) {
+                logger.log(Level.WARNING, "OpenAI request failed after {0} attempts, last with {1}",
+                        new Object[]{attempt, failure});
+                throw new AiServiceUnavailableException("The AI service did not respond", 1);
+            }
+            long backoffMs = backoffMs(attempt);
+            logger.log(Level.WARNING, "OpenAI request attempt {0} failed with {1}; retrying in {2} ms",
+                    new Object[]{attempt, failure, backoffMs});
+            Thread.sleep(backoffMs);
+        }
+    }
+
+    private void stream(HttpRequest request, FluxSink<String> sink) {
+        TokenSubscriber tokens = new TokenSubscriber(sink);
+        // The outcome reported to the circuit breaker is decided by the response status, or by the failure before it
+        AtomicBoolean reported = new AtomicBoolean();
+        CompletableFuture<HttpResponse<Void>> response = httpClient.sendAsync(request, responseInfo -> {
+            reported.set(true);
+            if (responseInfo.statusCode() == 200) {
+                circuitBreaker.onSuccess();
+                return HttpResponse.BodySubscribers.fromLineSubscriber(tokens);
+            }
+            if (isRetryable(responseInfo.statusCode())) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            return HttpResponse.BodySubscribers.replacing(null);
+        });
+        response.whenComplete((completed, error) -> {
+            if (sink.isCancelled()) {
+                return;
+            }
+            if (error != null) {
+                if (reported.compareAndSet(false, true)) {
+                    circuitBreaker.onFailure();
+                }
+                logger.log(Level.WARNING, "OpenAI streaming request failed with {0}", error.toString());
+                sink.error(new AiServiceUnavailableException("The AI service did not respond", 1));
+            } else if (completed.statusCode() != 200) {
+                logger.log(Level.WARNING, "OpenAI streaming request failed with status {0}", completed.statusCode());
+                sink.error(isRetryable(completed.statusCode())
+                        ? new AiServiceUnavailableException("The AI service did not respond", 1)
+                        : new IllegalStateException("Error from OpenAI API: status " + completed.statusCode()));
+            }
+        });
+        sink.onCancel(() -> {
+            response.cancel(true);
+            tokens.cancel();
+        });
+    }
+
+    /**
+     * Reads the server-sent events of a streamed completion and passes the text of each one to the sink.
+     */
+    private final class TokenSubscriber implements Flow.Subscriber<String> {
+
+        private final FluxSink<String> sink;
+        private volatile Flow.Subscription subscription;
+        private volatile boolean cancelled;
+
+        TokenSubscriber(FluxSink<String> sink) {
+            this.sink = sink;
+        }
+
+        void cancel() {
+            cancelled = true;
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (cancelled) {
+                subscription.cancel();
+            } else {
+                // Completions are bounded by max_tokens; the sink buffers what the client has not read yet
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (!line.startsWith("data:")) {
+                return;  // Blank separators, comments and event names
+            }
+            String data = line.substring(5).trim();
+            if ("[DONE]".equals(data)) {
+                sink.complete();
+                return;
+            }
+            try {
+                JsonNode event = objectMapper.readTree(data);
+                if (event.has("error")) {
+                    sink.error(new IllegalStateException("Error from OpenAI API: " + event.path("error").path("message").asText()));
+                    return;
+                }
+                String text = event.path("choices").path(0).path("text").asText("");
+                if (!text.isEmpty()) {
+                    sink.next(text);
+                }
+            } catch (IOException e) {
+                sink.error(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            sink.error(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            sink.complete();
+        }
+    }
+
+    private static boolean isRetryable(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
+    }
+
+    /**
+     * Full jitter: a uniformly random pause up to an exponentially growing bound, so callers that failed together
+     * do not retry together.
+     */
+    private long backoffMs(int attempt) {
+        long bound = Math.min(backoffMaxMs, backoffInitialMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
 }
@@ -0,0 +1,247 @@
+package ro.ing.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ro.ing.api.dto.PriceIntervalDTO;
+import ro.ing.api.dto.PricePointDTO;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.event.ProductChangeType;
+import ro.ing.api.exception.InvalidProductDataException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only history of product prices.
+ *
+ * Every committed price change is queued by an event listener and written in JDBC batches by a scheduled flush,
+ * so recording history adds no work to the request's transaction. The queue is held in memory: changes committed
+ * within the last flush interval are lost if the process dies before the next flush (a graceful shutdown flushes
+ * them), so the history is a best-effort record, not an audit log. The queue is bounded: while the database cannot
+ * keep up, changes beyond {@code max-pending} are dropped and counted. Rows are never updated or deleted, and they
+ * outlive their product.
+ *
+ * The table is created by the {@code V6__create_price_history} migration; on PostgreSQL it is range-partitioned by
+ * month on {@code changed_at}, and this service creates the monthly partitions ahead of time. The
+ * (product_id, changed_at) index together with partition pruning lets a product's series over a time range be read
+ * without touching the rest of the history.
+ */
+@Service
+public class PriceHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceHistoryService.class);
+
+    private static final String TABLE = "product_price_history";
+
+    /**
+     * Interval lengths offered for downsampling, mapped to their {@code date_trunc} unit.
+     */
+    public enum Interval {
+        MINUTE, HOUR, DAY, WEEK, MONTH;
+
+        /**
+         * Parses an interval name, case-insensitively.
+         * @param name the interval name, e.g. {@code day}
+         * @return the matching interval
+         * @throws InvalidProductDataException if the name is unknown
+         */
+        public static Interval parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidProductDataException("Unknown interval '" + name + "'. Valid intervals: minute, hour, day, week, month.");
+            }
+        }
+    }
+
+    private record PendingChange(Long productId, LocalDateTime changedAt, BigDecimal oldPrice, BigDecimal newPrice) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Queue<PendingChange> pending = new ConcurrentLinkedQueue<>();
+    // Size of the queue, which ConcurrentLinkedQueue can only count by walking it
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong droppedSinceFlush = new AtomicLong();
+    private final Counter droppedCounter;
+    private boolean partitioned;
+
+    @Value("${store.products.price-history.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${store.products.price-history.partition-months-ahead:3}")
+    private int partitionMonthsAhead = 3;
+
+    @Value("${store.products.price-history.max-points:10000}")
+    private int maxPoints = 10000;
+
+    @Value("${store.products.price-history.max-pending:100000}")
+    private int maxPending = 100000;
+
+    public PriceHistoryService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        Gauge.builder("products.price.history.pending", pendingCount, AtomicInteger::get)
+                .description("Price changes queued for the price history")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("products.price.history.dropped")
+                .description("Price changes not recorded because the queue was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * On PostgreSQL, creates the monthly partitions that do not exist yet.
+     */
+    @PostConstruct
+    public void init() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        partitioned = "PostgreSQL".equalsIgnoreCase(database);
+        createPartitions();
+    }
+
+    /**
+     * Makes sure the partitions for the current month and the configured number of following months exist.
+     */
+    @Scheduled(cron = "${store.products.price-history.partition-cron:0 0 2 * * *}")
+    public void createPartitions() {
+        if (!partitioned) {
+            return;
+        }
+        YearMonth month = YearMonth.now();
+        for (int i = 0; i <= partitionMonthsAhead; i++, month = month.plusMonths(1)) {
+            String partition = String.format(Locale.ROOT, "%s_%d_%02d", TABLE, month.getYear(), month.getMonthValue());
+            try {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + TABLE
+                        + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+            } catch (RuntimeException e) {
+                // Fails when the default partition already holds rows of that month; they stay readable there.
+                logger.warn("Could not create price history partition {}", partition, e);
+            }
+        }
+    }
+
+    /**
+     * Queues a committed price change for the next batch, or drops it when the queue is full.
+     * @param event the committed product change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        if (event.getType() == ProductChangeType.DELETED || event.getPrice() == null) {
+            return;
+        }
+        BigDecimal oldPrice = event.getPreviousPrice();
+        if (event.getType() != ProductChangeType.CREATED && oldPrice != null && oldPrice.compareTo(event.getPrice()) == 0) {
+            return;
+        }
+        if (pendingCount.incrementAndGet() > maxPending) {
+            pendingCount.decrementAndGet();
+            droppedCounter.increment();
+            droppedSinceFlush.incrementAndGet();
+            return;
+        }
+        pending.add(new PendingChange(event.getProductId(), event.getOccurredAt(), oldPrice, event.getPrice()));
+    }
+
+    /**
+     * Writes the queued price changes in batches.
+     */
+    @Scheduled(fixedDelayString = "${store.products.price-history.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        long dropped = droppedSinceFlush.getAndSet(0);
+        if (dropped > 0) {
+            logger.warn("Dropped {} price history rows since the last flush: more than {} were queued", dropped, maxPending);
+        }
+        while (!pending.isEmpty()) {
+            List<PendingChange> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            PendingChange change;
+            while (batch.size() < batchSize && (change = pending.poll()) != null) {
+                batch.add(change);
+            }
+            pendingCount.addAndGet(-batch.size());
+            try {
+                jdbcTemplate.batchUpdate("INSERT INTO " + TABLE + " (product_id, changed_at, old_price, new_price) VALUES (?, ?, ?, ?)",
+                        batch, batch.size(), (statement, row) -> {
+                            statement.setLong(1, row.productId());
+                            statement.setTimestamp(2, Timestamp.valueOf(row.changedAt()));
+                            statement.setBigDecimal(3, row.oldPrice());
+                            statement.setBigDecimal(4, row.newPrice());
+                        });
+            } catch (RuntimeException e) {
+                pending.addAll(batch);
+                pendingCount.addAndGet(batch.size());
+                logger.error("Writing {} price history rows failed, retrying on the next flush", batch.size(), e);
+                return;
+            }
+            logger.debug("Wrote {} price history rows", batch.size());
+        }
+    }
+
+    /**
+     * Writes the remaining queued price changes before the application context closes.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Returns the recorded price changes of a product within a time range, newest first.
+     * @param productId the ID of the product
+     * @param from inclusive start of the range
+     * @param to exclusive end of the range
+     * @return the latest price changes, at most the configured maximum number of them; when the limit is reached,
+     *         the older ones are read by repeating the call with {@code to} set to the last returned change
+     */
+    public List<PricePointDTO> getPriceSeries(Long productId, LocalDateTime from, LocalDateTime to) {
+        validateRange(from, to);
+        return jdbcTemplate.query("SELECT changed_at, old_price, new_price FROM " + TABLE
+                        + " WHERE product_id = ? AND changed_at >= ? AND changed_at < ? ORDER BY changed_at DESC FETCH FIRST " + maxPoints + " ROWS ONLY",
+                (rs, rowNum) -> new PricePointDTO(rs.getTimestamp(1).toLocalDateTime(), rs.getBigDecimal(2), rs.getBigDecimal(3)),
+                productId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * Returns the price changes of a product within a time range, aggregated per interval by the database.
+     * Intervals without changes are omitted.
+     * @param productId the ID of the product
+     * @param from inclusive start of the range
+     * @param to exclusive end of the range
+     * @param interval the length of the aggregation intervals
+     * @return the minimum, maximum and average price and the number of changes of each interval, oldest first
+     */
+    public List<PriceIntervalDTO> getDownsampledPrices(Long productId, LocalDateTime from, LocalDateTime to, Interval interval) {
+        validateRange(from, to);
+        String bucket = "DATE_TRUNC('" + interval.name().toLowerCase(Locale.ROOT) + "', changed_at)";
+        return jdbcTemplate.query("SELECT " + bucket + " AS interval_start, MIN(new_price), MAX(new_price), AVG(new_price), COUNT(*) FROM "
+                        + TABLE + " WHERE product_id = ? AND changed_at >= ? AND changed_at < ? GROUP BY " + bucket + " ORDER BY interval_start",
+                (rs, rowNum) -> new PriceIntervalDTO(rs.getTimestamp(1).toLocalDateTime(), rs.getBigDecimal(2), rs.getBigDecimal(3),
+                        rs.getBigDecimal(4).setScale(2, RoundingMode.HALF_UP), rs.getLong(5)),
+                productId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    private static void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new InvalidProductDataException("The start of the range must be before its end.");
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package ro.ing.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ro.ing.api.entity.Product;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.event.ProductChangeType;
+import ro.ing.api.exception.InvalidProductDataException;
+import ro.ing.api.repository.ProductRepository;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional write-behind buffer for price updates.
+ *
+ * Price changes are kept per product, the last write winning, and written in one transaction per flush:
+ * the affected products are loaded with a single {@code IN} query and their UPDATEs are sent as a JDBC batch.
+ * A flush runs every interval, as soon as the buffer reaches the size threshold, and once more on shutdown.
+ * Until then readers still see the previous price, so the mode is disabled by default.
+ */
+@Service
+public class PriceWriteBehindBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceWriteBehindBuffer.class);
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int flushThreshold;
+
+    private final Map<Long, PendingPrice> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ExecutorService thresholdFlusher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "price-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Set while a threshold flush is queued, so a full buffer does not queue one task per submit.
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final Counter coalescedCounter;
+    private final Counter droppedCounter;
+    private final Counter failedFlushCounter;
+    private final DistributionSummary flushSize;
+    private final Timer flushTimer;
+
+    /**
+     * A buffered price together with the moment the oldest write it replaces was accepted.
+     */
+    private record PendingPrice(BigDecimal price, long firstSubmittedNanos) {
+    }
+
+    /**
+     * Constructor for PriceWriteBehindBuffer.
+     * @param productRepository repository used to load and update the buffered products
+     * @param transactionTemplate template running each flush in its own transaction
+     * @param eventPublisher publisher of the PRICE_CHANGED events, sent when a flush commits
+     * @param meterRegistry registry for the lag and flush metrics
+     * @param enabled whether price updates are buffered at all
+     * @param flushThreshold number of buffered products that triggers an immediate flush
+     */
+    public PriceWriteBehindBuffer(ProductRepository productRepository, TransactionTemplate transactionTemplate,
+                                  ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                                  @Value("${store.products.price-write-behind.enabled:false}") boolean enabled,
+                                  @Value("${store.products.price-write-behind.flush-threshold:500}") int flushThreshold) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.flushThreshold = flushThreshold;
+
+        Gauge.builder("products.price.buffer.pending", pending, Map::size)
+                .description("Products with a buffered price update")
+                .register(meterRegistry);
+        TimeGauge.builder("products.price.buffer.lag", this, TimeUnit.NANOSECONDS, PriceWriteBehindBuffer::lagNanos)
+                .description("Age of the oldest buffered price update")
+                .register(meterRegistry);
+        coalescedCounter = Counter.builder("products.price.buffer.coalesced")
+                .description("Price updates overwritten by a later update before being flushed")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("products.price.buffer.dropped")
+                .description("Buffered price updates for products that no longer existed at flush time")
+                .register(meterRegistry);
+        failedFlushCounter = Counter.builder("products.price.buffer.flush.failures")
+                .description("Flushes that failed and were retried")
+                .register(meterRegistry);
+        flushSize = DistributionSummary.builder("products.price.buffer.flush.size")
+                .description("Products updated per flush")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("products.price.buffer.flush")
+                .description("Duration of a flush")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Buffers a price update, replacing any update still pending for the same product.
+     * @param id the ID of the product
+     * @param newPrice the new price
+     * @throws InvalidProductDataException if the price is missing or negative
+     */
+    public void submit(Long id, BigDecimal newPrice) {
+        if (newPrice == null || newPrice.compareTo(BigDecimal.ZERO) < 0) {
+            throw new InvalidProductDataException("Price cannot be empty or negative.");
+        }
+        PendingPrice update = new PendingPrice(newPrice, System.nanoTime());
+        pending.merge(id, update, (existing, next) -> {
+            coalescedCounter.increment();
+            return new PendingPrice(next.price(), existing.firstSubmittedNanos());
+        });
+        if (pending.size() >= flushThreshold && flushScheduled.compareAndSet(false, true)) {
+            thresholdFlusher.execute(this::flushIfIdle);
+        }
+    }
+
+    /**
+     * Writes every buffered price update.
+     */
+    @Scheduled(fixedDelayString = "${store.products.price-write-behind.flush-interval-ms:200}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the remaining buffered updates before the application context closes.
+     */
+    @PreDestroy
+    public void shutdown() {
+        thresholdFlusher.shutdown();
+        flush();
+        if (!pending.isEmpty()) {
+            logger.error("{} buffered price updates could not be written on shutdown", pending.size());
+        }
+    }
+
+    private void flushIfIdle() {
+        // Cleared before flushing, so updates arriving during this flush can queue the next one.
+        flushScheduled.set(false);
+        if (flushLock.tryLock()) {
+            try {
+                flushPending();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    private void flushPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Long, PendingPrice> batch = new HashMap<>();
+        for (Long id : pending.keySet()) {
+            PendingPrice update = pending.remove(id);
+            if (update != null) {
+                batch.put(id, update);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            Integer updated = transactionTemplate.execute(status -> write(batch));
+            int written = updated == null ? 0 : updated;
+            droppedCounter.increment(batch.size() - written);
+            flushSize.record(written);
+            logger.debug("Flushed {} buffered price updates", written);
+        } catch (RuntimeException e) {
+            failedFlushCounter.increment();
+            // Keep the failed updates unless a newer price arrived for the same product in the meantime.
+            batch.forEach(pending::putIfAbsent);
+            logger.error("Flushing {} buffered price updates failed, retrying on the next flush", batch.size(), e);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private int write(Map<Long, PendingPrice> batch) {
+        List<Product> products = productRepository.findAllById(batch.keySet());
+        for (Product product : products) {
+            BigDecimal previousPrice = product.getPrice();
+            product.setPrice(batch.get(product.getId()).price());
+            eventPublisher.publishEvent(ProductChangeEvent.of(ProductChangeType.PRICE_CHANGED, product, previousPrice));
+        }
+        productRepository.flush();
+        return products.size();
+    }
+
+    private double lagNanos() {
+        long now = System.nanoTime();
+        long oldest = now;
+        for (PendingPrice update : pending.values()) {
+            oldest = Math.min(oldest, update.firstSubmittedNanos());
+        }
+        return now - oldest;
+    }
+}
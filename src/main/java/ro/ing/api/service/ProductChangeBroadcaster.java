@@ -0,0 +1,98 @@
+package ro.ing.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.event.ProductChangeType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams product deltas to STOMP subscribers of {@code /topic/products}.
+ *
+ * Events are only accepted after the publishing transaction commits. Changes to the same product
+ * arriving within one coalescing window are merged, so subscribers receive at most one delta per
+ * product per window instead of every intermediate write.
+ */
+@Service
+public class ProductChangeBroadcaster {
+
+    public static final String PRODUCTS_TOPIC = "/topic/products";
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductChangeBroadcaster.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Map<Long, ProductChangeEvent> pending = new ConcurrentHashMap<>();
+
+    public ProductChangeBroadcaster(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    /**
+     * Queues a committed product change, merging it with any change already pending for the same product.
+     * @param event the committed product change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        if (event.getProductId() == null) {
+            return;
+        }
+        pending.compute(event.getProductId(), (id, existing) -> coalesce(existing, event));
+    }
+
+    /**
+     * Publishes every pending delta once per coalescing window.
+     */
+    @Scheduled(fixedDelayString = "${store.products.events.coalesce-window-ms:250}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<ProductChangeEvent> batch = new ArrayList<>(pending.size());
+        for (Long id : pending.keySet()) {
+            ProductChangeEvent event = pending.remove(id);
+            if (event != null) {
+                batch.add(event);
+            }
+        }
+        for (ProductChangeEvent event : batch) {
+            messagingTemplate.convertAndSend(PRODUCTS_TOPIC, event);
+        }
+        logger.debug("Published {} product deltas to {}", batch.size(), PRODUCTS_TOPIC);
+    }
+
+    /**
+     * Merges a new change into the one already pending for the same product.
+     * A product created and deleted within the same window produces no delta at all.
+     * @param existing the pending change, or null if none
+     * @param next the newly committed change
+     * @return the merged change, or null to drop the pending entry
+     */
+    static ProductChangeEvent coalesce(ProductChangeEvent existing, ProductChangeEvent next) {
+        if (existing == null) {
+            return next;
+        }
+        if (next.getType() == ProductChangeType.DELETED) {
+            return existing.getType() == ProductChangeType.CREATED ? null : next;
+        }
+
+        ProductChangeType type;
+        if (existing.getType() == ProductChangeType.CREATED || existing.getType() == ProductChangeType.DELETED) {
+            // A delete followed by a create of the same ID cannot happen with generated IDs, keep the latest state.
+            type = existing.getType() == ProductChangeType.CREATED ? ProductChangeType.CREATED : next.getType();
+        } else if (existing.getType() == ProductChangeType.UPDATED || next.getType() == ProductChangeType.UPDATED) {
+            type = ProductChangeType.UPDATED;
+        } else {
+            type = ProductChangeType.PRICE_CHANGED;
+        }
+        return new ProductChangeEvent(type, next.getProductId(), next.getName(), next.getPrice(),
+                existing.getPreviousPrice(), next.getOccurredAt());
+    }
+}
@@ -0,0 +1,164 @@
+package ro.ing.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ro.ing.api.entity.Product;
+import ro.ing.api.event.ProductChangeEvent;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cache of the serialized JSON of single products, served by {@code GET /api/products/{id}}.
+ *
+ * The UTF-8 bytes produced by the application's ObjectMapper are kept per product and written to the response as-is,
+ * so hot products are neither loaded nor re-encoded on every read. Entries are dropped on every committed change
+ * of their product. A change committed while an entry is being built bumps the product's generation, and the
+ * entry is then not stored, so stale bytes cannot outlive an invalidation.
+ *
+ * Invalidation only reaches the cache of the node that committed the change; entries also expire after
+ * {@code store.products.json-cache.ttl-ms}, which bounds how long other nodes serve a changed product.
+ * When the cache is full, the least recently read tenth of the entries is evicted.
+ */
+@Service
+public class ProductJsonCache {
+
+    private static final int GENERATION_SLOTS = 1024;
+
+    private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_SLOTS);
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Cached JSON of one product, with the times it was loaded and last read.
+     */
+    private static final class Entry {
+        final byte[] json;
+        final long loadedAt;
+        volatile long lastReadAt;
+
+        Entry(byte[] json, long now) {
+            this.json = json;
+            this.loadedAt = now;
+            this.lastReadAt = now;
+        }
+    }
+
+    /**
+     * Constructor for ProductJsonCache.
+     * @param productService service used to load products on a cache miss
+     * @param objectMapper the application's ObjectMapper, so cached bytes match regular responses
+     * @param meterRegistry registry for the hit and miss metrics
+     * @param enabled whether single-product responses are served from the cache
+     * @param maxEntries maximum number of cached products
+     * @param ttlMs how long an entry is served before the product is loaded again
+     */
+    public ProductJsonCache(ProductService productService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${store.products.json-cache.enabled:false}") boolean enabled,
+                            @Value("${store.products.json-cache.max-entries:10000}") int maxEntries,
+                            @Value("${store.products.json-cache.ttl-ms:5000}") long ttlMs) {
+        this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.hits = Counter.builder("products.json.cache.hits").register(meterRegistry);
+        this.misses = Counter.builder("products.json.cache.misses").register(meterRegistry);
+        Gauge.builder("products.json.cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the serialized JSON of a product, loading and caching it on a miss.
+     * @param id the ID of the product
+     * @return the UTF-8 JSON bytes, or empty if the product does not exist
+     */
+    public Optional<byte[]> findProductJson(Long id) {
+        Entry cached = entries.get(id);
+        long now = System.nanoTime();
+        if (cached != null && now - cached.loadedAt < ttlNanos) {
+            cached.lastReadAt = now;
+            hits.increment();
+            return Optional.of(cached.json);
+        }
+        misses.increment();
+        long generation = generations.get(slot(id));
+        Optional<Product> product = productService.findProduct(id);
+        if (product.isEmpty()) {
+            return Optional.empty();
+        }
+        byte[] json = serialize(product.get());
+        if (generations.get(slot(id)) == generation) {
+            makeRoom();
+            Entry entry = new Entry(json, now);
+            entries.put(id, entry);
+            // An invalidation may have slipped in between the check and the put.
+            if (generations.get(slot(id)) != generation) {
+                entries.remove(id, entry);
+            }
+        }
+        return Optional.of(json);
+    }
+
+    /**
+     * Drops the cached JSON of a product once a change to it has committed.
+     * @param event the committed product change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        if (event.getProductId() == null) {
+            return;
+        }
+        generations.incrementAndGet(slot(event.getProductId()));
+        entries.remove(event.getProductId());
+    }
+
+    private byte[] serialize(Product product) {
+        try {
+            return objectMapper.writeValueAsBytes(product);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize product " + product.getId(), e);
+        }
+    }
+
+    private synchronized void makeRoom() {
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.loadedAt >= ttlNanos);
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        // Evicting a tenth at a time keeps the sort off most inserts.
+        long[] lastReads = entries.values().stream().mapToLong(entry -> entry.lastReadAt).sorted().toArray();
+        if (lastReads.length == 0) {
+            return;
+        }
+        long threshold = lastReads[Math.max(1, lastReads.length / 10) - 1];
+        entries.values().removeIf(entry -> entry.lastReadAt - threshold <= 0);
+    }
+
+    private static int slot(Long id) {
+        return (int) Math.floorMod(id, (long) GENERATION_SLOTS);
+    }
+}
@@ -0,0 +1,217 @@
+package ro.ing.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ro.ing.api.dto.ProductField;
+import ro.ing.api.entity.Product;
+import ro.ing.api.event.ProductChangeEvent;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of product search results, served by {@code GET /api/products/search}.
+ *
+ * Results are kept per normalized search criteria and requested fields, tagged with the catalog version they were
+ * read at. Every committed product change bumps the version, which invalidates all entries at once without touching
+ * them: an entry is only served while its version is current. Concurrent misses for the same criteria and version
+ * share a single execution of the search. Without {@code store.products.search-cache.enabled}, every search goes
+ * to the product service.
+ *
+ * The version only counts changes committed on this node, so entries also expire after
+ * {@code store.products.search-cache.ttl-ms}, which bounds how long changes made on other nodes stay invisible.
+ * Results longer than {@code max-entry-results}, such as searches without any criteria, are never cached.
+ */
+@Service
+public class ProductSearchCache {
+
+    private final ProductService productService;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final int maxEntryResults;
+    private final long ttlNanos;
+
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final Map<SearchKey, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Flight, CompletableFuture<List<?>>> flights = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter collapsed;
+
+    /**
+     * Constructor for ProductSearchCache.
+     * @param productService service running the searches on a cache miss
+     * @param meterRegistry registry for the hit, miss and collapsed request metrics
+     * @param enabled whether search results are cached
+     * @param maxEntries maximum number of cached searches
+     * @param maxEntryResults maximum number of results of a cached search; longer results are not cached
+     * @param ttlMs how long a search is served from the cache
+     */
+    public ProductSearchCache(ProductService productService, MeterRegistry meterRegistry,
+                              @Value("${store.products.search-cache.enabled:false}") boolean enabled,
+                              @Value("${store.products.search-cache.max-entries:1000}") int maxEntries,
+                              @Value("${store.products.search-cache.max-entry-results:1000}") int maxEntryResults,
+                              @Value("${store.products.search-cache.ttl-ms:2000}") long ttlMs) {
+        this.productService = productService;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxEntryResults = maxEntryResults;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.hits = Counter.builder("products.search.cache.hits").register(meterRegistry);
+        this.misses = Counter.builder("products.search.cache.misses").register(meterRegistry);
+        this.collapsed = Counter.builder("products.search.cache.collapsed")
+                .description("Misses that waited for an identical search already running")
+                .register(meterRegistry);
+        Gauge.builder("products.search.cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Searches for products like {@link ProductService#searchProducts(String, BigDecimal, BigDecimal)}.
+     * @param name optional name substring to search for (case-insensitive)
+     * @param minPrice optional minimum price for filtering results
+     * @param maxPrice optional maximum price for filtering results
+     * @return an unmodifiable list of the products matching the criteria, shared with other callers
+     */
+    @SuppressWarnings("unchecked")
+    public List<Product> searchProducts(String name, BigDecimal minPrice, BigDecimal maxPrice) {
+        if (!enabled) {
+            return productService.searchProducts(name, minPrice, maxPrice);
+        }
+        return (List<Product>) lookup(SearchKey.of(name, minPrice, maxPrice, null),
+                () -> productService.searchProducts(name, minPrice, maxPrice));
+    }
+
+    /**
+     * Searches for products like {@link ProductService#searchProductFields(String, BigDecimal, BigDecimal, Set)}.
+     * @param name optional name substring to search for (case-insensitive)
+     * @param minPrice optional minimum price for filtering results
+     * @param maxPrice optional maximum price for filtering results
+     * @param fields the fields to return
+     * @return an unmodifiable list of the selected fields of the matching products, shared with other callers
+     */
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> searchProductFields(String name, BigDecimal minPrice, BigDecimal maxPrice,
+                                                         Set<ProductField> fields) {
+        if (!enabled) {
+            return productService.searchProductFields(name, minPrice, maxPrice, fields);
+        }
+        return (List<Map<String, Object>>) lookup(SearchKey.of(name, minPrice, maxPrice, fields),
+                () -> productService.searchProductFields(name, minPrice, maxPrice, fields));
+    }
+
+    /**
+     * Invalidates every cached search once a product change has committed.
+     * @param event the committed product change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        catalogVersion.incrementAndGet();
+    }
+
+    private List<?> lookup(SearchKey key, Supplier<List<?>> search) {
+        long version = catalogVersion.get();
+        long now = System.nanoTime();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version() == version && now - entry.loadedAt() < ttlNanos) {
+            hits.increment();
+            return entry.results();
+        }
+        misses.increment();
+
+        // The version is part of the flight, so a search started after a change never gets results read before it.
+        Flight flight = new Flight(key, version);
+        CompletableFuture<List<?>> own = new CompletableFuture<>();
+        CompletableFuture<List<?>> running = flights.putIfAbsent(flight, own);
+        if (running != null) {
+            collapsed.increment();
+            return await(running);
+        }
+        try {
+            List<?> results = List.copyOf(search.get());
+            if (catalogVersion.get() == version && results.size() <= maxEntryResults) {
+                makeRoom();
+                entries.put(key, new Entry(version, results, now));
+            }
+            own.complete(results);
+            return results;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(flight, own);
+        }
+    }
+
+    private static List<?> await(CompletableFuture<List<?>> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void makeRoom() {
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        long version = catalogVersion.get();
+        long now = System.nanoTime();
+        // Outdated and expired entries go first; they can never be served again.
+        entries.values().removeIf(entry -> entry.version() != version || now - entry.loadedAt() >= ttlNanos);
+        Iterator<SearchKey> iterator = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Search criteria reduced to what the search actually uses: the name filter is case-insensitive unless
+     * combined with a price range, and a price range only applies when both bounds are given.
+     */
+    private record SearchKey(String name, BigDecimal minPrice, BigDecimal maxPrice, Set<ProductField> fields) {
+
+        static SearchKey of(String name, BigDecimal minPrice, BigDecimal maxPrice, Set<ProductField> fields) {
+            Set<ProductField> selected = fields == null ? null : Set.copyOf(fields);
+            boolean priceRange = minPrice != null && maxPrice != null;
+            if (name != null && priceRange) {
+                return new SearchKey(name, normalize(minPrice), normalize(maxPrice), selected);
+            } else if (name != null) {
+                return new SearchKey(name.toUpperCase(Locale.ROOT), null, null, selected);
+            } else if (priceRange) {
+                return new SearchKey(null, normalize(minPrice), normalize(maxPrice), selected);
+            }
+            return new SearchKey(null, null, null, selected);
+        }
+
+        private static BigDecimal normalize(BigDecimal price) {
+            return price.stripTrailingZeros();
+        }
+    }
+
+    private record Entry(long version, List<?> results, long loadedAt) {
+    }
+
+    private record Flight(SearchKey key, long version) {
+    }
+}
@@ -1,19 +1,47 @@
 package ro.ing.api.service;
 
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ro.ing.api.dto.BulkDeleteRequestDTO;
+import ro.ing.api.dto.ProductChangesDTO;
+import ro.ing.api.dto.ProductField;
+import ro.ing.api.dto.ProductLookupDTO;
 import ro.ing.api.entity.Product;
+import ro.ing.api.entity.ProductTombstone;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.event.ProductChangeType;
+import ro.ing.api.exception.ChangeTokenExpiredException;
+import ro.ing.api.exception.InvalidProductDataException;
 import ro.ing.api.exception.ProductAlreadyExistsException;
 import ro.ing.api.exception.ProductNotFoundException;
 import ro.ing.api.exception.UnauthorizedAccessException;
 import ro.ing.api.repository.ProductRepository;
+import ro.ing.api.repository.ProductTombstoneRepository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,18 +50,56 @@ public class ProductService {
 
     private static final Logger logger = Logger.getLogger(ProductService.class.getName());
 
+    /**
+     * Order of projected rows merged from several shards; the projections always contain the ID.
+     */
+    private static final Comparator<Map<String, Object>> ROW_ORDER = Comparator.comparing(row -> (Long) row.get("id"));
+
     private final ProductRepository productRepository;
+    private final ProductTombstoneRepository tombstoneRepository;
     private final OpenAiService aiService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final CatalogSnapshot catalogSnapshot;
+    private final ShardRouter shards;
+
+    @Value("${store.products.changes.tombstone-retention-days:30}")
+    private int tombstoneRetentionDays = 30;
+
+    @Value("${store.products.changes.page-size:1000}")
+    private int changesPageSize = 1000;
+
+    @Value("${store.products.changes.overlap-seconds:60}")
+    private long changesOverlapSeconds = 60;
+
+    @Value("${store.products.multi-get.max-ids:1000}")
+    private int multiGetMaxIds = 1000;
+
+    @Value("${store.products.bulk-delete.chunk-size:500}")
+    private int bulkDeleteChunkSize = 500;
 
     /**
      * Constructor for ProductService.
      * @param productRepository the repository used for accessing product data
-     * @param aiService the OpenAI service used for generating product descriptions
+     * @param tombstoneRepository the repository recording deleted products for the change feed
+     * @param aiService the OpenAI service used for generating product descriptions, resolved on first use
+     * @param eventPublisher publisher used to announce product changes to interested listeners
+     * @param transactionTemplate template used to run bulk operations in bounded transactions
+     * @param catalogSnapshot memory-mapped catalog snapshot consulted before the database on single-product lookups
+     * @param shards router sending single-product operations to their shard and listings to every shard
      */
     @Autowired
-    public ProductService(ProductRepository productRepository, OpenAiService aiService) {
+    public ProductService(ProductRepository productRepository, ProductTombstoneRepository tombstoneRepository,
+                          @Lazy OpenAiService aiService, ApplicationEventPublisher eventPublisher,
+                          TransactionTemplate transactionTemplate, CatalogSnapshot catalogSnapshot,
+                          ShardRouter shards) {
         this.productRepository = productRepository;
+        this.tombstoneRepository = tombstoneRepository;
         this.aiService = aiService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.catalogSnapshot = catalogSnapshot;
+        this.shards = shards;
         logger.log(Level.INFO, "ProductService initialized");
     }
 
@@ -42,25 +108,31 @@ public class ProductService {
      * @param product the product to be added
      * @return the saved product with an assigned ID
      */
+    @Transactional
     public Product addProduct(Product product) {
         logger.log(Level.INFO, "Adding new product: {0}", product.getName());
-        if (productRepository.existsByName(product.getName())) {
+        if (shards.onEachShard(shard -> productRepository.existsByName(product.getName())).contains(true)) {
             throw new ProductAlreadyExistsException("Product with name '" + product.getName() + "' already exists.");
         }
 
+        shards.bind(shards.nextShard());
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangeEvent.of(ProductChangeType.CREATED, savedProduct, null));
         logger.log(Level.INFO, "Product added successfully with ID: {0}", savedProduct.getId());
         return savedProduct;
     }
 
     /**
-     * Finds a product by its ID.
+     * Finds a product by its ID, from the catalog snapshot when it holds a current copy, otherwise from the database.
      * @param id the ID of the product to be retrieved
      * @return an Optional containing the found product, or empty if not found
      */
     public Optional<Product> findProduct(Long id) {
         logger.log(Level.INFO, "Finding product with ID: {0}", id);
-        Optional<Product> product = productRepository.findById(id);
+        Optional<Product> product = catalogSnapshot.find(id);
+        if (product.isEmpty()) {
+            product = shards.onShard(shards.shardOf(id), () -> productRepository.findById(id));
+        }
         if (product.isPresent()) {
             logger.log(Level.INFO, "Product found with ID: {0}", id);
         } else {
@@ -69,6 +141,53 @@ public class ProductService {
         return product;
     }
 
+    /**
+     * Finds only the requested fields of a product; unrequested columns are not read from the database.
+     * @param id the ID of the product to be retrieved
+     * @param fields the fields to return
+     * @return an Optional containing the selected fields, or empty if not found
+     */
+    public Optional<Map<String, Object>> findProductFields(Long id, Set<ProductField> fields) {
+        logger.log(Level.INFO, "Finding fields {0} of product with ID: {1}", new Object[]{fields, id});
+        return shards.onShard(shards.shardOf(id), () -> productRepository.findFieldsById(id, fields));
+    }
+
+    /**
+     * Finds many products by ID with a single query.
+     * @param ids the requested product IDs; duplicates are allowed and repeated in the result
+     * @return one entry per requested ID, in request order, marking the IDs that do not exist
+     * @throws InvalidProductDataException if no IDs, a null ID or more than the configured maximum are given
+     */
+    @Transactional(readOnly = true)
+    public List<ProductLookupDTO> findProductsByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty() || ids.stream().anyMatch(Objects::isNull)) {
+            throw new InvalidProductDataException("At least one product ID is required and IDs cannot be null.");
+        }
+        if (ids.size() > multiGetMaxIds) {
+            throw new InvalidProductDataException("At most " + multiGetMaxIds + " product IDs can be requested at once.");
+        }
+        logger.log(Level.INFO, "Finding {0} products by ID", ids.size());
+
+        Map<Integer, Set<Long>> idsByShard = new HashMap<>();
+        for (Long id : ids) {
+            idsByShard.computeIfAbsent(shards.shardOf(id), shard -> new HashSet<>()).add(id);
+        }
+        Map<Long, Product> products = new HashMap<>();
+        for (List<Product> found : shards.onEachShard(shard -> idsByShard.containsKey(shard)
+                ? productRepository.findByIdIn(idsByShard.get(shard)) : List.<Product>of())) {
+            for (Product product : found) {
+                products.put(product.getId(), product);
+            }
+        }
+        List<ProductLookupDTO> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = products.get(id);
+            results.add(new ProductLookupDTO(id, product != null, product));
+        }
+        logger.log(Level.INFO, "Found {0} of {1} requested products", new Object[]{products.size(), new HashSet<>(ids).size()});
+        return results;
+    }
+
     /**
      * Partially updates a product's attributes.
      * @param id the ID of the product to update
@@ -76,9 +195,12 @@ public class ProductService {
      * @return the updated product
      * @throws ProductNotFoundException if the product with the specified ID is not found
      */
+    @Transactional
     public Product updateProductPartially(Long id, Map<String, Object> updates) {
+        shards.bind(shards.shardOf(id));
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ProductNotFoundException("Product not found"));
+        BigDecimal previousPrice = product.getPrice();
 
         updates.forEach((key, value) -> {
             switch (key) {
@@ -97,7 +219,12 @@ public class ProductService {
             }
         });
 
-        return productRepository.save(product);
+        Product updatedProduct = productRepository.save(product);
+        ProductChangeType changeType = updates.size() == 1 && updates.containsKey("price")
+                ? ProductChangeType.PRICE_CHANGED
+                : ProductChangeType.UPDATED;
+        eventPublisher.publishEvent(ProductChangeEvent.of(changeType, updatedProduct, previousPrice));
+        return loaded(updatedProduct);
     }
 
     /**
@@ -107,7 +234,15 @@ public class ProductService {
      */
     // Method with pagination support
     public Page<Product> getAllProducts(Pageable pageable) {
-        return productRepository.findAll(pageable);
+        if (shards.getShardCount() == 1) {
+            return productRepository.findAll(pageable);
+        }
+        Sort sort = pageable.getSort().and(Sort.by("id"));
+        Pageable shardPage = pageable.isPaged() ? PageRequest.of(0, pageEnd(pageable), sort) : Pageable.unpaged(sort);
+        List<Page<Product>> pages = shards.onEachShard(shard -> productRepository.findAll(shardPage));
+        long total = pages.stream().mapToLong(Page::getTotalElements).sum();
+        return new PageImpl<>(mergePage(pages.stream().map(Page::getContent).toList(), productOrder(sort), pageable),
+                pageable, total);
     }
 
     /**
@@ -117,42 +252,257 @@ public class ProductService {
      * @return the updated product with the new price
      * @throws ProductNotFoundException if the product with the specified ID is not found
      */
+    @Transactional
     public Product changePrice(Long id, BigDecimal newPrice) {
         logger.log(Level.INFO, "Changing price of product with ID: {0} to {1}", new Object[]{id, newPrice});
+        shards.bind(shards.shardOf(id));
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> {
                     logger.log(Level.SEVERE, "Product not found with ID: {0}", id);
                     return new ProductNotFoundException("Product not found");
                 });
+        BigDecimal previousPrice = product.getPrice();
         product.setPrice(newPrice);
         Product updatedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangeEvent.of(ProductChangeType.PRICE_CHANGED, updatedProduct, previousPrice));
         logger.log(Level.INFO, "Price updated successfully for product with ID: {0}", updatedProduct.getId());
-        return updatedProduct;
+        return loaded(updatedProduct);
     }
 
     public List<Product> getAllProducts() {
-        return productRepository.findAll();
+        return concat(shards.onEachShard(shard -> productRepository.findAll()));
+    }
+
+    /**
+     * Retrieves only the requested fields of all products.
+     * @param fields the fields to return
+     * @return the selected fields of every product, ordered by ID
+     */
+    public List<Map<String, Object>> getAllProductFields(Set<ProductField> fields) {
+        List<List<Map<String, Object>>> rows =
+                shards.onEachShard(shard -> productRepository.findAllFields(fields, Pageable.unpaged()));
+        return merge(rows, ROW_ORDER);
     }
 
     /**
-     * Deletes a product by its ID.
+     * Retrieves a page containing only the requested fields of each product.
+     * @param fields the fields to return
+     * @param pageable the pagination information
+     * @return a page of selected product fields
+     */
+    public Page<Map<String, Object>> getAllProductFields(Set<ProductField> fields, Pageable pageable) {
+        if (shards.getShardCount() == 1) {
+            List<Map<String, Object>> content = productRepository.findAllFields(fields, pageable);
+            return new PageImpl<>(content, pageable, productRepository.count());
+        }
+        Pageable shardPage = pageable.isPaged() ? PageRequest.of(0, pageEnd(pageable)) : pageable;
+        List<List<Map<String, Object>>> rows =
+                shards.onEachShard(shard -> productRepository.findAllFields(fields, shardPage));
+        long total = shards.onEachShard(shard -> productRepository.count()).stream().mapToLong(Long::longValue).sum();
+        return new PageImpl<>(mergePage(rows, ROW_ORDER, pageable), pageable, total);
+    }
+
+    /**
+     * Deletes a product by its ID with a single DELETE statement; the affected row count decides the 404.
      * @param id the ID of the product to delete
      * @throws ProductNotFoundException if the product with the specified ID does not exist
      */
+    @Transactional
     public void deleteProduct(Long id,  String userRol) {
         logger.log(Level.INFO, "Deleting product with ID: {0}", id);
         if (!userRol.equals("ADMIN")) {
             throw new UnauthorizedAccessException("You do not have permission to delete products.");
         }
-        if (!productRepository.existsById(id)) {
+        shards.bind(shards.shardOf(id));
+        if (productRepository.deleteProductById(id) == 0) {
             logger.log(Level.SEVERE, "Product not found with ID: {0}", id);
             throw new ProductNotFoundException("Product not found");
         }
 
-        productRepository.deleteById(id);
+        tombstoneRepository.save(new ProductTombstone(id, LocalDateTime.now()));
+        eventPublisher.publishEvent(ProductChangeEvent.deleted(id));
         logger.log(Level.INFO, "Product deleted successfully with ID: {0}", id);
     }
 
+    /**
+     * Deletes many products, either by ID list or by filter, as chunked set-based deletes.
+     * Each chunk runs in its own transaction, so a large delete never holds locks on the whole set at once.
+     * @param request the IDs to delete, or the filter criteria selecting the products to delete
+     * @return the number of deleted products
+     * @throws InvalidProductDataException if neither IDs nor filter criteria are provided
+     */
+    public int bulkDeleteProducts(BulkDeleteRequestDTO request) {
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        if (!byIds && !request.hasFilter()) {
+            throw new InvalidProductDataException("Bulk delete requires product IDs or at least one filter criterion.");
+        }
+        logger.log(Level.INFO, "Bulk deleting products - IDs: {0}, Name: {1}, Min Price: {2}, Max Price: {3}",
+                new Object[]{byIds ? request.getIds().size() : null, request.getName(), request.getMinPrice(), request.getMaxPrice()});
+
+        Map<Integer, List<Long>> idsByShard = new HashMap<>();
+        if (byIds) {
+            for (Long id : new HashSet<>(request.getIds())) {
+                idsByShard.computeIfAbsent(shards.shardOf(id), shard -> new ArrayList<>()).add(id);
+            }
+        }
+        int deleted = shards.onEachShard(shard -> byIds
+                ? deleteByIds(idsByShard.getOrDefault(shard, List.of()))
+                : deleteMatching(request)).stream().mapToInt(Integer::intValue).sum();
+        logger.log(Level.INFO, "Bulk deleted {0} products", deleted);
+        return deleted;
+    }
+
+    private int deleteByIds(List<Long> ids) {
+        int deleted = 0;
+        for (int from = 0; from < ids.size(); from += bulkDeleteChunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + bulkDeleteChunkSize, ids.size()));
+            deleted += transactionTemplate.execute(status -> deleteChunk(chunk));
+        }
+        return deleted;
+    }
+
+    private int deleteMatching(BulkDeleteRequestDTO request) {
+        // Every chunk deletes what it selected, so the next chunk simply continues after the last ID seen.
+        int deleted = 0;
+        long afterId = 0L;
+        while (true) {
+            long lowerBound = afterId;
+            DeletedChunk chunk = transactionTemplate.execute(status -> {
+                List<Long> ids = productRepository.findIdsMatching(lowerBound, request.getName(),
+                        request.getMinPrice(), request.getMaxPrice(), PageRequest.of(0, bulkDeleteChunkSize));
+                return new DeletedChunk(ids, deleteChunk(ids));
+            });
+            if (chunk == null || chunk.selectedIds().isEmpty()) {
+                break;
+            }
+            deleted += chunk.deleted();
+            afterId = chunk.selectedIds().get(chunk.selectedIds().size() - 1);
+        }
+        return deleted;
+    }
+
+    /**
+     * The IDs a bulk delete chunk selected, and how many of those products it actually deleted.
+     */
+    private record DeletedChunk(List<Long> selectedIds, int deleted) {
+    }
+
+    private int deleteChunk(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        // Products deleted concurrently since they were selected are skipped: the locked rows are exactly the ones
+        // deleted below, so each deleted product gets one tombstone and one DELETED event.
+        List<Long> existing = productRepository.findExistingIds(ids);
+        if (existing.isEmpty()) {
+            return 0;
+        }
+        tombstoneRepository.recordDeletions(existing, LocalDateTime.now());
+        int deleted = productRepository.deleteProductsByIds(existing);
+        existing.forEach(id -> eventPublisher.publishEvent(ProductChangeEvent.deleted(id)));
+        return deleted;
+    }
+
+    /**
+     * Returns the next page of the product change feed.
+     * Without a token the feed starts with a full synchronization, paging through every product. Afterwards it returns
+     * the products modified and the product IDs deleted since the previous page. Each page holds at most
+     * {@code store.products.changes.page-size} products and as many deletions; {@code hasMore} tells the client
+     * to call again right away.
+     *
+     * Once caught up, the next call re-reads the last {@code store.products.changes.overlap-seconds} before the
+     * latest change handed out, because transactions commit out of timestamp order: a change stamped before that
+     * moment may only become visible later. Clients therefore receive some changes twice and apply them by ID.
+     * @param sinceToken continuation token returned by a previous call, or null for a full sync
+     * @return the changes along with the token to use on the next call, never null
+     * @throws InvalidProductDataException if the token cannot be decoded
+     * @throws ChangeTokenExpiredException if the token is older than the tombstone retention
+     */
+    @Transactional(readOnly = true)
+    public ProductChangesDTO getChangesSince(String sinceToken) {
+        ChangeToken token = sinceToken == null || sinceToken.isBlank()
+                ? ChangeToken.fullSync(LocalDateTime.now())
+                : ChangeToken.decode(sinceToken, changesOverlapSeconds);
+        LocalDateTime oldest = token.fullSync() ? token.watermark() : token.tombstoneDate();
+        if (oldest.isBefore(LocalDateTime.now().minusDays(tombstoneRetentionDays))) {
+            throw new ChangeTokenExpiredException("Change token is older than " + tombstoneRetentionDays
+                    + " days, a full synchronization is required.");
+        }
+        logger.log(Level.INFO, "Retrieving product changes for token: {0}", token);
+        return token.fullSync() ? fullSyncPage(token) : changesPage(token);
+    }
+
+    private ProductChangesDTO fullSyncPage(ChangeToken token) {
+        Pageable chunk = PageRequest.of(0, changesPageSize);
+        List<Product> products = first(merge(shards.onEachShard(shard ->
+                        productRepository.findByIdGreaterThanOrderByIdAsc(token.productId(), chunk)),
+                Comparator.comparing(Product::getId)), changesPageSize);
+
+        if (products.size() == changesPageSize) {
+            ChangeToken next = token.afterProduct(products.get(products.size() - 1).getId());
+            return new ProductChangesDTO(products, List.of(), next.encode(), true);
+        }
+        // Changes made while paging are stamped after the start and are picked up incrementally.
+        ChangeToken next = ChangeToken.caughtUp(token.watermark(), changesOverlapSeconds);
+        logger.log(Level.INFO, "Full synchronization finished with {0} products on the last page", products.size());
+        return new ProductChangesDTO(products, List.of(), next.encode(), false);
+    }
+
+    private ProductChangesDTO changesPage(ChangeToken token) {
+        Pageable chunk = PageRequest.of(0, changesPageSize);
+        List<Product> updated = first(merge(shards.onEachShard(shard ->
+                        productRepository.findChangedAfter(token.productDate(), token.productId(), chunk)),
+                Comparator.comparing(Product::getUpdatedDate).thenComparing(Product::getId)), changesPageSize);
+        List<ProductTombstone> tombstones = first(merge(shards.onEachShard(shard ->
+                        tombstoneRepository.findDeletedAfter(token.tombstoneDate(), token.tombstoneProductId(), chunk)),
+                Comparator.comparing(ProductTombstone::getDeletedDate).thenComparing(ProductTombstone::getProductId)),
+                changesPageSize);
+
+        LocalDateTime watermark = token.watermark();
+        LocalDateTime productDate = token.productDate();
+        long productId = token.productId();
+        if (!updated.isEmpty()) {
+            Product last = updated.get(updated.size() - 1);
+            productDate = last.getUpdatedDate();
+            productId = last.getId();
+            watermark = productDate.isAfter(watermark) ? productDate : watermark;
+        }
+        LocalDateTime tombstoneDate = token.tombstoneDate();
+        long tombstoneProductId = token.tombstoneProductId();
+        if (!tombstones.isEmpty()) {
+            ProductTombstone last = tombstones.get(tombstones.size() - 1);
+            tombstoneDate = last.getDeletedDate();
+            tombstoneProductId = last.getProductId();
+            watermark = tombstoneDate.isAfter(watermark) ? tombstoneDate : watermark;
+        }
+        boolean hasMore = updated.size() == changesPageSize || tombstones.size() == changesPageSize;
+        ChangeToken next = hasMore
+                ? new ChangeToken(false, watermark, productDate, productId, tombstoneDate, tombstoneProductId)
+                : ChangeToken.caughtUp(watermark, changesOverlapSeconds);
+        List<Long> deleted = tombstones.stream().map(ProductTombstone::getProductId).distinct().toList();
+
+        logger.log(Level.INFO, "Found {0} updated and {1} deleted products, more: {2}",
+                new Object[]{updated.size(), deleted.size(), hasMore});
+        return new ProductChangesDTO(updated, deleted, next.encode(), hasMore);
+    }
+
+    /**
+     * Removes tombstones older than the configured retention, bounding the size of the change feed.
+     */
+    @Scheduled(cron = "${store.products.changes.tombstone-purge-cron:0 30 3 * * *}")
+    @Transactional
+    public void purgeExpiredTombstones() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(tombstoneRetentionDays);
+        int removed = shards.onEachShard(shard ->
+                        transactionTemplate.execute(status -> tombstoneRepository.deleteOlderThan(cutoff)))
+                .stream().mapToInt(Integer::intValue).sum();
+        logger.log(Level.INFO, "Purged {0} expired product tombstones", removed);
+    }
+
+    private static <T> List<T> first(List<T> rows, int limit) {
+        return rows.size() <= limit ? rows : rows.subList(0, limit);
+    }
+
     /**
      * Searches for products based on optional criteria: name, minimum price, and maximum price.
      * @param name optional name substring to search for (case-insensitive)
@@ -164,21 +514,39 @@ public class ProductService {
         logger.log(Level.INFO, "Searching products with criteria - Name: {0}, Min Price: {1}, Max Price: {2}",
                 new Object[]{name, minPrice, maxPrice});
 
-        List<Product> products;
-        if (name != null && minPrice != null && maxPrice != null) {
-            products = productRepository.findByNameAndPriceBetween(name, minPrice, maxPrice);
-        } else if (name != null) {
-            products = productRepository.findByNameContainingIgnoreCase(name);
-        } else if (minPrice != null && maxPrice != null) {
-            products = productRepository.findByPriceBetween(minPrice, maxPrice);
-        } else {
-            products = productRepository.findAll();
-        }
+        List<Product> products = concat(shards.onEachShard(shard -> {
+            if (name != null && minPrice != null && maxPrice != null) {
+                return productRepository.findByNameAndPriceBetween(name, minPrice, maxPrice);
+            } else if (name != null) {
+                return productRepository.findByNameContainingIgnoreCase(name);
+            } else if (minPrice != null && maxPrice != null) {
+                return productRepository.findByPriceBetween(minPrice, maxPrice);
+            }
+            return productRepository.findAll();
+        }));
 
         logger.log(Level.INFO, "Found {0} products matching criteria", products.size());
         return products;
     }
 
+    /**
+     * Searches for products like {@link #searchProducts(String, BigDecimal, BigDecimal)}, returning only the requested fields.
+     * @param name optional name substring to search for (case-insensitive)
+     * @param minPrice optional minimum price for filtering results
+     * @param maxPrice optional maximum price for filtering results
+     * @param fields the fields to return
+     * @return the selected fields of the products matching the specified criteria
+     */
+    public List<Map<String, Object>> searchProductFields(String name, BigDecimal minPrice, BigDecimal maxPrice,
+                                                         Set<ProductField> fields) {
+        logger.log(Level.INFO, "Searching product fields {0} with criteria - Name: {1}, Min Price: {2}, Max Price: {3}",
+                new Object[]{fields, name, minPrice, maxPrice});
+        List<Map<String, Object>> products =
+                concat(shards.onEachShard(shard -> productRepository.searchFields(fields, name, minPrice, maxPrice)));
+        logger.log(Level.INFO, "Found {0} products matching criteria", products.size());
+        return products;
+    }
+
     /**
      * Adds a new product to the store with an AI-generated description.
      * @param product The product to be added
@@ -186,12 +554,89 @@ public class ProductService {
      */
     public Product addProductWithDescription(Product product) {
         logger.log(Level.INFO, "Generating description for product: {0}", product.getName());
-        String prompt = "Generate a compelling description for a product named " + product.getName();
-        String description = aiService.generateText(prompt);
+        String description = aiService.generateText(descriptionPrompt(product.getName()));
         product.setDescription(description);
 
-        Product savedProduct = productRepository.save(product);
+        Product savedProduct = shards.onShard(shards.nextShard(), () -> productRepository.save(product));
+        eventPublisher.publishEvent(ProductChangeEvent.of(ProductChangeType.CREATED, savedProduct, null));
         logger.log(Level.INFO, "Product with AI-generated description added successfully. ID: {0}", savedProduct.getId());
         return savedProduct;
     }
+
+    /**
+     * Reads the lazily loaded description while the product's session is open: with sharding, products are
+     * returned after the transaction of their shard has ended.
+     * @param product the product
+     * @return the same product
+     */
+    private static Product loaded(Product product) {
+        product.getDescription();
+        return product;
+    }
+
+    /**
+     * Returns the end of a page, the number of rows each shard returns so that the merged rows contain the page.
+     * Deep pages therefore read offset + size rows from every shard.
+     */
+    private static int pageEnd(Pageable pageable) {
+        return Math.toIntExact(pageable.getOffset() + pageable.getPageSize());
+    }
+
+    /**
+     * Merges the rows read from each shard in the given order and cuts the page out of them.
+     */
+    private static <T> List<T> mergePage(List<List<T>> shardRows, Comparator<? super T> order, Pageable pageable) {
+        List<T> merged = merge(shardRows, order);
+        if (pageable.isUnpaged()) {
+            return merged;
+        }
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        return merged.subList(from, Math.min(from + pageable.getPageSize(), merged.size()));
+    }
+
+    private static <T> List<T> merge(List<List<T>> shardRows, Comparator<? super T> order) {
+        if (shardRows.size() == 1) {
+            return shardRows.get(0);
+        }
+        List<T> merged = concat(shardRows);
+        merged.sort(order);
+        return merged;
+    }
+
+    private static <T> List<T> concat(List<List<T>> shardRows) {
+        if (shardRows.size() == 1) {
+            return shardRows.get(0);
+        }
+        List<T> all = new ArrayList<>();
+        shardRows.forEach(all::addAll);
+        return all;
+    }
+
+    /**
+     * Compares products like the ORDER BY of the given sort; ascending nulls sort last, as in PostgreSQL.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Product> productOrder(Sort sort) {
+        Comparator<Product> order = (a, b) -> 0;
+        for (Sort.Order property : sort) {
+            Function<Product, Comparable> value = product -> {
+                Object attribute = new BeanWrapperImpl(product).getPropertyValue(property.getProperty());
+                return property.isIgnoreCase() && attribute instanceof String text ? text.toLowerCase() : (Comparable) attribute;
+            };
+            Comparator<Comparable> direction = property.isAscending()
+                    ? Comparator.nullsLast(Comparator.naturalOrder())
+                    : Comparator.nullsFirst(Comparator.reverseOrder());
+            order = order.thenComparing(value, direction);
+        }
+        return order;
+    }
+
+    /**
+     * Builds the prompt used to generate the description of a product.
+     * @param name the name of the product
+     * @return the prompt
+     */
+    static String descriptionPrompt(String name) {
+        return "Generate a compelling description for a product named " + name;
+    }
 }
@@ -0,0 +1,168 @@
+package ro.ing.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ro.ing.api.dto.ProductSuggestionDTO;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.event.ProductChangeType;
+import ro.ing.api.repository.ProductRepository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves name autocomplete from an in-memory {@link SuggestionTrie}, ranked by how often products are retrieved.
+ *
+ * The index is loaded once the application has started and then follows committed product changes, so a new,
+ * renamed or deleted product shows up in the next suggestion. Retrievals are counted without touching the index
+ * and folded into the ranking on a short schedule. A periodic rebuild from a narrow id/name scan corrects drift,
+ * for example from writes made by other nodes; popularity is kept in memory and starts over on restart.
+ */
+@Service
+public class ProductSuggestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggestionService.class);
+
+    private final ProductRepository productRepository;
+    private final ShardRouter shards;
+    private final int maxResults;
+    private final Map<Long, LongAdder> pendingViews = new ConcurrentHashMap<>();
+
+    private volatile SuggestionTrie trie;
+
+    /**
+     * Products changed while a rebuild scan is running; their live entry wins over the scanned one.
+     */
+    private Set<Long> touchedDuringRebuild;
+
+    /**
+     * Constructor for ProductSuggestionService.
+     * @param productRepository the repository used for the rebuild scan
+     * @param shards router running the rebuild scan on every shard
+     * @param maxResults the largest number of suggestions returned, which is also the number ranked per trie node
+     */
+    public ProductSuggestionService(ProductRepository productRepository, ShardRouter shards,
+                                    @Value("${store.products.suggest.max-results:10}") int maxResults) {
+        this.productRepository = productRepository;
+        this.shards = shards;
+        this.maxResults = maxResults;
+        this.trie = new SuggestionTrie(maxResults);
+    }
+
+    /**
+     * Suggests products having a word that starts with the prefix, most retrieved first.
+     * @param prefix the text typed so far; case, accents and punctuation are ignored
+     * @param limit the maximum number of suggestions, capped at {@code store.products.suggest.max-results}
+     * @return the suggestions
+     */
+    public List<ProductSuggestionDTO> suggest(String prefix, int limit) {
+        return trie.suggest(prefix, Math.min(limit, maxResults));
+    }
+
+    /**
+     * Counts one retrieval of a product towards its popularity.
+     * @param id the ID of the retrieved product
+     */
+    public void recordView(Long id) {
+        pendingViews.computeIfAbsent(id, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Applies a committed product change to the index.
+     * @param event the committed product change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChange(ProductChangeEvent event) {
+        Long id = event.getProductId();
+        if (id == null) {
+            return;
+        }
+        if (event.getType() == ProductChangeType.DELETED) {
+            trie.remove(id);
+            pendingViews.remove(id);
+        } else {
+            ProductSuggestionDTO current = trie.get(id);
+            trie.put(id, event.getName(), current == null ? 0 : current.getPopularity());
+        }
+        if (touchedDuringRebuild != null) {
+            touchedDuringRebuild.add(id);
+        }
+    }
+
+    /**
+     * Adds the retrievals counted since the last pass to the popularity of the products.
+     */
+    @Scheduled(fixedDelayString = "${store.products.suggest.popularity-flush-ms:5000}")
+    public synchronized void flushViews() {
+        pendingViews.forEach((id, views) -> {
+            long delta = views.sumThenReset();
+            if (delta > 0 && trie.addPopularity(id, delta) && touchedDuringRebuild != null) {
+                touchedDuringRebuild.add(id);
+            }
+        });
+    }
+
+    /**
+     * Loads the index once the application has started.
+     * A failure is only logged so that an unavailable database does not prevent the application from starting;
+     * the next scheduled rebuild will retry.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Initial suggestion index build failed, retrying on the next scheduled pass", e);
+        }
+    }
+
+    /**
+     * Rebuilds the index from the database, keeping popularity and the changes applied while the scan was running.
+     */
+    @Scheduled(fixedDelayString = "${store.products.suggest.rebuild-interval-ms:600000}",
+            initialDelayString = "${store.products.suggest.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        synchronized (this) {
+            touchedDuringRebuild = new HashSet<>();
+        }
+        try {
+            SuggestionTrie current = trie;
+            List<ProductSuggestionDTO> scanned = new ArrayList<>();
+            for (List<Object[]> rows : shards.onEachShard(shard -> productRepository.findAllIdsAndNames())) {
+                for (Object[] row : rows) {
+                    Long id = (Long) row[0];
+                    ProductSuggestionDTO entry = current.get(id);
+                    scanned.add(new ProductSuggestionDTO(id, (String) row[1], entry == null ? 0 : entry.getPopularity()));
+                }
+            }
+            SuggestionTrie rebuilt = SuggestionTrie.build(maxResults, scanned);
+            synchronized (this) {
+                for (Long id : touchedDuringRebuild) {
+                    ProductSuggestionDTO entry = trie.get(id);
+                    if (entry == null) {
+                        rebuilt.remove(id);
+                    } else {
+                        rebuilt.put(id, entry.getName(), entry.getPopularity());
+                    }
+                }
+                trie = rebuilt;
+            }
+            logger.info("Rebuilt suggestion index for {} products", rebuilt.size());
+        } finally {
+            synchronized (this) {
+                touchedDuringRebuild = null;
+            }
+        }
+    }
+}
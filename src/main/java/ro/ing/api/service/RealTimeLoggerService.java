@@ -2,10 +2,12 @@ package ro.ing.api.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 @Service
+@Lazy  // Only needed once the AI endpoints are used
 public class RealTimeLoggerService {
 
     private static final Logger logger = LoggerFactory.getLogger(RealTimeLoggerService.class);
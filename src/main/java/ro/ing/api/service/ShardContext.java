@@ -0,0 +1,57 @@
+package ro.ing.api.service;
+
+/**
+ * The shard the current thread works on, bound by {@link ShardRouter} while sharding is enabled.
+ *
+ * The routing DataSource reads it when a transaction opens its connection, and the product ID generator when a
+ * product is inserted. Threads without a binding use shard 0, and product IDs are then assigned by the database.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<ShardContext> CURRENT = new ThreadLocal<>();
+
+    private final int shard;
+    private final SnowflakeIdGenerator idGenerator;
+
+    ShardContext(int shard, SnowflakeIdGenerator idGenerator) {
+        this.shard = shard;
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Returns the binding of the current thread.
+     * @return the binding, or null if the thread is not bound to a shard
+     */
+    public static ShardContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return the shard of this binding
+     */
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * Generates the ID of a product inserted on this shard.
+     * @return the new product ID
+     */
+    public long nextId() {
+        return idGenerator.nextId(shard);
+    }
+
+    static ShardContext bind(ShardContext context) {
+        ShardContext previous = CURRENT.get();
+        CURRENT.set(context);
+        return previous;
+    }
+
+    static void restore(ShardContext previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
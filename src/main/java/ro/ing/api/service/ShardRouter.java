@@ -0,0 +1,221 @@
+package ro.ing.api.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ro.ing.api.exception.DatabaseOperationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Decides which database shard serves a product operation and runs the operation there.
+ *
+ * With {@code store.sharding.enabled}, the catalog is spread over the databases listed in {@code store.sharding.urls}.
+ * New products are placed round-robin and get a {@link SnowflakeIdGenerator} ID naming their shard, so an operation
+ * on one product runs on a single shard, while listings and searches run on every shard in parallel and are merged
+ * by the caller. The shard is bound to the current thread ({@link ShardContext}), and the routing DataSource opens
+ * the connection of a transaction on the bound shard at its first statement.
+ *
+ * Without sharding there is a single shard, nothing is bound and every method runs its work directly.
+ */
+@Service
+public class ShardRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRouter.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final boolean sharded;
+    private final int shardCount;
+    private final SnowflakeIdGenerator idGenerator;
+    private final ExecutorService fanOutExecutor;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    /**
+     * Constructor for ShardRouter.
+     * @param transactionTemplate template running single-shard operations in a transaction on their shard
+     * @param enabled whether the catalog is sharded
+     * @param urls the JDBC URLs of the shards, shard 0 first; only their number is used here
+     * @param nodeId the number of this application node, unique among the nodes sharing the shards; required when
+     *               the catalog is sharded, as two nodes with the same number would hand out the same IDs
+     * @param fanOutThreads the number of threads running the per-shard parts of listings and searches
+     */
+    public ShardRouter(TransactionTemplate transactionTemplate,
+                       @Value("${store.sharding.enabled:false}") boolean enabled,
+                       @Value("${store.sharding.urls:}") List<String> urls,
+                       @Value("${store.sharding.node-id:-1}") int nodeId,
+                       @Value("${store.sharding.fan-out-threads:16}") int fanOutThreads) {
+        if (enabled && (urls.isEmpty() || urls.size() > SnowflakeIdGenerator.MAX_SHARDS)) {
+            throw new IllegalStateException("store.sharding.urls must list between 1 and "
+                    + SnowflakeIdGenerator.MAX_SHARDS + " databases.");
+        }
+        if (enabled && (nodeId < 0 || nodeId >= SnowflakeIdGenerator.MAX_NODES)) {
+            throw new IllegalStateException("store.sharding.enabled requires store.sharding.node-id, between 0 and "
+                    + (SnowflakeIdGenerator.MAX_NODES - 1) + " and unique among the nodes sharing the shards.");
+        }
+        this.transactionTemplate = transactionTemplate;
+        this.sharded = enabled;
+        this.shardCount = enabled ? urls.size() : 1;
+        this.idGenerator = enabled ? new SnowflakeIdGenerator(nodeId) : null;
+        if (shardCount > 1) {
+            AtomicInteger threads = new AtomicInteger();
+            this.fanOutExecutor = Executors.newFixedThreadPool(fanOutThreads, runnable -> {
+                Thread thread = new Thread(runnable, "shard-fan-out-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.fanOutExecutor = null;
+        }
+        if (enabled) {
+            logger.info("Product catalog sharded across {} databases, node {}", shardCount, nodeId);
+        }
+    }
+
+    /**
+     * @return whether the catalog is sharded
+     */
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    /**
+     * @return the number of shards, 1 without sharding
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Returns the shard holding a product.
+     * @param id the product ID
+     * @return the shard encoded in the ID; legacy IDs and every ID without sharding map to shard 0
+     */
+    public int shardOf(Long id) {
+        return sharded ? SnowflakeIdGenerator.shardOf(id) : 0;
+    }
+
+    /**
+     * Chooses the shard of a new product.
+     * @return the next shard in round-robin order
+     */
+    public int nextShard() {
+        return Math.floorMod(nextShard.getAndIncrement(), shardCount);
+    }
+
+    /**
+     * Routes the current transaction to a shard until it completes.
+     * Must be called before the first statement of the transaction, which opens its connection.
+     * @param shard the shard
+     * @throws IllegalStateException if sharding is enabled and no transaction is active
+     */
+    public void bind(int shard) {
+        if (!sharded) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("A shard can only be bound inside a transaction.");
+        }
+        ShardContext previous = ShardContext.bind(new ShardContext(shard, idGenerator));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                ShardContext.restore(previous);
+            }
+        });
+    }
+
+    /**
+     * Runs an operation on one shard, in a transaction of its own so that lazily loaded attributes
+     * can still be read before it returns.
+     * @param shard the shard
+     * @param work the operation
+     * @param <T> the result type
+     * @return the result of the operation
+     * @throws IllegalStateException if sharding is enabled and a transaction is already active
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        if (!sharded) {
+            return work.get();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("An operation on another shard cannot join the current transaction.");
+        }
+        return callBound(shard, () -> transactionTemplate.execute(status -> work.get()));
+    }
+
+    /**
+     * Runs an operation on every shard, in parallel when there are several.
+     * The operation runs without a transaction of its own: repository methods open one each, and the operation
+     * may use a TransactionTemplate for more. It must not fan out again.
+     * @param work the operation, given the shard number
+     * @param <T> the result type
+     * @return the results, indexed by shard
+     */
+    public <T> List<T> onEachShard(IntFunction<T> work) {
+        if (shardCount == 1) {
+            return Collections.singletonList(callBound(0, () -> work.apply(0)));
+        }
+        // Every shard runs on a pool thread, so none of them joins a transaction the caller may have open.
+        List<Future<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(fanOutExecutor.submit(() -> callBound(target, () -> work.apply(target))));
+        }
+        List<T> results = new ArrayList<>(shardCount);
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new DatabaseOperationException("Interrupted while waiting for the shards.");
+        }
+        return results;
+    }
+
+    /**
+     * Stops the fan-out threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (fanOutExecutor != null) {
+            fanOutExecutor.shutdownNow();
+        }
+    }
+
+    private <T> T callBound(int shard, Supplier<T> work) {
+        if (!sharded) {
+            return work.get();
+        }
+        ShardContext previous = ShardContext.bind(new ShardContext(shard, idGenerator));
+        try {
+            return work.get();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ro.ing.api.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Generates 64-bit product IDs that are unique across shards and application nodes without any coordination,
+ * and that carry the shard holding the product, so a product can be found from its ID alone.
+ *
+ * From the most significant bit, an ID holds a zero sign bit, 41 bits of milliseconds since 2024-01-01 UTC,
+ * 6 bits of shard, 6 bits of node and a 10-bit sequence within the millisecond: each node issues up to 1024 IDs
+ * per millisecond and IDs grow over time. IDs below {@link #LEGACY_ID_LIMIT} were assigned by the database identity
+ * column before sharding; every such product lives on shard 0.
+ */
+public class SnowflakeIdGenerator {
+
+    public static final int MAX_SHARDS = 64;
+    public static final int MAX_NODES = 64;
+
+    /**
+     * Generated IDs start above this bound: their timestamp is later than 2024-01-25.
+     */
+    public static final long LEGACY_ID_LIMIT = 1L << 53;
+
+    private static final long EPOCH_MILLIS = 1_704_067_200_000L;  // 2024-01-01T00:00:00Z
+    private static final int SEQUENCE_BITS = 10;
+    private static final int NODE_SHIFT = SEQUENCE_BITS;
+    private static final int SHARD_SHIFT = NODE_SHIFT + 6;
+    private static final int TIMESTAMP_SHIFT = SHARD_SHIFT + 6;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final int node;
+    private final LongSupplier clock;
+
+    private long lastMillis = -1;
+    private long sequence;
+
+    /**
+     * Constructor for SnowflakeIdGenerator.
+     * @param node the number of this application node, unique among the nodes writing to the same shards
+     */
+    public SnowflakeIdGenerator(int node) {
+        this(node, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(int node, LongSupplier clock) {
+        if (node < 0 || node >= MAX_NODES) {
+            throw new IllegalArgumentException("The node number must be between 0 and " + (MAX_NODES - 1) + ".");
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns a new ID for a product stored on the given shard.
+     * @param shard the shard the product is written to
+     * @return the ID, greater than every ID this generator returned before
+     */
+    public synchronized long nextId(int shard) {
+        if (shard < 0 || shard >= MAX_SHARDS) {
+            throw new IllegalArgumentException("The shard must be between 0 and " + (MAX_SHARDS - 1) + ".");
+        }
+        // A clock moved backwards is ignored, and an exhausted sequence borrows the next millisecond,
+        // so IDs stay unique and increasing either way.
+        long millis = Math.max(clock.getAsLong() - EPOCH_MILLIS, lastMillis);
+        if (millis == lastMillis) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                millis++;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastMillis = millis;
+        return millis << TIMESTAMP_SHIFT | (long) shard << SHARD_SHIFT | (long) node << NODE_SHIFT | sequence;
+    }
+
+    /**
+     * Returns the shard holding the product with the given ID.
+     * @param id a generated or legacy product ID
+     * @return the shard encoded in a generated ID, 0 for a legacy ID
+     */
+    public static int shardOf(long id) {
+        if (id < LEGACY_ID_LIMIT) {
+            return 0;
+        }
+        return (int) (id >>> SHARD_SHIFT) & (MAX_SHARDS - 1);
+    }
+}
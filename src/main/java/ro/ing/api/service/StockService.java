@@ -0,0 +1,609 @@
+package ro.ing.api.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ro.ing.api.dto.StockDTO;
+import ro.ing.api.dto.StockReservationDTO;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.event.ProductChangeType;
+import ro.ing.api.exception.InsufficientStockException;
+import ro.ing.api.exception.InvalidProductDataException;
+import ro.ing.api.exception.ProductNotFoundException;
+import ro.ing.api.exception.ReservationNotFoundException;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks product stock with reserve/commit/release semantics, shared by every application instance.
+ *
+ * {@code product_stock.on_hand} is the pool of units no instance holds. An instance leases blocks of units out of
+ * the pool with a conditional update, records the lease in {@code stock_lease} and serves reservations from a
+ * {@link StripedStockCounter} holding only its leased units, so concurrent reservations of the same product neither
+ * wait on a row lock nor can take more units than the instance leased. Every reservation is persisted in
+ * {@code stock_reservation}, and only while the lease is still held, so reservations survive a restart and can be
+ * committed or released on any instance.
+ *
+ * The holder folds settled reservations into its lease and renews it in periodic JDBC batches, and hands units it
+ * has not used for a while back to the pool. When an instance stops renewing, any instance reclaims its lease:
+ * the unreserved units go back to the pool and its open reservations are owed to the pool directly.
+ */
+@Service
+public class StockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockService.class);
+
+    private static final String COMMITTED = "COMMITTED";
+    private static final String RELEASED = "RELEASED";
+    private static final int SETTLE_ATTEMPTS = 3;
+
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shards;
+
+    /**
+     * Identifies the leases and reservations of this instance; a restarted instance starts with new leases.
+     */
+    private final String holder = UUID.randomUUID().toString();
+    private final Map<Long, Lease> leases = new ConcurrentHashMap<>();
+
+    @Value("${store.products.stock.stripes:8}")
+    private int stripes = 8;
+
+    @Value("${store.products.stock.reservation-ttl-seconds:900}")
+    private long reservationTtlSeconds = 900;
+
+    @Value("${store.products.stock.lease-block:100}")
+    private long leaseBlock = 100;
+
+    @Value("${store.products.stock.lease-ttl-seconds:30}")
+    private long leaseTtlSeconds = 30;
+
+    @Value("${store.products.stock.lease-idle-seconds:10}")
+    private long leaseIdleSeconds = 10;
+
+    /**
+     * Units of one product leased by this instance and not reserved yet.
+     * The lease is only used until a third of its time to live before it expires in the database, measured on the
+     * monotonic clock from the start of the last renewal, so it is never used once another instance may reclaim it.
+     */
+    private static final class Lease {
+        final StripedStockCounter available;
+        volatile boolean held;
+        volatile long usableUntilNanos = System.nanoTime();
+        volatile long lastUsedNanos = System.nanoTime();
+
+        Lease(int stripes) {
+            this.available = new StripedStockCounter(stripes, 0);
+        }
+
+        boolean isUsable() {
+            return System.nanoTime() - usableUntilNanos < 0;
+        }
+    }
+
+    private record Reservation(UUID id, Long productId, long quantity, String holder) {
+    }
+
+    /**
+     * Constructor for StockService.
+     * @param transactionTemplate template for the stock transactions
+     * @param jdbcTemplate template for the stock, lease and reservation statements
+     * @param shards router sending the stock reads and writes of a product to the shard holding the product
+     */
+    public StockService(TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate, ShardRouter shards) {
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+    }
+
+    /**
+     * Returns the current stock of a product across all instances.
+     * @param productId the ID of the product
+     * @return the on-hand, reserved and available quantities
+     * @throws ProductNotFoundException if the product does not exist
+     */
+    public StockDTO getStock(Long productId) {
+        ensureStockRow(productId);
+        return inTransaction(productId, status -> jdbcTemplate.queryForObject("""
+                SELECT s.on_hand,
+                       (SELECT COALESCE(SUM(l.units), 0) FROM stock_lease l WHERE l.product_id = s.product_id),
+                       (SELECT COALESCE(SUM(r.quantity), 0) FROM stock_reservation r
+                        WHERE r.product_id = s.product_id AND r.status = 'OPEN'),
+                       (SELECT COALESCE(SUM(r.quantity), 0) FROM stock_reservation r
+                        WHERE r.product_id = s.product_id AND r.status = 'OPEN' AND r.holder IS NULL),
+                       (SELECT COALESCE(SUM(r.quantity), 0) FROM stock_reservation r
+                        WHERE r.product_id = s.product_id AND r.status = 'COMMITTED')
+                FROM product_stock s WHERE s.product_id = ?""", (rs, row) -> {
+            // Leases still count sold units until their holder folds the committed reservations in.
+            long onHand = rs.getLong(1) + rs.getLong(2) + rs.getLong(4) - rs.getLong(5);
+            long reserved = rs.getLong(3);
+            return new StockDTO(productId, onHand, reserved, onHand - reserved);
+        }, productId));
+    }
+
+    /**
+     * Adds units to (positive delta) or removes units from (negative delta) the stock of a product,
+     * e.g. for deliveries or inventory corrections. Reserved units cannot be removed.
+     * @param productId the ID of the product
+     * @param delta the change of the on-hand quantity
+     * @return the stock after the adjustment
+     * @throws InsufficientStockException if more units are removed than are available
+     */
+    public StockDTO adjustStock(Long productId, long delta) {
+        ensureStockRow(productId);
+        if (delta > 0) {
+            inTransaction(productId, status -> jdbcTemplate.update(
+                    "UPDATE product_stock SET on_hand = on_hand + ? WHERE product_id = ?", delta, productId));
+        } else if (delta < 0 && !removeFromPool(productId, -delta)) {
+            // Units this instance leased but has not reserved may cover the rest.
+            Lease lease = leases.get(productId);
+            if (lease != null) {
+                synchronized (lease) {
+                    returnToPool(productId, lease, lease.available.drain());
+                }
+            }
+            if (!removeFromPool(productId, -delta)) {
+                throw new InsufficientStockException("Cannot remove " + -delta
+                        + " units, not enough unleased stock; other instances return unused leased units after "
+                        + leaseIdleSeconds + " seconds.");
+            }
+        }
+        logger.info("Adjusted stock of product {} by {}", productId, delta);
+        return getStock(productId);
+    }
+
+    /**
+     * Reserves units of a product until they are committed, released or the reservation expires.
+     * @param productId the ID of the product
+     * @param quantity the number of units to reserve
+     * @return the reservation
+     * @throws InvalidProductDataException if the quantity is not positive
+     * @throws InsufficientStockException if neither this instance's lease nor the pool holds enough units
+     */
+    public StockReservationDTO reserve(Long productId, long quantity) {
+        if (quantity <= 0) {
+            throw new InvalidProductDataException("Reserved quantity must be positive.");
+        }
+        while (true) {
+            // Creating the lease state never touches the database; units are only leased below, outside the map.
+            Lease lease = leases.computeIfAbsent(productId, id -> new Lease(stripes));
+            if (!(lease.isUsable() && lease.available.tryTake(quantity)) && !acquire(productId, lease, quantity)) {
+                continue;
+            }
+            lease.lastUsedNanos = System.nanoTime();
+
+            UUID reservationId = UUID.randomUUID();
+            Instant expiresAt = Instant.now().plusSeconds(reservationTtlSeconds);
+            int inserted;
+            try {
+                // Only recorded while the lease is unexpired in the database, so a reclaimed lease cannot be used.
+                inserted = inTransaction(productId, status -> jdbcTemplate.update("""
+                        INSERT INTO stock_reservation (id, product_id, quantity, holder, status, expires_at)
+                        SELECT ?, product_id, ?, holder, 'OPEN', ? FROM stock_lease
+                        WHERE product_id = ? AND holder = ? AND expires_at > ?""",
+                        reservationId, quantity, toLocal(expiresAt), productId, holder, LocalDateTime.now()));
+            } catch (RuntimeException e) {
+                lease.available.add(quantity);
+                throw e;
+            }
+            if (inserted == 1) {
+                return new StockReservationDTO(reservationId, productId, quantity, expiresAt);
+            }
+            logger.warn("Lease of product {} was reclaimed by another instance, leasing again", productId);
+            forget(productId, lease);
+        }
+    }
+
+    /**
+     * Commits a reservation: its units are sold and leave the on-hand stock.
+     * @param reservationId the ID of the reservation
+     * @throws ReservationNotFoundException if the reservation was already committed, released or has expired
+     */
+    public void commit(UUID reservationId) {
+        settle(reservationId, true);
+    }
+
+    /**
+     * Releases a reservation: its units become available again.
+     * @param reservationId the ID of the reservation
+     * @throws ReservationNotFoundException if the reservation was already committed, released or has expired
+     */
+    public void release(UUID reservationId) {
+        settle(reservationId, false);
+    }
+
+    /**
+     * Releases every reservation whose time to live has passed and reclaims the leases of instances that stopped
+     * renewing them.
+     */
+    @Scheduled(fixedDelayString = "${store.products.stock.reservation-sweep-ms:30000}")
+    public void expireReservations() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Integer> expired = shards.onEachShard(shard -> {
+            int released = jdbcTemplate.update("UPDATE stock_reservation SET status = 'RELEASED' "
+                    + "WHERE status = 'OPEN' AND holder IS NOT NULL AND expires_at < ?", now);
+            List<Reservation> owedToPool = jdbcTemplate.query("SELECT id, product_id, quantity FROM stock_reservation "
+                    + "WHERE status = 'OPEN' AND holder IS NULL AND expires_at < ?", (rs, row) -> new Reservation(
+                    rs.getObject(1, UUID.class), rs.getLong(2), rs.getLong(3), null), now);
+            for (Reservation reservation : owedToPool) {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> settleRow(reservation, false, false)))) {
+                    released++;
+                }
+            }
+            reclaimExpiredLeases(now.minusSeconds(leaseTtlSeconds));
+            return released;
+        });
+        int total = expired.stream().mapToInt(Integer::intValue).sum();
+        if (total > 0) {
+            logger.info("Released {} expired stock reservations", total);
+        }
+        reconcile();
+    }
+
+    /**
+     * Folds the settled reservations of this instance into its leases and renews them, in one JDBC batch per shard,
+     * then hands units that were not used for a while back to the pool.
+     */
+    @Scheduled(fixedDelayString = "${store.products.stock.reconcile-interval-ms:1000}")
+    public synchronized void reconcile() {
+        Map<Integer, List<Long>> productsByShard = new HashMap<>();
+        leases.forEach((productId, lease) -> {
+            if (lease.held) {
+                productsByShard.computeIfAbsent(shards.shardOf(productId), shard -> new ArrayList<>()).add(productId);
+            }
+        });
+        for (int shard = 0; shard < shards.getShardCount(); shard++) {
+            List<Long> products = productsByShard.getOrDefault(shard, List.of());
+            try {
+                renew(shard, products);
+            } catch (RuntimeException e) {
+                logger.error("Renewing the stock leases of shard {} failed, retrying on the next pass", shard, e);
+            }
+        }
+        long idleBefore = System.nanoTime() - TimeUnit.SECONDS.toNanos(leaseIdleSeconds);
+        leases.forEach((productId, lease) -> {
+            if (lease.lastUsedNanos - idleBefore < 0) {
+                synchronized (lease) {
+                    try {
+                        returnToPool(productId, lease, lease.available.drain());
+                    } catch (RuntimeException e) {
+                        logger.error("Returning the leased stock of product {} failed", productId, e);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Settles what this instance can and hands its unreserved units back to the pool before the context closes.
+     * Open reservations stay in its leases until they are settled or another instance reclaims the leases.
+     */
+    @PreDestroy
+    public void shutdown() {
+        reconcile();
+        leases.forEach((productId, lease) -> {
+            synchronized (lease) {
+                try {
+                    returnToPool(productId, lease, lease.available.drain());
+                } catch (RuntimeException e) {
+                    logger.error("Returning the leased stock of product {} failed", productId, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops the lease state of deleted products; their rows are removed by the foreign key cascade.
+     * @param event the committed product change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        if (event.getType() == ProductChangeType.DELETED) {
+            leases.remove(event.getProductId());
+        }
+    }
+
+    /**
+     * Leases units from the pool and takes the quantity from the lease. At most one thread per product leases
+     * at a time, and it takes a block, or half of what is left in the pool when that is less, so that other
+     * instances keep a share of scarce stock.
+     * @return false if the lease state was dropped meanwhile and the caller has to look it up again
+     */
+    private boolean acquire(Long productId, Lease lease, long quantity) {
+        synchronized (lease) {
+            if (leases.get(productId) != lease) {
+                return false;
+            }
+            if (lease.isUsable() && lease.available.tryTake(quantity)) {
+                return true;
+            }
+            ensureStockRow(productId);
+            long renewedAt = System.nanoTime();
+            LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(leaseTtlSeconds);
+            long[] leased = inTransaction(productId, status -> {
+                Long pool = jdbcTemplate.queryForObject(
+                        "SELECT on_hand FROM product_stock WHERE product_id = ? FOR UPDATE", Long.class, productId);
+                long units = Math.min(Objects.requireNonNull(pool),
+                        Math.max(quantity, Math.min(leaseBlock, pool / 2)));
+                if (units > 0 && jdbcTemplate.update("UPDATE product_stock SET on_hand = on_hand - ? "
+                        + "WHERE product_id = ? AND on_hand >= ?", units, productId, units) == 0) {
+                    units = 0;
+                }
+                int renewed = jdbcTemplate.update("UPDATE stock_lease SET units = units + ?, expires_at = ? "
+                        + "WHERE product_id = ? AND holder = ?", units, expiresAt, productId, holder);
+                if (renewed == 0 && units > 0) {
+                    jdbcTemplate.update("INSERT INTO stock_lease (product_id, holder, units, expires_at) "
+                            + "VALUES (?, ?, ?, ?)", productId, holder, units, expiresAt);
+                }
+                return new long[]{units, renewed};
+            });
+            if (leased[1] == 0) {
+                // The lease was gone, reclaimed together with any units this instance still counted.
+                lease.available.drain();
+            }
+            lease.available.add(leased[0]);
+            lease.held = leased[1] > 0 || leased[0] > 0;
+            lease.usableUntilNanos = renewedAt + usableNanos();
+            if (!lease.available.tryTake(quantity)) {
+                throw new InsufficientStockException("Not enough stock available for product " + productId + ".");
+            }
+            return true;
+        }
+    }
+
+    private void settle(UUID reservationId, boolean commit) {
+        for (int attempt = 0; attempt < SETTLE_ATTEMPTS; attempt++) {
+            Reservation reservation = findOpenReservation(reservationId);
+            if (reservation == null) {
+                break;
+            }
+            Lease lease = !commit && holder.equals(reservation.holder()) ? leases.get(reservation.productId()) : null;
+            Boolean settled = inTransaction(reservation.productId(),
+                    status -> settleRow(reservation, commit, lease != null));
+            if (Boolean.TRUE.equals(settled)) {
+                if (lease != null) {
+                    lease.available.add(reservation.quantity());
+                }
+                return;
+            }
+            // The reservation was settled or its lease reclaimed concurrently; look at it again.
+        }
+        throw new ReservationNotFoundException("Reservation not found or expired");
+    }
+
+    /**
+     * Settles an open reservation in the current transaction, depending on who owes its units.
+     * A reservation of this instance released back into its local lease state is deleted; other reservations
+     * of a lease are marked for the holder to fold in; a reservation whose lease was reclaimed settles against
+     * the pool.
+     * @param local whether the caller puts the released units back into its lease state after the commit
+     * @return whether the reservation was still open as read
+     */
+    private boolean settleRow(Reservation reservation, boolean commit, boolean local) {
+        if (reservation.holder() == null) {
+            // Lock order everywhere: product_stock, then stock_lease, then stock_reservation.
+            jdbcTemplate.queryForObject("SELECT on_hand FROM product_stock WHERE product_id = ? FOR UPDATE",
+                    Long.class, reservation.productId());
+            if (jdbcTemplate.update("DELETE FROM stock_reservation WHERE id = ? AND holder IS NULL AND status = 'OPEN'",
+                    reservation.id()) == 0) {
+                return false;
+            }
+            if (!commit) {
+                jdbcTemplate.update("UPDATE product_stock SET on_hand = on_hand + ? WHERE product_id = ?",
+                        reservation.quantity(), reservation.productId());
+            }
+            return true;
+        }
+        if (local) {
+            return jdbcTemplate.update("DELETE FROM stock_reservation WHERE id = ? AND holder = ? AND status = 'OPEN'",
+                    reservation.id(), holder) == 1;
+        }
+        return jdbcTemplate.update("UPDATE stock_reservation SET status = ? WHERE id = ? AND holder = ? "
+                + "AND status = 'OPEN'", commit ? COMMITTED : RELEASED, reservation.id(), reservation.holder()) == 1;
+    }
+
+    private Reservation findOpenReservation(UUID reservationId) {
+        return shards.onEachShard(shard -> jdbcTemplate.query(
+                        "SELECT product_id, quantity, holder FROM stock_reservation WHERE id = ? AND status = 'OPEN'",
+                        (rs, row) -> new Reservation(reservationId, rs.getLong(1), rs.getLong(2), rs.getString(3)),
+                        reservationId))
+                .stream().flatMap(List::stream).findFirst().orElse(null);
+    }
+
+    /**
+     * Renews the leases of this instance on one shard and folds its settled reservations into them:
+     * committed units leave the lease, released units return to the counter.
+     */
+    private void renew(int shard, List<Long> products) {
+        long renewedAt = System.nanoTime();
+        LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(leaseTtlSeconds);
+        Map<Long, long[]> settled = new HashMap<>();
+        int[] renewed = shards.onShard(shard, () -> transactionTemplate.execute(status -> {
+            jdbcTemplate.query("SELECT product_id FROM stock_lease WHERE holder = ? FOR UPDATE",
+                    (rs, row) -> null, holder);
+            List<Object[]> rows = jdbcTemplate.query("SELECT id, product_id, quantity, status FROM stock_reservation "
+                    + "WHERE holder = ? AND status <> 'OPEN' FOR UPDATE", (rs, row) -> new Object[]{
+                    rs.getObject(1, UUID.class), rs.getLong(2), rs.getLong(3), rs.getString(4)}, holder);
+            for (Object[] row : rows) {
+                long[] soldAndFreed = settled.computeIfAbsent((Long) row[1], id -> new long[2]);
+                soldAndFreed[COMMITTED.equals(row[3]) ? 0 : 1] += (Long) row[2];
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate("DELETE FROM stock_reservation WHERE id = ?",
+                        rows.stream().map(row -> new Object[]{row[0]}).toList());
+            }
+
+            List<Long> touched = new ArrayList<>(products);
+            settled.keySet().stream().filter(productId -> !products.contains(productId)).forEach(touched::add);
+            if (touched.isEmpty()) {
+                return new int[0];
+            }
+            return jdbcTemplate.batchUpdate("UPDATE stock_lease SET units = units - ?, expires_at = ? "
+                    + "WHERE product_id = ? AND holder = ?", touched.stream().map(productId -> new Object[]{
+                    settled.getOrDefault(productId, new long[2])[0], expiresAt, productId, holder}).toList());
+        }));
+
+        int index = 0;
+        for (Long productId : products) {
+            Lease lease = leases.get(productId);
+            if (lease == null) {
+                index++;
+                continue;
+            }
+            if (renewed[index++] == 0) {
+                forget(productId, lease);
+            } else {
+                lease.usableUntilNanos = renewedAt + usableNanos();
+                lease.available.add(settled.getOrDefault(productId, new long[2])[1]);
+            }
+        }
+        // Released units of products without lease state here are no use to this instance; the pool gets them.
+        settled.forEach((productId, soldAndFreed) -> {
+            if (!products.contains(productId) && soldAndFreed[1] > 0) {
+                returnToPool(productId, null, soldAndFreed[1]);
+            }
+        });
+        if (!settled.isEmpty()) {
+            logger.debug("Folded settled reservations of {} products into their leases", settled.size());
+        }
+    }
+
+    /**
+     * Returns units of the lease of this instance to the pool and drops the lease once nothing is left in it.
+     * @param lease the local lease state, dropped with the lease row; null if there is none
+     */
+    private void returnToPool(Long productId, Lease lease, long units) {
+        if (units <= 0) {
+            return;
+        }
+        Boolean dropped;
+        try {
+            dropped = inTransaction(productId, status -> {
+                jdbcTemplate.queryForObject("SELECT on_hand FROM product_stock WHERE product_id = ? FOR UPDATE",
+                        Long.class, productId);
+                if (jdbcTemplate.update("UPDATE stock_lease SET units = units - ? WHERE product_id = ? AND holder = ?",
+                        units, productId, holder) == 0) {
+                    // Reclaimed meanwhile; the pool already got these units back.
+                    return true;
+                }
+                jdbcTemplate.update("UPDATE product_stock SET on_hand = on_hand + ? WHERE product_id = ?",
+                        units, productId);
+                return jdbcTemplate.update("DELETE FROM stock_lease WHERE product_id = ? AND holder = ? AND units = 0",
+                        productId, holder) == 1;
+            });
+        } catch (RuntimeException e) {
+            if (lease != null) {
+                lease.available.add(units);
+            }
+            throw e;
+        }
+        if (lease != null && Boolean.TRUE.equals(dropped)) {
+            leases.remove(productId, lease);
+        }
+    }
+
+    /**
+     * Moves the leases that expired before the given time back to the pool, on the current shard. Units that are
+     * neither reserved nor sold return to the pool at once; open reservations are kept and owed to the pool.
+     */
+    private void reclaimExpiredLeases(LocalDateTime expiredBefore) {
+        List<Object[]> expired = jdbcTemplate.query("SELECT product_id, holder FROM stock_lease WHERE expires_at < ?",
+                (rs, row) -> new Object[]{rs.getLong(1), rs.getString(2)}, expiredBefore);
+        for (Object[] lease : expired) {
+            Long productId = (Long) lease[0];
+            String owner = (String) lease[1];
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.queryForObject("SELECT on_hand FROM product_stock WHERE product_id = ? FOR UPDATE",
+                        Long.class, productId);
+                List<Long> units = jdbcTemplate.queryForList("SELECT units FROM stock_lease "
+                        + "WHERE product_id = ? AND holder = ? AND expires_at < ? FOR UPDATE",
+                        Long.class, productId, owner, expiredBefore);
+                if (units.isEmpty()) {
+                    return;
+                }
+                long owed = 0;
+                for (Map<String, Object> row : jdbcTemplate.queryForList("SELECT quantity, status "
+                        + "FROM stock_reservation WHERE product_id = ? AND holder = ? FOR UPDATE", productId, owner)) {
+                    if (!RELEASED.equals(row.get("status"))) {
+                        owed += ((Number) row.get("quantity")).longValue();
+                    }
+                }
+                jdbcTemplate.update("UPDATE product_stock SET on_hand = on_hand + ? WHERE product_id = ?",
+                        units.get(0) - owed, productId);
+                jdbcTemplate.update("DELETE FROM stock_reservation WHERE product_id = ? AND holder = ? "
+                        + "AND status <> 'OPEN'", productId, owner);
+                jdbcTemplate.update("UPDATE stock_reservation SET holder = NULL WHERE product_id = ? AND holder = ?",
+                        productId, owner);
+                jdbcTemplate.update("DELETE FROM stock_lease WHERE product_id = ? AND holder = ?", productId, owner);
+            });
+            logger.warn("Reclaimed the expired stock lease of instance {} on product {}", owner, productId);
+        }
+    }
+
+    /**
+     * Drops local lease state whose units no longer belong to this instance.
+     */
+    private void forget(Long productId, Lease lease) {
+        synchronized (lease) {
+            lease.available.drain();
+            lease.usableUntilNanos = System.nanoTime();
+            leases.remove(productId, lease);
+        }
+    }
+
+    /**
+     * Creates the stock row of a product on first use.
+     * @throws ProductNotFoundException if the product does not exist
+     */
+    private void ensureStockRow(Long productId) {
+        try {
+            inTransaction(productId, status -> {
+                if (jdbcTemplate.queryForList("SELECT 1 FROM product_stock WHERE product_id = ?", Integer.class,
+                        productId).isEmpty()
+                        && jdbcTemplate.update("INSERT INTO product_stock (product_id, on_hand) "
+                        + "SELECT id, 0 FROM product WHERE id = ?", productId) == 0) {
+                    throw new ProductNotFoundException("Product not found");
+                }
+                return null;
+            });
+        } catch (DuplicateKeyException e) {
+            // Created concurrently.
+        }
+    }
+
+    private boolean removeFromPool(Long productId, long units) {
+        return inTransaction(productId, status -> jdbcTemplate.update("UPDATE product_stock SET on_hand = on_hand - ? "
+                + "WHERE product_id = ? AND on_hand >= ?", units, productId, units)) == 1;
+    }
+
+    private long usableNanos() {
+        return TimeUnit.SECONDS.toNanos(leaseTtlSeconds) * 2 / 3;
+    }
+
+    private <T> T inTransaction(Long productId, TransactionCallback<T> work) {
+        return shards.onShard(shards.shardOf(productId), () -> transactionTemplate.execute(work));
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,117 @@
+package ro.ing.api.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Non-negative unit counter split into independent stripes, so that concurrent takers rarely contend.
+ *
+ * Each thread starts at its own stripe and only moves on to the others when its stripe runs dry.
+ * No stripe ever drops below zero and a take either removes the full quantity or nothing,
+ * so the counter can never hand out more units than were added, nor refuse units it holds.
+ */
+public class StripedStockCounter {
+
+    /**
+     * Distance between two stripes in the backing array, keeping every stripe on its own 64-byte cache line.
+     */
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+    private final int stripes;
+
+    /**
+     * Constructor for StripedStockCounter.
+     * @param stripes the number of stripes
+     * @param initial the initial number of units
+     */
+    public StripedStockCounter(int stripes, long initial) {
+        if (stripes < 1 || initial < 0) {
+            throw new IllegalArgumentException("At least one stripe and a non-negative initial count are required.");
+        }
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        long share = initial / stripes;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            cells.set(stripe * PADDING, share);
+        }
+        cells.addAndGet(0, initial - share * stripes);
+    }
+
+    /**
+     * Removes the given number of units if that many are available.
+     * A take first tries to remove the whole quantity from a single stripe, starting at the calling thread's own.
+     * When no stripe holds enough on its own, it gathers every stripe under a lock and decides on the total,
+     * so it only fails when the units really are not there.
+     * @param quantity the number of units to remove, must be positive
+     * @return true if all units were removed, false if none were
+     */
+    public boolean tryTake(long quantity) {
+        int home = homeStripe();
+        for (int step = 0; step < stripes; step++) {
+            int index = ((home + step) % stripes) * PADDING;
+            long current;
+            while ((current = cells.get(index)) >= quantity) {
+                if (cells.compareAndSet(index, current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+        return takeGathered(quantity);
+    }
+
+    /**
+     * Adds units to the calling thread's stripe.
+     * @param quantity the number of units to add, must be positive
+     */
+    public void add(long quantity) {
+        cells.addAndGet(homeStripe() * PADDING, quantity);
+    }
+
+    /**
+     * Returns the number of available units; only exact while no takes or adds are in progress.
+     * @return the sum of all stripes
+     */
+    public long sum() {
+        long sum = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            sum += cells.get(stripe * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * Removes every available unit.
+     * @return the number of units removed
+     */
+    public synchronized long drain() {
+        return gather();
+    }
+
+    /**
+     * Slow path of {@link #tryTake(long)}. Fast-path takes never hold units from more than one stripe, so while
+     * the lock is held no units are in flight and the gathered total is exact.
+     */
+    private synchronized boolean takeGathered(long quantity) {
+        long total = gather();
+        boolean taken = total >= quantity;
+        long rest = taken ? total - quantity : total;
+        long share = rest / stripes;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            cells.addAndGet(stripe * PADDING, share);
+        }
+        cells.addAndGet(0, rest - share * stripes);
+        return taken;
+    }
+
+    private long gather() {
+        long total = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            total += cells.getAndSet(stripe * PADDING, 0);
+        }
+        return total;
+    }
+
+    private int homeStripe() {
+        return (int) (Thread.currentThread().getId() % stripes);
+    }
+}
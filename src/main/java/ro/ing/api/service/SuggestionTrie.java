@@ -0,0 +1,446 @@
+package ro.ing.api.service;
+
+import ro.ing.api.dto.ProductSuggestionDTO;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prefix index of product names returning the most popular matches first.
+ *
+ * Every word start of a normalized name is a key, so "apple juice" is found by both {@code app} and {@code jui}.
+ * Keys live in a radix trie whose edges carry whole label strings, and every node caches the top entries of its
+ * subtree: a lookup walks at most the length of the prefix and copies a ready-made list, however many products match.
+ * A change re-ranks only the nodes on the paths of the product's keys.
+ *
+ * Writers are serialized. Readers take no lock: nodes publish their children and cached top entries as immutable
+ * arrays, and a node whose label changes is replaced rather than modified, so a lookup running alongside a change
+ * sees either the old or the new state of every node it visits.
+ */
+public class SuggestionTrie {
+
+    /**
+     * Maximum number of words of a name that start a key, bounding the index size of very long names.
+     */
+    private static final int MAX_KEYS_PER_NAME = 8;
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final ProductSuggestionDTO[] NO_ENTRIES = new ProductSuggestionDTO[0];
+
+    private static final Comparator<ProductSuggestionDTO> RANKING =
+            Comparator.comparingLong(ProductSuggestionDTO::getPopularity).reversed()
+                    .thenComparing(ProductSuggestionDTO::getName, String.CASE_INSENSITIVE_ORDER)
+                    .thenComparing(ProductSuggestionDTO::getId);
+
+    private static final class Node {
+        final String label;
+        volatile Node[] children = NO_CHILDREN;
+        volatile ProductSuggestionDTO[] top = NO_ENTRIES;
+
+        /**
+         * Products with a key ending at this node; only accessed by writers.
+         */
+        Set<Long> ids;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Copies this node under another label, used when an edge is split or two edges are merged.
+         */
+        Node relabel(String newLabel) {
+            Node copy = new Node(newLabel);
+            copy.children = children;
+            copy.top = top;
+            copy.ids = ids;
+            return copy;
+        }
+
+        /**
+         * Binary-searches children by the first character of their label; callers pass the array they read once,
+         * since a writer may publish a new one in between.
+         */
+        static int childIndex(Node[] children, char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].label.charAt(0);
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+
+    private final int capacity;
+    private final Node root = new Node("");
+    private final Map<Long, ProductSuggestionDTO> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for SuggestionTrie.
+     * @param capacity the number of top entries cached per node, which is the largest limit a lookup can use
+     */
+    public SuggestionTrie(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be at least 1.");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Builds a trie from many products at once, ranking every node a single time instead of once per insertion.
+     * @param capacity the number of top entries cached per node
+     * @param products the products to index
+     * @return the new trie
+     */
+    public static SuggestionTrie build(int capacity, Iterable<ProductSuggestionDTO> products) {
+        SuggestionTrie trie = new SuggestionTrie(capacity);
+        synchronized (trie) {
+            for (ProductSuggestionDTO product : products) {
+                if (product.getName() != null && trie.entries.putIfAbsent(product.getId(), product) == null) {
+                    for (String key : keys(product.getName())) {
+                        trie.insert(product.getId(), key, null);
+                    }
+                }
+            }
+            trie.rankSubtree(trie.root);
+        }
+        return trie;
+    }
+
+    /**
+     * Normalizes text the way names are indexed: accents removed, lower case, runs of anything other than
+     * letters and digits collapsed into single spaces.
+     * @param text the text to normalize
+     * @return the normalized text, empty if it contains no letter or digit
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean separator = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (separator && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                separator = false;
+                normalized.append(Character.toLowerCase(c));
+            } else {
+                separator = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Returns the most popular products having a word that starts with the prefix.
+     * @param prefix the text typed so far
+     * @param limit the maximum number of results, capped at the capacity
+     * @return the matching products, most popular first
+     */
+    public List<ProductSuggestionDTO> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            Node[] children = node.children;
+            int index = Node.childIndex(children, key.charAt(position));
+            if (index < 0) {
+                return List.of();
+            }
+            Node child = children[index];
+            int remaining = key.length() - position;
+            if (remaining <= child.label.length()) {
+                return child.label.regionMatches(0, key, position, remaining) ? take(child.top, limit) : List.of();
+            }
+            if (!key.regionMatches(position, child.label, 0, child.label.length())) {
+                return List.of();
+            }
+            position += child.label.length();
+            node = child;
+        }
+        return take(node.top, limit);
+    }
+
+    /**
+     * Returns the indexed entry of a product.
+     * @param id the ID of the product
+     * @return the entry, or null if the product is not indexed
+     */
+    public ProductSuggestionDTO get(Long id) {
+        return entries.get(id);
+    }
+
+    /**
+     * Returns the number of indexed products.
+     * @return the number of products
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Adds a product or replaces its name and popularity.
+     * @param id the ID of the product
+     * @param name the name of the product
+     * @param popularity the popularity of the product
+     */
+    public synchronized void put(Long id, String name, long popularity) {
+        ProductSuggestionDTO previous = entries.get(id);
+        if (previous != null && previous.getName().equals(name)) {
+            if (previous.getPopularity() != popularity) {
+                rerank(new ProductSuggestionDTO(id, name, popularity));
+            }
+            return;
+        }
+        if (previous != null) {
+            remove(id);
+        }
+        if (name == null) {
+            return;
+        }
+        entries.put(id, new ProductSuggestionDTO(id, name, popularity));
+        for (String key : keys(name)) {
+            List<Node> path = new ArrayList<>();
+            insert(id, key, path);
+            for (int i = path.size() - 1; i >= 0; i--) {
+                rank(path.get(i));
+            }
+        }
+    }
+
+    /**
+     * Adds to the popularity of a product.
+     * @param id the ID of the product
+     * @param delta the amount to add
+     * @return false if the product is not indexed
+     */
+    public synchronized boolean addPopularity(Long id, long delta) {
+        ProductSuggestionDTO previous = entries.get(id);
+        if (previous == null) {
+            return false;
+        }
+        rerank(new ProductSuggestionDTO(id, previous.getName(), previous.getPopularity() + delta));
+        return true;
+    }
+
+    /**
+     * Removes a product.
+     * @param id the ID of the product
+     */
+    public synchronized void remove(Long id) {
+        ProductSuggestionDTO previous = entries.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String key : keys(previous.getName())) {
+            List<Node> path = find(key);
+            if (path == null) {
+                continue;
+            }
+            Node terminal = path.get(path.size() - 1);
+            terminal.ids.remove(id);
+            for (int i = path.size() - 1; i > 0; i--) {
+                compact(path.get(i - 1), path.get(i));
+            }
+            rank(root);
+        }
+    }
+
+    /**
+     * Replaces the entry of a product with the same name and re-ranks the nodes on its keys' paths.
+     */
+    private void rerank(ProductSuggestionDTO entry) {
+        entries.put(entry.getId(), entry);
+        for (String key : keys(entry.getName())) {
+            List<Node> path = find(key);
+            if (path != null) {
+                for (int i = path.size() - 1; i >= 0; i--) {
+                    rank(path.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts a key, splitting an edge where the key leaves it, and collects the nodes from the root to the key.
+     */
+    private void insert(Long id, String key, List<Node> path) {
+        Node node = root;
+        if (path != null) {
+            path.add(node);
+        }
+        int position = 0;
+        while (position < key.length()) {
+            Node[] current = node.children;
+            int index = Node.childIndex(current, key.charAt(position));
+            Node child;
+            if (index < 0) {
+                child = new Node(key.substring(position));
+                int at = -index - 1;
+                Node[] updated = new Node[current.length + 1];
+                System.arraycopy(current, 0, updated, 0, at);
+                updated[at] = child;
+                System.arraycopy(current, at, updated, at + 1, current.length - at);
+                node.children = updated;
+            } else {
+                child = current[index];
+                int common = commonPrefixLength(child.label, key, position);
+                if (common < child.label.length()) {
+                    Node lower = child.relabel(child.label.substring(common));
+                    Node split = new Node(child.label.substring(0, common));
+                    split.children = new Node[]{lower};
+                    split.top = lower.top;
+                    replaceChild(node, index, split);
+                    child = split;
+                }
+            }
+            position += child.label.length();
+            node = child;
+            if (path != null) {
+                path.add(node);
+            }
+        }
+        if (node.ids == null) {
+            node.ids = new HashSet<>(2);
+        }
+        node.ids.add(id);
+    }
+
+    /**
+     * Returns the nodes from the root to an indexed key, or null if the key is not indexed.
+     */
+    private List<Node> find(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int position = 0;
+        while (position < key.length()) {
+            Node[] children = node.children;
+            int index = Node.childIndex(children, key.charAt(position));
+            if (index < 0) {
+                return null;
+            }
+            node = children[index];
+            if (!key.startsWith(node.label, position)) {
+                return null;
+            }
+            position += node.label.length();
+            path.add(node);
+        }
+        return path;
+    }
+
+    /**
+     * Drops a node left without products or children, merges a node left with a single child and no products
+     * into that child, and otherwise re-ranks it.
+     */
+    private void compact(Node parent, Node node) {
+        boolean empty = node.ids == null || node.ids.isEmpty();
+        Node[] children = node.children;
+        int index = Node.childIndex(parent.children, node.label.charAt(0));
+        if (empty && children.length == 0) {
+            Node[] current = parent.children;
+            Node[] updated = new Node[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            parent.children = updated;
+        } else if (empty && children.length == 1) {
+            replaceChild(parent, index, children[0].relabel(node.label + children[0].label));
+        } else {
+            rank(node);
+        }
+    }
+
+    private static void replaceChild(Node parent, int index, Node child) {
+        Node[] updated = parent.children.clone();
+        updated[index] = child;
+        parent.children = updated;
+    }
+
+    private void rankSubtree(Node node) {
+        for (Node child : node.children) {
+            rankSubtree(child);
+        }
+        rank(node);
+    }
+
+    /**
+     * Recomputes the top entries of a node from its own products and the top entries of its children.
+     */
+    private void rank(Node node) {
+        List<ProductSuggestionDTO> candidates = new ArrayList<>();
+        if (node.ids != null) {
+            for (Long id : node.ids) {
+                // Null while a removed product's other keys are still being unlinked.
+                ProductSuggestionDTO entry = entries.get(id);
+                if (entry != null) {
+                    candidates.add(entry);
+                }
+            }
+        }
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        candidates.sort(RANKING);
+        List<ProductSuggestionDTO> top = new ArrayList<>(Math.min(capacity, candidates.size()));
+        for (ProductSuggestionDTO candidate : candidates) {
+            if (top.size() == capacity) {
+                break;
+            }
+            // A product reaches a node once per key below it; keep its best ranked entry.
+            if (top.stream().noneMatch(entry -> entry.getId().equals(candidate.getId()))) {
+                top.add(candidate);
+            }
+        }
+        node.top = top.toArray(NO_ENTRIES);
+    }
+
+    private static List<ProductSuggestionDTO> take(ProductSuggestionDTO[] top, int limit) {
+        return Arrays.asList(top).subList(0, Math.min(limit, top.length));
+    }
+
+    private static int commonPrefixLength(String label, String key, int position) {
+        int length = Math.min(label.length(), key.length() - position);
+        int i = 0;
+        while (i < length && label.charAt(i) == key.charAt(position + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the keys of a name: the normalized name from each of its first words on.
+     */
+    private static List<String> keys(String name) {
+        String normalized = normalize(name);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < normalized.length() && keys.size() < MAX_KEYS_PER_NAME; i++) {
+            if (i == 0 || normalized.charAt(i - 1) == ' ') {
+                keys.add(normalized.substring(i));
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,244 @@
+package ro.ing.api.service;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ro.ing.api.dto.SpanDTO;
+import ro.ing.api.dto.TraceDTO;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-memory store of finished traces, served by the {@code traces} actuator endpoint.
+ *
+ * Registered with Brave as a span handler: finished spans are collected per local root and the trace is assembled
+ * when its root span ends. Traces chosen by the head sampler are kept in one ring buffer. With tail sampling enabled,
+ * every request is recorded locally and traces slower than the threshold or ending in an error are kept in a second
+ * ring buffer whatever the head sampler decided, so latency outliers are not crowded out by ordinary traffic.
+ * Nothing leaves the process; spans are exported to Zipkin only when a reporter is configured.
+ */
+@Service
+public class TraceStore extends SpanHandler {
+
+    private static final long ORPHAN_AGE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * Fixed-size ring of traces; the oldest trace is overwritten once the ring is full.
+     */
+    private static final class TraceRing {
+        private final AtomicReferenceArray<TraceDTO> slots;
+        private final AtomicLong next = new AtomicLong();
+
+        TraceRing(int capacity) {
+            this.slots = new AtomicReferenceArray<>(Math.max(1, capacity));
+        }
+
+        void add(TraceDTO trace) {
+            slots.set((int) (next.getAndIncrement() % slots.length()), trace);
+        }
+
+        void collect(Map<String, TraceDTO> into) {
+            for (int i = 0; i < slots.length(); i++) {
+                TraceDTO trace = slots.get(i);
+                if (trace != null) {
+                    into.putIfAbsent(trace.getTraceId(), trace);
+                }
+            }
+        }
+    }
+
+    /**
+     * Spans of a local root that have finished before the root itself.
+     */
+    private static final class PendingTrace {
+        private final long createdNanos = System.nanoTime();
+        private final List<SpanDTO> spans = new ArrayList<>();
+        private int dropped;
+
+        synchronized void add(SpanDTO span, int maxSpans) {
+            if (spans.size() < maxSpans) {
+                spans.add(span);
+            } else {
+                dropped++;
+            }
+        }
+    }
+
+    private final TraceRing sampled;
+    private final TraceRing outliers;
+    private final Map<Long, PendingTrace> pending = new ConcurrentHashMap<>();
+    private final LongAdder droppedTraces = new LongAdder();
+    private final long slowThresholdMicros;
+    private final int maxPendingTraces;
+    private final int maxSpansPerTrace;
+
+    /**
+     * Constructor for TraceStore.
+     * @param sampledCapacity number of head-sampled traces kept
+     * @param outlierCapacity number of slow or failed traces kept
+     * @param slowThresholdMs root span duration from which a trace is kept as an outlier; 0 disables tail sampling
+     * @param maxPendingTraces maximum number of traces being assembled at the same time
+     * @param maxSpansPerTrace maximum number of spans kept per trace
+     */
+    public TraceStore(@Value("${store.tracing.buffer.sampled-traces:500}") int sampledCapacity,
+                      @Value("${store.tracing.buffer.outlier-traces:200}") int outlierCapacity,
+                      @Value("${store.tracing.slow-threshold-ms:500}") long slowThresholdMs,
+                      @Value("${store.tracing.max-pending-traces:10000}") int maxPendingTraces,
+                      @Value("${store.tracing.max-spans-per-trace:500}") int maxSpansPerTrace) {
+        this.sampled = new TraceRing(sampledCapacity);
+        this.outliers = new TraceRing(outlierCapacity);
+        this.slowThresholdMicros = TimeUnit.MILLISECONDS.toMicros(slowThresholdMs);
+        this.maxPendingTraces = maxPendingTraces;
+        this.maxSpansPerTrace = maxSpansPerTrace;
+    }
+
+    /**
+     * Whether traces are recorded locally regardless of the head sampler, so slow and failed ones can be kept.
+     * @return true if tail sampling is enabled
+     */
+    public boolean isTailSampling() {
+        return slowThresholdMicros > 0;
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        long localRootId = context.localRootId();
+        if (cause != Cause.FINISHED) {
+            if (context.isLocalRoot()) {
+                pending.remove(localRootId);
+            }
+            return true;
+        }
+        SpanDTO finished = toSpan(context, span);
+        if (!context.isLocalRoot()) {
+            PendingTrace trace = pending.get(localRootId);
+            if (trace == null) {
+                if (pending.size() >= maxPendingTraces) {
+                    droppedTraces.increment();
+                    return true;
+                }
+                trace = pending.computeIfAbsent(localRootId, id -> new PendingTrace());
+            }
+            trace.add(finished, maxSpansPerTrace);
+            return true;
+        }
+
+        PendingTrace trace = pending.remove(localRootId);
+        List<SpanDTO> spans = new ArrayList<>();
+        int dropped = 0;
+        if (trace != null) {
+            synchronized (trace) {
+                spans.addAll(trace.spans);
+                dropped = trace.dropped;
+            }
+        }
+        spans.add(finished);
+        String retainedBecause = retainedBecause(context, finished);
+        if (retainedBecause == null) {
+            return true;
+        }
+        spans.sort(Comparator.comparing(SpanDTO::getStartedAt));
+        TraceDTO completed = new TraceDTO(context.traceIdString(), finished.getName(), finished.getStartedAt(),
+                finished.getDurationMicros(), retainedBecause, dropped, spans);
+        if ("sampled".equals(retainedBecause)) {
+            sampled.add(completed);
+        } else {
+            outliers.add(completed);
+        }
+        return true;
+    }
+
+    private String retainedBecause(TraceContext context, SpanDTO root) {
+        if (isTailSampling()) {
+            // Exceptions mapped to 4xx responses are recorded on inner spans; only a failed root counts as an error.
+            if (root.getError() != null || (root.getTags() != null && "SERVER_ERROR".equals(root.getTags().get("outcome")))) {
+                return "error";
+            }
+            if (root.getDurationMicros() >= slowThresholdMicros) {
+                return "slow";
+            }
+        }
+        return Boolean.TRUE.equals(context.sampled()) ? "sampled" : null;
+    }
+
+    private static SpanDTO toSpan(TraceContext context, MutableSpan span) {
+        Map<String, String> tags = span.tagCount() == 0 ? null : new HashMap<>(span.tags());
+        String error = null;
+        if (span.error() != null) {
+            error = span.error().getClass().getSimpleName()
+                    + (span.error().getMessage() != null ? ": " + span.error().getMessage() : "");
+        } else if (tags != null && tags.containsKey("error")) {
+            error = tags.get("error");
+        }
+        return new SpanDTO(context.spanIdString(), context.parentIdString(), span.name(), span.remoteServiceName(),
+                Instant.EPOCH.plus(span.startTimestamp(), ChronoUnit.MICROS),
+                span.finishTimestamp() - span.startTimestamp(), error, tags);
+    }
+
+    /**
+     * Discards spans whose local root has not finished within a minute, e.g. work that outlived its request.
+     */
+    @Scheduled(fixedDelayString = "${store.tracing.orphan-sweep-ms:60000}")
+    public void discardOrphans() {
+        long now = System.nanoTime();
+        pending.values().removeIf(trace -> now - trace.createdNanos > ORPHAN_AGE_NANOS);
+    }
+
+    /**
+     * Returns the kept traces, slowest first.
+     * @param minDurationMicros minimum root span duration
+     * @param spanName if not null, only traces with a span whose name contains it, case-insensitively
+     * @param limit maximum number of traces returned
+     * @return the matching traces
+     */
+    public List<TraceDTO> findTraces(long minDurationMicros, String spanName, int limit) {
+        String needle = spanName == null ? null : spanName.toLowerCase(Locale.ROOT);
+        return snapshot().values().stream()
+                .filter(trace -> trace.getDurationMicros() >= minDurationMicros)
+                .filter(trace -> needle == null || trace.getSpans().stream()
+                        .anyMatch(span -> span.getName() != null && span.getName().toLowerCase(Locale.ROOT).contains(needle)))
+                .sorted(Comparator.comparingLong(TraceDTO::getDurationMicros).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Returns a kept trace.
+     * @param traceId the hexadecimal trace ID
+     * @return the trace, or empty if it was not kept or has been overwritten
+     */
+    public Optional<TraceDTO> findTrace(String traceId) {
+        return Optional.ofNullable(snapshot().get(traceId));
+    }
+
+    /**
+     * @return the number of traces that could not be assembled because too many were pending
+     */
+    public long getDroppedTraces() {
+        return droppedTraces.sum();
+    }
+
+    private Map<String, TraceDTO> snapshot() {
+        Map<String, TraceDTO> traces = new LinkedHashMap<>();
+        outliers.collect(traces);
+        sampled.collect(traces);
+        return traces;
+    }
+}
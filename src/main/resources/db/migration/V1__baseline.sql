@@ -0,0 +1,34 @@
+-- Schema previously generated by Hibernate (ddl-auto: update).
+-- Every statement is idempotent: databases created before the migrations existed run this script too
+-- (spring.flyway.baseline-version is 0) and only get the objects they are missing.
+-- product_price_history is created by V6__create_price_history; PriceHistoryService adds its monthly partitions.
+
+CREATE TABLE IF NOT EXISTS product (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         VARCHAR(255),
+    price        NUMERIC(38, 2),
+    created_date TIMESTAMP(6),
+    updated_date TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS product_description (
+    product_id BIGINT NOT NULL PRIMARY KEY,
+    content    TEXT   NOT NULL,
+    CONSTRAINT fk_product_description_product FOREIGN KEY (product_id) REFERENCES product (id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS product_stock (
+    product_id BIGINT NOT NULL PRIMARY KEY,
+    on_hand    BIGINT NOT NULL,
+    CONSTRAINT fk_product_stock_product FOREIGN KEY (product_id) REFERENCES product (id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS product_tombstone (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    product_id   BIGINT       NOT NULL,
+    deleted_date TIMESTAMP(6) NOT NULL
+);
+
+-- Incremental sync and the change feed
+CREATE INDEX IF NOT EXISTS idx_product_updated_date ON product (updated_date);
+CREATE INDEX IF NOT EXISTS idx_product_tombstone_deleted_date ON product_tombstone (deleted_date);
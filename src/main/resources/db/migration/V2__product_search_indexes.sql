@@ -0,0 +1,8 @@
+-- B-tree indexes for the search queries of ProductRepository.
+-- The composite index serves findByNameAndPriceBetween (name equality, then a price range) and, through its
+-- leading column, existsByName; a separate index on name alone would only add write cost.
+-- Substring searches (findByNameContainingIgnoreCase) cannot use a B-tree; prefix lookups go through
+-- /api/products/suggest instead.
+
+CREATE INDEX IF NOT EXISTS idx_product_name_price ON product (name, price);
+CREATE INDEX IF NOT EXISTS idx_product_price ON product (price);
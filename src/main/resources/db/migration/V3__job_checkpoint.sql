@@ -0,0 +1,8 @@
+-- Progress of resumable background jobs, such as the description backfill.
+-- last_id is the highest product ID the job has fully processed.
+
+CREATE TABLE IF NOT EXISTS job_checkpoint (
+    job_name   VARCHAR(64)  NOT NULL PRIMARY KEY,
+    last_id    BIGINT       NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL
+);
@@ -0,0 +1,31 @@
+-- Stock shared by several application instances.
+-- product_stock.on_hand is the unleased pool. An instance moves blocks of units out of the pool into its own
+-- stock_lease row and hands out only those units from memory; the lease has to be renewed before expires_at,
+-- otherwise any instance may return its units to the pool.
+-- stock_reservation persists every reservation until the instance holding its lease has accounted for it.
+-- holder is NULL once the lease of that instance was reclaimed; the units are then owed to the pool directly.
+
+CREATE TABLE IF NOT EXISTS stock_lease (
+    product_id BIGINT       NOT NULL,
+    holder     VARCHAR(64)  NOT NULL,
+    units      BIGINT       NOT NULL,
+    expires_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_stock_lease PRIMARY KEY (product_id, holder),
+    CONSTRAINT fk_stock_lease_product FOREIGN KEY (product_id) REFERENCES product (id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_lease_expires_at ON stock_lease (expires_at);
+
+CREATE TABLE IF NOT EXISTS stock_reservation (
+    id         UUID         NOT NULL PRIMARY KEY,
+    product_id BIGINT       NOT NULL,
+    quantity   BIGINT       NOT NULL,
+    holder     VARCHAR(64),
+    status     VARCHAR(16)  NOT NULL,
+    expires_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT fk_stock_reservation_product FOREIGN KEY (product_id) REFERENCES product (id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_reservation_holder_status ON stock_reservation (holder, status);
+CREATE INDEX IF NOT EXISTS idx_stock_reservation_product_id ON stock_reservation (product_id);
+CREATE INDEX IF NOT EXISTS idx_stock_reservation_expires_at ON stock_reservation (expires_at);
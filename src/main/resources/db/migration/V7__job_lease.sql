@@ -0,0 +1,6 @@
+-- Lease on a background job, so that only one node runs it at a time.
+-- lease_holder is the node holding the job until lease_expires_at; a node that stops without releasing it
+-- leaves the lease to expire, after which any node may take the job over from its checkpoint.
+
+ALTER TABLE job_checkpoint ADD COLUMN lease_holder VARCHAR(64);
+ALTER TABLE job_checkpoint ADD COLUMN lease_expires_at TIMESTAMP(6);
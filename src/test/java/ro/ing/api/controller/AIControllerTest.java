@@ -0,0 +1,144 @@
+package ro.ing.api.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Flux;
+import ro.ing.api.exception.AiServiceUnavailableException;
+import ro.ing.api.exception.GlobalExceptionHandler;
+import ro.ing.api.service.HotProductTracker;
+import ro.ing.api.service.OpenAiService;
+import ro.ing.api.service.ProductService;
+import ro.ing.api.service.RealTimeLoggerService;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks the server-sent event frames written by the streaming generation endpoint.
+ */
+class AIControllerTest {
+
+    @Mock
+    private OpenAiService openAiService;
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private RealTimeLoggerService realTimeLoggerService;
+
+    @Mock
+    private HotProductTracker hotProductTracker;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(new AIController(openAiService, productService,
+                realTimeLoggerService, hotProductTracker, new SimpleMeterRegistry()))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void testStreamKeepsLeadingSpacesInJsonPayloads() throws Exception {
+        when(openAiService.streamText("hi")).thenReturn(Flux.just("Hello", " world"));
+
+        String frames = stream();
+
+        assertEquals("""
+                event:token
+                data:{"text":"Hello"}
+
+                event:token
+                data:{"text":" world"}
+
+                event:done
+                data:{}
+
+                """, frames);
+    }
+
+    @Test
+    void testStreamEndsWithErrorEventWhenGenerationFails() throws Exception {
+        when(openAiService.streamText("hi")).thenReturn(
+                Flux.concat(Flux.just("Hello"), Flux.error(new IllegalStateException("upstream closed"))));
+
+        String frames = stream();
+
+        assertEquals("""
+                event:token
+                data:{"text":"Hello"}
+
+                event:error
+                data:{"message":"upstream closed"}
+
+                """, frames);
+    }
+
+    @Test
+    void testUnavailableBeforeFirstTokenReturnsServiceUnavailable() throws Exception {
+        when(openAiService.streamText("hi")).thenReturn(
+                Flux.error(new AiServiceUnavailableException("The AI service did not respond", 7)));
+
+        MvcResult started = mockMvc.perform(post("/api/ai/products/generate/stream").param("prompt", "hi")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "7"))
+                .andExpect(jsonPath("$.error").value("The AI service did not respond"));
+    }
+
+    @Test
+    void testUnavailableAfterFirstTokenEndsWithErrorEvent() throws Exception {
+        when(openAiService.streamText("hi")).thenReturn(Flux.concat(Flux.just("Hello"),
+                Flux.error(new AiServiceUnavailableException("The AI service stopped responding", 1))));
+
+        String frames = stream();
+
+        assertEquals("""
+                event:token
+                data:{"text":"Hello"}
+
+                event:error
+                data:{"message":"The AI service stopped responding"}
+
+                """, frames);
+    }
+
+    private String stream() throws Exception {
+        MvcResult started = mockMvc.perform(post("/api/ai/products/generate/stream").param("prompt", "hi")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult dispatched = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn();
+        // The events are written by a second asynchronous pass, which dispatches again once the stream has ended
+        CountDownLatch written = new CountDownLatch(1);
+        ((MockAsyncContext) dispatched.getRequest().getAsyncContext()).addDispatchHandler(written::countDown);
+        assertTrue(written.await(5, TimeUnit.SECONDS), "the stream did not end");
+        return dispatched.getResponse().getContentAsString();
+    }
+}
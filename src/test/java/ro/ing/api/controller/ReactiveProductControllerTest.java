@@ -0,0 +1,134 @@
+package ro.ing.api.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import ro.ing.api.entity.Product;
+import ro.ing.api.service.ProductService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the reactive read endpoints answer like their blocking counterparts, on the same H2 database.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactivecontroller;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "store.products.reactive.enabled=true",
+        "store.products.reactive.url=r2dbc:h2:mem:///reactivecontroller?options=DB_CLOSE_DELAY=-1",
+        "openai.api.key=test"})
+@AutoConfigureMockMvc
+class ReactiveProductControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        if (!ids.isEmpty()) {
+            return;
+        }
+        String[] names = {"Covrigi cu sare", "Covrigi cu susan", "Cafea macinata"};
+        for (int i = 0; i < names.length; i++) {
+            Product product = new Product();
+            product.setName(names[i]);
+            product.setPrice(BigDecimal.valueOf(2 + i * 3L));
+            product.setDescription("Description " + i);
+            ids.add(productService.addProduct(product).getId());
+        }
+    }
+
+    @Test
+    void testFindProductMatchesBlockingEndpoint() throws Exception {
+        JsonNode reactive = json(perform(get("/api/reactive/products/" + ids.get(1)).with(user("admin").roles("ADMIN"))));
+        JsonNode blocking = json(perform(get("/api/products/" + ids.get(1)).with(user("admin").roles("ADMIN"))));
+
+        assertEquals("Covrigi cu susan", reactive.get("name").asText());
+        assertEquals(blocking, reactive);
+    }
+
+    @Test
+    void testFindMissingProductReturnsNotFound() throws Exception {
+        long missing = ids.get(ids.size() - 1) + 1000;
+
+        MvcResult result = mockMvc.perform(get("/api/reactive/products/" + missing).with(user("admin").roles("ADMIN")))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("Product not found"));
+    }
+
+    @Test
+    void testSearchMatchesBlockingEndpoint() throws Exception {
+        for (String query : List.of("name=covrigi", "minPrice=4&maxPrice=9", "name=covrigi&maxPrice=3", "name=ceai")) {
+            JsonNode reactive = json(perform(get("/api/reactive/products/search?" + query).with(user("admin").roles("ADMIN"))));
+            JsonNode blocking = json(perform(get("/api/products/search?" + query).with(user("admin").roles("ADMIN"))));
+
+            assertEquals(blocking, reactive, query);
+        }
+    }
+
+    @Test
+    void testStreamWritesOneProductPerLine() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/reactive/products")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .with(user("admin").roles("ADMIN")))
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.strip().split("\n");
+        assertEquals(ids.size(), lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            JsonNode product = objectMapper.readTree(lines[i]);
+            assertEquals(ids.get(i).longValue(), product.get("id").asLong());
+            assertTrue(product.hasNonNull("name"));
+        }
+    }
+
+    private MvcResult perform(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        return result;
+    }
+
+    private JsonNode json(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+}
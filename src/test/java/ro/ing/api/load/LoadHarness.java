@@ -0,0 +1,383 @@
+package ro.ing.api.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import ro.ing.api.StoreManagementApplication;
+import ro.ing.api.entity.Product;
+import ro.ing.api.service.ProductService;
+import ro.ing.api.support.StubOpenAiServer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Mixed-workload load harness running against the full application stack.
+ *
+ * The harness starts the application on an in-memory H2 database with the OpenAI client pointed at a local stub,
+ * seeds the catalog, then drives a weighted mix of operations from many concurrent clients. Requests target products
+ * read back from the database, so they also hit products that existed before the run.
+ * Per operation it prints throughput and p50/p99/p999 latency and writes HdrHistogram interval logs ({@code .hlog})
+ * and percentile distributions ({@code .hgrm}) so that runs can be compared or plotted; failed requests (errors and
+ * 4xx/5xx responses) are recorded in histograms of their own ({@code <operation>-failed.hgrm}).
+ *
+ * By default the clients run open-loop: each one sends requests on a fixed schedule and latency is measured from the
+ * time a request was due, not from when it was actually sent, so a server stall is charged to every request that
+ * should have been sent during it (no coordinated omission). With {@code load.rate=0} the clients run closed-loop,
+ * sending the next request as soon as the previous one completes; use it to find the maximum throughput, not to read
+ * latency percentiles.
+ *
+ * The application's users are replaced by ones with plain-text passwords, so that the BCrypt check HTTP Basic runs on
+ * every request does not dominate the measurement; run with {@code load.bcrypt=true} to keep it.
+ *
+ * Run with {@code ./mvnw -Pload test-compile exec:java} and tune it with system properties:
+ * <ul>
+ *     <li>{@code load.clients} - concurrent clients (default 32)</li>
+ *     <li>{@code load.rate} - total requests per second scheduled across all clients (default 500); 0 runs closed-loop</li>
+ *     <li>{@code load.warmup} / {@code load.duration} - warm-up and measured seconds (default 10 / 60)</li>
+ *     <li>{@code load.products} - products seeded before the run (default 1000)</li>
+ *     <li>{@code load.mix} - operation weights (default {@code find=50,search=15,changePrice=10,patch=5,list=15,ai=5});
+ *     {@code reactiveFind}, {@code reactiveSearch} and {@code reactiveStream} drive {@code /api/reactive/products}</li>
+ *     <li>{@code load.tomcatThreads} - request threads of the server (default the larger of 200 and twice the clients);
+ *     set it below {@code load.clients} to compare the blocking and the reactive read paths under thread pressure,
+ *     e.g. {@code -Dload.clients=256 -Dload.tomcatThreads=32 -Dload.mix=find=1} against {@code -Dload.mix=reactiveFind=1}</li>
+ *     <li>{@code load.aiLatencyMs} - latency of the stub OpenAI server (default 200)</li>
+ *     <li>{@code load.bcrypt} - keep the BCrypt-hashed users of the application (default false)</li>
+ *     <li>{@code load.out} - output directory (default {@code target/load/<timestamp>})</li>
+ * </ul>
+ */
+public class LoadHarness {
+
+    private static final String AUTHORIZATION = "Basic " + Base64.getEncoder()
+            .encodeToString("admin:password".getBytes(StandardCharsets.UTF_8));
+    private static final String[] WORDS = {"Carnati", "Biscuiti", "Covrigi", "Cafea", "Ceai", "Paine", "Lapte", "Branza"};
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    /**
+     * Operations driven by the harness, each backed by one endpoint.
+     */
+    enum Operation {
+        FIND("find"),
+        SEARCH("search"),
+        CHANGE_PRICE("changePrice"),
+        PATCH("patch"),
+        LIST("list"),
+        AI("ai"),
+        REACTIVE_FIND("reactiveFind"),
+        REACTIVE_SEARCH("reactiveSearch"),
+        REACTIVE_STREAM("reactiveStream");
+
+        private final String key;
+
+        Operation(String key) {
+            this.key = key;
+        }
+    }
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, Recorder> failureRecorders = new EnumMap<>(Operation.class);
+    private final String baseUrl;
+    private final long[] productIds;
+    private final List<Operation> weightedOperations;
+
+    LoadHarness(String baseUrl, long[] productIds, Map<Operation, Integer> mix) {
+        if (productIds.length == 0) {
+            throw new IllegalArgumentException("The catalog is empty; set load.products above 0");
+        }
+        this.baseUrl = baseUrl;
+        this.productIds = productIds;
+        this.weightedOperations = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weightedOperations.add(operation);
+            }
+        });
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            failureRecorders.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("load.clients", 32);
+        int rate = Integer.getInteger("load.rate", 500);
+        int warmupSeconds = Integer.getInteger("load.warmup", 10);
+        int durationSeconds = Integer.getInteger("load.duration", 60);
+        int products = Integer.getInteger("load.products", 1000);
+        Map<Operation, Integer> mix = parseMix(System.getProperty("load.mix",
+                "find=50,search=15,changePrice=10,patch=5,list=15,ai=5"));
+        File outputDir = new File(System.getProperty("load.out",
+                "target/load/" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))));
+
+        try (StubOpenAiServer openAi = new StubOpenAiServer(Long.getLong("load.aiLatencyMs", 200));
+             ConfigurableApplicationContext context = startApplication(openAi, clients)) {
+            seed(context.getBean(ProductService.class), products);
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            long[] productIds = context.getBean(JdbcTemplate.class).queryForList("SELECT id FROM product", Long.class)
+                    .stream().mapToLong(Long::longValue).toArray();
+            LoadHarness harness = new LoadHarness(baseUrl, productIds, mix);
+            System.out.printf("Running %d clients at %s over %d products: %ds warm-up, %ds measured, mix %s%n", clients,
+                    rate > 0 ? rate + " requests/s" : "closed loop", productIds.length, warmupSeconds, durationSeconds, mix);
+            harness.run(clients, rate, warmupSeconds, durationSeconds, outputDir);
+        }
+    }
+
+    static ConfigurableApplicationContext startApplication(StubOpenAiServer openAi, int clients) {
+        Class<?>[] sources = Boolean.getBoolean("load.bcrypt")
+                ? new Class<?>[]{StoreManagementApplication.class}
+                : new Class<?>[]{StoreManagementApplication.class, PlainTextUsers.class};
+        return SpringApplication.run(sources, new String[]{
+                "--server.port=0",
+                "--spring.main.allow-bean-definition-overriding=true",
+                "--server.tomcat.threads.max=" + Integer.getInteger("load.tomcatThreads", Math.max(200, clients * 2)),
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                "--store.products.reactive.enabled=true",
+                "--store.products.reactive.url=r2dbc:h2:mem:///loadtest?options=DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.show-sql=false",
+                "--openai.api.key=load-test",
+                "--openai.api.url=" + openAi.completionsUrl(),
+                "--logging.level.root=WARN",
+                "--logging.level.ro.ing.api=WARN"});
+    }
+
+    /**
+     * Replaces the users of {@code SecurityConfig} with the same users under {@code {noop}} passwords. Registered as
+     * an extra source after the application, so its bean overrides the application's one. Only the lookup is exposed:
+     * a bean that can also update passwords would have them re-encoded with BCrypt after the first login.
+     */
+    static class PlainTextUsers {
+
+        @Bean
+        UserDetailsService userDetailsService() {
+            InMemoryUserDetailsManager users = new InMemoryUserDetailsManager(
+                    User.withUsername("user").password("{noop}password").roles("USER").build(),
+                    User.withUsername("admin").password("{noop}password").roles("USER", "ADMIN").build());
+            return users::loadUserByUsername;
+        }
+    }
+
+    static void seed(ProductService productService, int count) {
+        for (int i = 1; i <= count; i++) {
+            Product product = new Product();
+            product.setName(WORDS[i % WORDS.length] + " " + i);
+            product.setPrice(BigDecimal.valueOf(1 + (i % 500), 0).add(BigDecimal.valueOf(99, 2)));
+            product.setDescription("Seeded product " + i);
+            productService.addProduct(product);
+        }
+    }
+
+    void run(int clients, int rate, int warmupSeconds, int durationSeconds, File outputDir) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        // Each client sends one request every clients / rate seconds, the clients offset evenly within the interval.
+        long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(clients) / rate : 0;
+        long scheduleStart = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            long firstDue = scheduleStart + intervalNanos * i / clients;
+            pool.execute(() -> {
+                long due = firstDue;
+                while (running.get()) {
+                    if (intervalNanos > 0) {
+                        long wait = due - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                            continue;
+                        }
+                        execute(nextOperation(), due);
+                        due += intervalNanos;
+                    } else {
+                        execute(nextOperation(), System.nanoTime());
+                    }
+                }
+            });
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+        recorders.values().forEach(Recorder::reset);
+        failureRecorders.values().forEach(Recorder::reset);
+
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Cannot create output directory " + outputDir);
+        }
+        Map<Operation, Histogram> totals = new EnumMap<>(Operation.class);
+        Map<Operation, Histogram> failureTotals = new EnumMap<>(Operation.class);
+        Map<Operation, HistogramLogWriter> logWriters = new EnumMap<>(Operation.class);
+        long startMillis = System.currentTimeMillis();
+        for (Operation operation : Operation.values()) {
+            totals.put(operation, new Histogram(HIGHEST_TRACKABLE_MICROS, 3));
+            failureTotals.put(operation, new Histogram(HIGHEST_TRACKABLE_MICROS, 3));
+            HistogramLogWriter writer = new HistogramLogWriter(new File(outputDir, operation.key + ".hlog"));
+            writer.outputLogFormatVersion();
+            writer.outputStartTime(startMillis);
+            writer.setBaseTime(startMillis);
+            writer.outputLegend();
+            logWriters.put(operation, writer);
+        }
+
+        for (int second = 0; second < durationSeconds; second++) {
+            Thread.sleep(1000);
+            for (Operation operation : Operation.values()) {
+                Histogram interval = recorders.get(operation).getIntervalHistogram();
+                logWriters.get(operation).outputIntervalHistogram(interval);
+                totals.get(operation).add(interval);
+                failureTotals.get(operation).add(failureRecorders.get(operation).getIntervalHistogram());
+            }
+        }
+        running.set(false);
+        pool.shutdown();
+        pool.awaitTermination(30, TimeUnit.SECONDS);
+        logWriters.values().forEach(HistogramLogWriter::close);
+
+        report(totals, failureTotals, durationSeconds, outputDir);
+    }
+
+    private void report(Map<Operation, Histogram> totals, Map<Operation, Histogram> failureTotals, int durationSeconds,
+                        File outputDir) throws IOException {
+        Histogram all = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        Histogram allFailures = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        System.out.printf("%n%-12s %10s %8s %10s %10s %10s %10s%n", "operation", "ops/s", "errors", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = totals.get(operation);
+            Histogram failures = failureTotals.get(operation);
+            all.add(histogram);
+            allFailures.add(failures);
+            printRow(operation.key, histogram, failures.getTotalCount(), durationSeconds);
+            writePercentiles(histogram, new File(outputDir, operation.key + ".hgrm"));
+            if (failures.getTotalCount() > 0) {
+                writePercentiles(failures, new File(outputDir, operation.key + "-failed.hgrm"));
+            }
+        }
+        printRow("total", all, allFailures.getTotalCount(), durationSeconds);
+        writePercentiles(all, new File(outputDir, "total.hgrm"));
+        if (allFailures.getTotalCount() > 0) {
+            writePercentiles(allFailures, new File(outputDir, "total-failed.hgrm"));
+        }
+        System.out.println("HdrHistogram output written to " + outputDir.getAbsolutePath());
+    }
+
+    private static void writePercentiles(Histogram histogram, File file) throws IOException {
+        try (PrintStream out = new PrintStream(new FileOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static void printRow(String name, Histogram histogram, long errorCount, int durationSeconds) {
+        System.out.printf("%-12s %10.1f %8d %10.2f %10.2f %10.2f %10.2f%n", name,
+                histogram.getTotalCount() / (double) durationSeconds, errorCount,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private Operation nextOperation() {
+        return weightedOperations.get(ThreadLocalRandom.current().nextInt(weightedOperations.size()));
+    }
+
+    /**
+     * Sends one request and records its latency, measured from the time it was due.
+     * @param operation the operation to run
+     * @param dueNanos the {@link System#nanoTime()} at which the request was scheduled to be sent
+     */
+    private void execute(Operation operation, long dueNanos) {
+        HttpRequest request = buildRequest(operation);
+        boolean failed;
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            failed = response.statusCode() >= 400;
+        } catch (IOException e) {
+            failed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - dueNanos);
+        (failed ? failureRecorders : recorders).get(operation).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+    }
+
+    private HttpRequest buildRequest(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = productIds[random.nextInt(productIds.length)];
+        HttpRequest.Builder builder = HttpRequest.newBuilder().header("Authorization", AUTHORIZATION)
+                .timeout(Duration.ofSeconds(30));
+        return switch (operation) {
+            case FIND -> builder.uri(uri("/api/products/" + id)).GET().build();
+            case SEARCH -> builder.uri(uri("/api/products/search?name=" + encode(WORDS[random.nextInt(WORDS.length)])))
+                    .GET().build();
+            case CHANGE_PRICE -> builder.uri(uri("/api/products/" + id + "/price"))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString("{\"newPrice\": " + (1 + random.nextInt(500)) + ".99}"))
+                    .build();
+            case PATCH -> builder.uri(uri("/api/products/" + id))
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"description\": \"Load test " + random.nextInt() + "\"}"))
+                    .build();
+            case LIST -> builder.uri(uri("/api/products/all?page=" + random.nextInt(10) + "&size=50")).GET().build();
+            case AI -> builder.uri(uri("/api/ai/products/generate?prompt=" + encode("Describe product " + id)))
+                    .POST(HttpRequest.BodyPublishers.noBody()).build();
+            case REACTIVE_FIND -> builder.uri(uri("/api/reactive/products/" + id)).GET().build();
+            case REACTIVE_SEARCH -> builder.uri(uri("/api/reactive/products/search?name=" + encode(WORDS[random.nextInt(WORDS.length)])))
+                    .GET().build();
+            case REACTIVE_STREAM -> builder.uri(uri("/api/reactive/products"))
+                    .header("Accept", "application/x-ndjson").GET().build();
+        };
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            Operation operation = Arrays.stream(Operation.values())
+                    .filter(candidate -> candidate.key.equalsIgnoreCase(parts[0].trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown operation in load.mix: " + parts[0]));
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(operation, weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("load.mix must contain at least one positive weight");
+        }
+        return weights;
+    }
+}
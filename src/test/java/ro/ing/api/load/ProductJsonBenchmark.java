@@ -0,0 +1,111 @@
+package ro.ing.api.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import ro.ing.api.entity.Product;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Compares the cost of writing a single-product response the regular way, with Jackson serializing the
+ * {@code Product} through {@link MappingJackson2HttpMessageConverter}, against writing the pre-serialized bytes
+ * held by the product JSON cache through {@link ByteArrayHttpMessageConverter}.
+ *
+ * Reports throughput, CPU time and heap allocation per response of the benchmark thread.
+ * Run with {@code ./mvnw -Pload test-compile exec:java -Dload.main=ro.ing.api.load.ProductJsonBenchmark};
+ * {@code -Djson.iterations=2000000} and {@code -Djson.descriptionLength=2000} tune the run.
+ */
+public class ProductJsonBenchmark {
+
+    /**
+     * Response body sink that discards the bytes, so only the serialization path itself is measured.
+     */
+    private static final class DiscardingMessage implements HttpOutputMessage {
+        private final HttpHeaders headers = new HttpHeaders();
+        private final OutputStream body = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResponseWriter {
+        void write(HttpOutputMessage message) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int iterations = Integer.getInteger("json.iterations", 1_000_000);
+        int descriptionLength = Integer.getInteger("json.descriptionLength", 1_000);
+
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        MappingJackson2HttpMessageConverter jsonConverter = new MappingJackson2HttpMessageConverter(objectMapper);
+        ByteArrayHttpMessageConverter bytesConverter = new ByteArrayHttpMessageConverter();
+
+        Product product = new Product();
+        product.setId(42L);
+        product.setName("Covrigi cu sare");
+        product.setPrice(new BigDecimal("4.99"));
+        product.setDescription("x".repeat(descriptionLength));
+        product.setCreatedDate(LocalDateTime.now());
+        product.setUpdatedDate(LocalDateTime.now());
+        byte[] cached = objectMapper.writeValueAsBytes(product);
+
+        ResponseWriter jackson = message -> jsonConverter.write(product, MediaType.APPLICATION_JSON, message);
+        ResponseWriter preSerialized = message -> bytesConverter.write(cached, MediaType.APPLICATION_JSON, message);
+        // Creating the response message and its headers; subtract from the other rows to compare the writers alone.
+        ResponseWriter baseline = message -> message.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        System.out.printf(Locale.ROOT, "Product JSON size: %d bytes, %d iterations%n", cached.length, iterations);
+        System.out.printf(Locale.ROOT, "%-15s %14s %14s %16s%n", "writer", "ops/s", "cpu ns/op", "alloc bytes/op");
+        for (int round = 0; round < 2; round++) {
+            // The first round only warms up the JIT.
+            boolean report = round == 1;
+            measure("baseline", baseline, iterations, report);
+            measure("jackson", jackson, iterations, report);
+            measure("pre-serialized", preSerialized, iterations, report);
+        }
+    }
+
+    private static void measure(String name, ResponseWriter writer, int iterations, boolean report) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long cpuBefore = threads.getCurrentThreadCpuTime();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            writer.write(new DiscardingMessage());
+        }
+        long elapsed = System.nanoTime() - start;
+        long cpu = threads.getCurrentThreadCpuTime() - cpuBefore;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        if (report) {
+            System.out.printf(Locale.ROOT, "%-15s %,14.0f %,14.1f %,16.1f%n", name,
+                    iterations / (elapsed / 1e9), (double) cpu / iterations, (double) allocated / iterations);
+        }
+    }
+}
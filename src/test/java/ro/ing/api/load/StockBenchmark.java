@@ -0,0 +1,134 @@
+package ro.ing.api.load;
+
+import ro.ing.api.service.StripedStockCounter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput benchmark of the stock hot path: threads repeatedly take one unit of the same product and put it back,
+ * which is what a promotion looks like to the counter. The striped counter is compared with a single CAS counter
+ * and with a lock, the in-memory equivalent of every reservation serializing on the same row.
+ *
+ * Run with {@code ./mvnw -Pload test-compile exec:java -Dload.main=ro.ing.api.load.StockBenchmark};
+ * {@code -Dstock.threads=1,2,4,8,16}, {@code -Dstock.stripes=8} and {@code -Dstock.seconds=3} tune the run.
+ */
+public class StockBenchmark {
+
+    /**
+     * A counter that units can be taken from and returned to.
+     */
+    private interface Counter {
+        boolean tryTake(long quantity);
+
+        void add(long quantity);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int stripes = Integer.getInteger("stock.stripes", 8);
+        int seconds = Integer.getInteger("stock.seconds", 3);
+        String[] threadCounts = System.getProperty("stock.threads", "1,2,4,8,16").split(",");
+
+        System.out.printf(Locale.ROOT, "%-10s %8s %16s%n", "counter", "threads", "ops/s");
+        for (String threadCount : threadCounts) {
+            int threads = Integer.parseInt(threadCount.trim());
+            report("striped", threads, run(threads, seconds, striped(stripes)));
+            report("cas", threads, run(threads, seconds, cas()));
+            report("locked", threads, run(threads, seconds, locked()));
+        }
+    }
+
+    private static Counter striped(int stripes) {
+        StripedStockCounter counter = new StripedStockCounter(stripes, 1_000_000);
+        return new Counter() {
+            public boolean tryTake(long quantity) {
+                return counter.tryTake(quantity);
+            }
+
+            public void add(long quantity) {
+                counter.add(quantity);
+            }
+        };
+    }
+
+    private static Counter cas() {
+        AtomicLong counter = new AtomicLong(1_000_000);
+        return new Counter() {
+            public boolean tryTake(long quantity) {
+                long current;
+                do {
+                    current = counter.get();
+                    if (current < quantity) {
+                        return false;
+                    }
+                } while (!counter.compareAndSet(current, current - quantity));
+                return true;
+            }
+
+            public void add(long quantity) {
+                counter.addAndGet(quantity);
+            }
+        };
+    }
+
+    private static Counter locked() {
+        return new Counter() {
+            private long units = 1_000_000;
+
+            public synchronized boolean tryTake(long quantity) {
+                if (units < quantity) {
+                    return false;
+                }
+                units -= quantity;
+                return true;
+            }
+
+            public synchronized void add(long quantity) {
+                units += quantity;
+            }
+        };
+    }
+
+    private static double run(int threads, int seconds, Counter counter) throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long done = 0;
+                while (running.get()) {
+                    if (counter.tryTake(1)) {
+                        counter.add(1);
+                        done++;
+                    }
+                }
+                operations.add(done);
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return operations.sum() / ((System.nanoTime() - begin) / 1e9);
+    }
+
+    private static void report(String counter, int threads, double opsPerSecond) {
+        System.out.printf(Locale.ROOT, "%-10s %8d %,16.0f%n", counter, threads, opsPerSecond);
+    }
+}
@@ -0,0 +1,115 @@
+package ro.ing.api.load;
+
+import ro.ing.api.dto.ProductSuggestionDTO;
+import ro.ing.api.service.SuggestionTrie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Latency benchmark of autocomplete lookups on a synthetic catalog, with a writer thread renaming products and
+ * adding popularity the way change events and view flushes do. Reports lookup percentiles next to the cost of the
+ * full scan that {@code /search?name=} amounts to for the same catalog.
+ *
+ * Run with {@code ./mvnw -Pload test-compile exec:java -Dload.main=ro.ing.api.load.SuggestBenchmark};
+ * {@code -Dsuggest.products=100000}, {@code -Dsuggest.lookups=1000000} and {@code -Dsuggest.writesPerSecond=2000}
+ * tune the run.
+ */
+public class SuggestBenchmark {
+
+    private static final String[] WORDS = {"apple", "apricot", "banana", "berry", "bread", "butter", "cable", "camera",
+            "candle", "charger", "cheese", "chair", "coffee", "cookie", "desk", "drill", "green", "hammer", "headphones",
+            "honey", "juice", "keyboard", "lamp", "laptop", "lemon", "mango", "monitor", "mouse", "orange", "organic",
+            "pasta", "pepper", "phone", "pillow", "premium", "red", "salt", "screen", "shirt", "socks", "speaker",
+            "steel", "sugar", "table", "tea", "tomato", "towel", "wireless", "wooden", "yogurt"};
+
+    public static void main(String[] args) throws InterruptedException {
+        int productCount = Integer.getInteger("suggest.products", 100_000);
+        int lookups = Integer.getInteger("suggest.lookups", 1_000_000);
+        int writesPerSecond = Integer.getInteger("suggest.writesPerSecond", 2_000);
+        Random random = new Random(7);
+
+        List<ProductSuggestionDTO> products = new ArrayList<>(productCount);
+        for (long id = 1; id <= productCount; id++) {
+            products.add(new ProductSuggestionDTO(id, name(random), random.nextInt(1000)));
+        }
+        long buildStart = System.nanoTime();
+        SuggestionTrie trie = SuggestionTrie.build(10, products);
+        System.out.printf(Locale.ROOT, "built index of %d products in %d ms%n",
+                productCount, (System.nanoTime() - buildStart) / 1_000_000);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            Random writes = new Random(11);
+            long pause = 1_000_000_000L / Math.max(1, writesPerSecond);
+            while (running.get()) {
+                long id = 1 + writes.nextInt(productCount);
+                if (writes.nextInt(10) == 0) {
+                    trie.put(id, name(writes), trie.get(id).getPopularity());
+                } else {
+                    trie.addPopularity(id, 1);
+                }
+                long until = System.nanoTime() + pause;
+                while (System.nanoTime() < until) {
+                    Thread.onSpinWait();
+                }
+            }
+        }, "suggest-writer");
+        writer.start();
+
+        String[] prefixes = new String[4096];
+        for (int i = 0; i < prefixes.length; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            prefixes[i] = word.substring(0, 1 + random.nextInt(Math.min(4, word.length())));
+        }
+        for (int i = 0; i < lookups / 10; i++) {
+            trie.suggest(prefixes[i & (prefixes.length - 1)], 10);
+        }
+        long[] latencies = new long[lookups];
+        for (int i = 0; i < lookups; i++) {
+            long start = System.nanoTime();
+            trie.suggest(prefixes[i & (prefixes.length - 1)], 10);
+            latencies[i] = System.nanoTime() - start;
+        }
+        running.set(false);
+        writer.join();
+
+        Arrays.sort(latencies);
+        System.out.printf(Locale.ROOT, "%-12s %10s %10s %10s %10s%n", "", "p50 us", "p99 us", "p99.9 us", "max us");
+        System.out.printf(Locale.ROOT, "%-12s %10.1f %10.1f %10.1f %10.1f%n", "trie",
+                micros(latencies, 0.5), micros(latencies, 0.99), micros(latencies, 0.999),
+                latencies[latencies.length - 1] / 1000.0);
+
+        long[] scans = new long[200];
+        for (int i = 0; i < scans.length; i++) {
+            String prefix = prefixes[i];
+            long start = System.nanoTime();
+            products.stream()
+                    .filter(product -> product.getName().toLowerCase(Locale.ROOT).contains(prefix))
+                    .sorted((a, b) -> Long.compare(b.getPopularity(), a.getPopularity()))
+                    .limit(10)
+                    .toList();
+            scans[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(scans);
+        System.out.printf(Locale.ROOT, "%-12s %10.1f %10.1f%n", "full scan", micros(scans, 0.5), micros(scans, 0.99));
+    }
+
+    private static String name(Random random) {
+        int words = 2 + random.nextInt(3);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            name.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : " " + word);
+        }
+        return name.append(' ').append(random.nextInt(10_000)).toString();
+    }
+
+    private static double micros(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)] / 1000.0;
+    }
+}
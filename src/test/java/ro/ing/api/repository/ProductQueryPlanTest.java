@@ -0,0 +1,287 @@
+package ro.ing.api.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.annotation.DirtiesContext;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the Flyway migrations, seeds a large catalog and checks with {@code EXPLAIN} that every selective repository
+ * query is served by an index instead of a scan of the whole table.
+ *
+ * Each repository method is called for real; the statements Hibernate sends to the database are captured at the JDBC
+ * level together with their bind parameters, and each one is explained with the same parameters, so the check follows
+ * the generated SQL instead of a copy of it. This class runs on an in-memory H2 database;
+ * {@link PostgresProductQueryPlanTest} runs the same checks on PostgreSQL when Docker is available.
+ *
+ * Queries that read every row by design ({@code findAll}, {@code findAllIdsAndPrices}, {@code findAllIdsAndNames})
+ * and the substring search {@code findByNameContainingIgnoreCase}, which no B-tree index can serve, are not checked.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:plans",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ProductQueryPlanTest.StatementCaptureConfiguration.class)
+@DirtiesContext
+class ProductQueryPlanTest {
+
+    private static final int PRODUCTS = 200_000;
+    private static final int TOMBSTONES = 50_000;
+
+    /**
+     * Statements executed while {@link #capturing} is set.
+     */
+    private static final List<CapturedStatement> captured = new ArrayList<>();
+    private static volatile boolean capturing;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductTombstoneRepository productTombstoneRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * A repository method call whose statements are checked.
+     */
+    @FunctionalInterface
+    interface RepositoryCall {
+        void run(ProductRepository products, ProductTombstoneRepository tombstones);
+    }
+
+    /**
+     * A prepared statement as sent by Hibernate, with the calls that bound its parameters.
+     */
+    private record CapturedStatement(String sql, List<Binding> bindings) {
+    }
+
+    private record Binding(Method method, Object[] args) {
+    }
+
+    @BeforeAll
+    static void seed(@Autowired JdbcTemplate jdbcTemplate) {
+        if (isPostgres(jdbcTemplate)) {
+            jdbcTemplate.update("INSERT INTO product (name, price, created_date, updated_date) "
+                    + "SELECT 'Product ' || x, MOD(x, 1000) + 0.99, TIMESTAMP '2024-01-01 00:00:00', "
+                    + "TIMESTAMP '2024-01-01 00:00:00' + x * INTERVAL '1 second' FROM generate_series(1, ?) AS x", PRODUCTS);
+            jdbcTemplate.update("INSERT INTO product_tombstone (product_id, deleted_date) "
+                    + "SELECT ? + x, TIMESTAMP '2024-01-01 00:00:00' + x * INTERVAL '1 second' "
+                    + "FROM generate_series(1, ?) AS x", PRODUCTS, TOMBSTONES);
+        } else {
+            jdbcTemplate.update("INSERT INTO product (name, price, created_date, updated_date) "
+                    + "SELECT 'Product ' || X, MOD(X, 1000) + 0.99, TIMESTAMP '2024-01-01 00:00:00', "
+                    + "DATEADD(SECOND, X, TIMESTAMP '2024-01-01 00:00:00') FROM SYSTEM_RANGE(1, ?)", PRODUCTS);
+            jdbcTemplate.update("INSERT INTO product_tombstone (product_id, deleted_date) "
+                    + "SELECT ? + X, DATEADD(SECOND, X, TIMESTAMP '2024-01-01 00:00:00') FROM SYSTEM_RANGE(1, ?)",
+                    PRODUCTS, TOMBSTONES);
+        }
+        jdbcTemplate.update("INSERT INTO product_description (product_id, content) "
+                + "SELECT id, 'Description of ' || name FROM product WHERE MOD(id, 2) = 0");
+        jdbcTemplate.update("INSERT INTO product_stock (product_id, on_hand) SELECT id, MOD(id, 50) FROM product");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    static Stream<Arguments> repositoryQueries() {
+        LocalDateTime changedAt = LocalDateTime.of(2024, 1, 3, 7, 0);
+        LocalDateTime deletedAt = LocalDateTime.of(2024, 1, 1, 13, 0);
+        List<Long> ids = List.of(17L, 4242L, 99999L);
+        return Stream.of(
+                call("findById", (products, tombstones) -> products.findById(4242L)),
+                call("existsByName", (products, tombstones) -> products.existsByName("Product 4242")),
+                call("findByPriceBetween", (products, tombstones) ->
+                        products.findByPriceBetween(new BigDecimal("10.00"), new BigDecimal("10.99"))),
+                call("findByNameAndPriceBetween", (products, tombstones) -> products.findByNameAndPriceBetween(
+                        "Product 4242", new BigDecimal("200.00"), new BigDecimal("300.00"))),
+                call("findByIdIn", (products, tombstones) -> products.findByIdIn(ids)),
+                call("findByIdGreaterThanOrderByIdAsc", (products, tombstones) ->
+                        products.findByIdGreaterThanOrderByIdAsc(150_000L, PageRequest.of(0, 1000))),
+                call("findChangedAfter", (products, tombstones) ->
+                        products.findChangedAfter(changedAt, 4242L, PageRequest.of(0, 1000))),
+                call("findIdsUpdatedAfter", (products, tombstones) -> products.findIdsUpdatedAfter(changedAt)),
+                call("deleteProductById", (products, tombstones) -> products.deleteProductById(4242L)),
+                call("deleteProductsByIds", (products, tombstones) -> products.deleteProductsByIds(ids)),
+                call("findExistingIds", (products, tombstones) -> products.findExistingIds(ids)),
+                call("findIdsMatching", (products, tombstones) -> products.findIdsMatching(150_000L, null,
+                        new BigDecimal("10.00"), new BigDecimal("20.00"), PageRequest.of(0, 500))),
+                call("findIdsAndNamesWithoutDescription", (products, tombstones) ->
+                        products.findIdsAndNamesWithoutDescription(150_000L, PageRequest.of(0, 100))),
+                call("findByDeletedDateAfterOrderByDeletedDateAsc", (products, tombstones) ->
+                        tombstones.findByDeletedDateAfterOrderByDeletedDateAsc(deletedAt)),
+                call("findProductIdsDeletedAfter", (products, tombstones) ->
+                        tombstones.findProductIdsDeletedAfter(deletedAt)),
+                call("findDeletedAfter", (products, tombstones) ->
+                        tombstones.findDeletedAfter(deletedAt, 4242L, PageRequest.of(0, 1000))),
+                call("deleteOlderThan", (products, tombstones) ->
+                        tombstones.deleteOlderThan(LocalDateTime.of(2024, 1, 1, 0, 10))),
+                call("recordDeletions", (products, tombstones) ->
+                        tombstones.recordDeletions(ids, LocalDateTime.of(2024, 6, 1, 0, 0))));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryQueries")
+    void repositoryQueryUsesAnIndex(String query, RepositoryCall call) {
+        List<CapturedStatement> statements = capture(call);
+        assertFalse(statements.isEmpty(), () -> query + " sent no statement");
+
+        boolean postgres = isPostgres(jdbcTemplate);
+        for (CapturedStatement statement : statements) {
+            String plan = explain(statement);
+            if (postgres) {
+                assertFalse(plan.contains("Seq Scan"), () -> query + " scans a whole table:\n" + statement.sql() + "\n" + plan);
+                assertTrue(plan.contains("Index"), () -> query + " uses no index:\n" + statement.sql() + "\n" + plan);
+            } else {
+                assertFalse(plan.contains(".tableScan"), () -> query + " scans a whole table:\n" + statement.sql() + "\n" + plan);
+                assertTrue(plan.contains("IDX_") || plan.contains("PRIMARY_KEY"),
+                        () -> query + " uses no index:\n" + statement.sql() + "\n" + plan);
+            }
+        }
+    }
+
+    private static Arguments call(String name, RepositoryCall call) {
+        return Arguments.of(name, call);
+    }
+
+    private List<CapturedStatement> capture(RepositoryCall call) {
+        synchronized (captured) {
+            captured.clear();
+        }
+        capturing = true;
+        try {
+            call.run(productRepository, productTombstoneRepository);
+        } finally {
+            capturing = false;
+        }
+        synchronized (captured) {
+            return List.copyOf(captured);
+        }
+    }
+
+    private String explain(CapturedStatement statement) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql())) {
+                for (Binding binding : statement.bindings()) {
+                    binding.method().invoke(explain, binding.args());
+                }
+                List<String> lines = new ArrayList<>();
+                try (ResultSet plan = explain.executeQuery()) {
+                    while (plan.next()) {
+                        lines.add(plan.getString(1));
+                    }
+                }
+                return String.join("\n", lines);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Cannot bind the parameters of " + statement.sql(), e);
+            }
+        });
+    }
+
+    private static boolean isPostgres(JdbcTemplate jdbcTemplate) {
+        return "PostgreSQL".equalsIgnoreCase(jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName()));
+    }
+
+    /**
+     * Wraps the DataSource so that the prepared statements executed while capturing are recorded.
+     */
+    @TestConfiguration(proxyBeanMethods = false)
+    static class StatementCaptureConfiguration {
+
+        @Bean
+        static BeanPostProcessor statementCapture() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new CapturingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    private static class CapturingDataSource extends DelegatingDataSource {
+
+        CapturingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return capturing(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return capturing(super.getConnection(username, password));
+        }
+
+        private static Connection capturing(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(ProductQueryPlanTest.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        if (method.getName().equals("prepareStatement") && args[0] instanceof String sql) {
+                            return capturing((PreparedStatement) result, sql);
+                        }
+                        return result;
+                    });
+        }
+
+        private static PreparedStatement capturing(PreparedStatement statement, String sql) {
+            List<Binding> bindings = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(ProductQueryPlanTest.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                            bindings.add(new Binding(method, args.clone()));
+                        } else if (name.equals("clearParameters")) {
+                            bindings.clear();
+                        } else if (capturing && name.startsWith("execute") && (args == null || args.length == 0)) {
+                            synchronized (captured) {
+                                captured.add(new CapturedStatement(sql, List.copyOf(bindings)));
+                            }
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ro.ing.api.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import ro.ing.api.entity.Product;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs repository queries whose result depends on the generated joins against an in-memory H2 database.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:repository;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ProductRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void testFindsProductsWithoutDescription() {
+        Product described = productRepository.save(product("Carnati", "Afumati"));
+        Product first = productRepository.save(product("Covrigi", null));
+        Product second = productRepository.save(product("Cafea", null));
+        productRepository.flush();
+
+        List<Object[]> page = productRepository.findIdsAndNamesWithoutDescription(0L, PageRequest.of(0, 10));
+
+        assertEquals(List.of(first.getId(), second.getId()), page.stream().map(row -> (Long) row[0]).toList());
+        assertEquals("Covrigi", page.get(0)[1]);
+        assertEquals(2, productRepository.countWithoutDescription(0L));
+        assertEquals(1, productRepository.countWithoutDescription(first.getId()));
+        assertEquals(0, productRepository.findIdsAndNamesWithoutDescription(second.getId(), PageRequest.of(0, 10)).size());
+        assertEquals("Afumati", productRepository.findById(described.getId()).orElseThrow().getDescription());
+    }
+
+    private static Product product(String name, String description) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(BigDecimal.TEN);
+        product.setDescription(description);
+        return product;
+    }
+}
@@ -0,0 +1,93 @@
+package ro.ing.api.service;
+
+import org.junit.jupiter.api.Test;
+import ro.ing.api.service.AdaptiveConcurrencyLimiter.Priority;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void testLimitFollowsLatency() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 4, 200, 2.0, 0.5, 0.1, 0, 2, 100);
+
+        runWindows(limiter, 50, 1);
+        int grown = limiter.getLimit();
+        assertTrue(grown > 40, "limit grows while latency is steady: " + grown);
+
+        runWindows(limiter, 30, 10);
+        int shrunk = limiter.getLimit();
+        assertTrue(shrunk < grown / 4, "limit shrinks when latency rises tenfold: " + shrunk);
+
+        runWindows(limiter, 30, 1);
+        assertTrue(limiter.getLimit() > shrunk * 2, "limit recovers with latency: " + limiter.getLimit());
+    }
+
+    @Test
+    void testSmallLimitShrinksInProportionWithinAWindow() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 4, 2.0, 0.5, 0.1, 0, 2, 100);
+        runWindows(limiter, 20, 1);
+        assertEquals(4, limiter.getLimit());
+
+        // Four times the baseline against a tolerance of two: the limit halves
+        runWindows(limiter, 1, 4);
+        assertEquals(2, limiter.getLimit());
+
+        runWindows(limiter, 1, 4);
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    void testLowPriorityShedFirstAndHighPriorityLast() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 10, 2.0, 0.5, 0.2, 0, 10, 100);
+
+        assertEquals(5, admitted(limiter, Priority.LOW));
+        assertEquals(3, admitted(limiter, Priority.NORMAL));
+        assertEquals(2, admitted(limiter, Priority.HIGH));
+        assertEquals(10, limiter.getInFlight());
+
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        assertFalse(limiter.tryAcquire(Priority.LOW));
+        assertFalse(limiter.tryAcquire(Priority.NORMAL));
+        assertTrue(limiter.tryAcquire(Priority.HIGH));
+    }
+
+    @Test
+    void testUnsampledReleaseLeavesLimitAlone() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 4, 200, 2.0, 0.5, 0.1, 0, 2, 100);
+        runWindows(limiter, 30, 10);
+        int limit = limiter.getLimit();
+        int inFlight = limiter.getInFlight();
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(10));
+
+        // Asynchronous handlers return almost at once; sampled, that would look like a latency drop.
+        for (int call = 0; call < 100; call++) {
+            assertTrue(limiter.tryAcquire(Priority.HIGH));
+            limiter.release();
+        }
+
+        assertEquals(limit, limiter.getLimit());
+        assertEquals(inFlight - 1, limiter.getInFlight());
+    }
+
+    /**
+     * Keeps the limiter saturated for a number of sampling windows of two calls taking the given latency.
+     */
+    private static void runWindows(AdaptiveConcurrencyLimiter limiter, int windows, long latencyMs) {
+        for (int window = 0; window < windows; window++) {
+            admitted(limiter, Priority.HIGH);
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(latencyMs));
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(latencyMs));
+        }
+    }
+
+    private static int admitted(AdaptiveConcurrencyLimiter limiter, Priority priority) {
+        int admitted = 0;
+        while (limiter.tryAcquire(priority)) {
+            admitted++;
+        }
+        return admitted;
+    }
+}
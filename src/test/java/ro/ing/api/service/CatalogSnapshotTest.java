@@ -0,0 +1,159 @@
+package ro.ing.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ro.ing.api.entity.Product;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.repository.ProductRepository;
+import ro.ing.api.repository.ProductTombstoneRepository;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Writes snapshots of a small catalog held in an in-memory H2 database and reads them back the way a restarted
+ * node does.
+ */
+class CatalogSnapshotTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 11, 11, 16, 49, 25, 989318000);
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductTombstoneRepository tombstoneRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:snapshot;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE product (id BIGINT PRIMARY KEY, name VARCHAR(255), price NUMERIC(38, 2),"
+                + " created_date TIMESTAMP, updated_date TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE product_description (product_id BIGINT PRIMARY KEY, content CLOB)");
+        insert(1, "Carnati", "21.01", "Carnati de Plescoi");
+        insert(2, "Covrigi cu sare", "4.99", null);
+        insert(3, "x".repeat(200), "1.00", "Name too long for a record");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private void insert(long id, String name, String price, String description) {
+        jdbcTemplate.update("INSERT INTO product VALUES (?, ?, ?, ?, ?)", id, name, new BigDecimal(price), CREATED, CREATED);
+        if (description != null) {
+            jdbcTemplate.update("INSERT INTO product_description VALUES (?, ?)", id, description);
+        }
+    }
+
+    private CatalogSnapshot snapshot() {
+        return new CatalogSnapshot(productRepository, tombstoneRepository, jdbcTemplate, transactionTemplate,
+                new SimpleMeterRegistry(), true, directory.resolve("catalog.snapshot").toString(), 96);
+    }
+
+    @Test
+    void testRestartedNodeServesProductsFromSnapshot() {
+        snapshot().shutdown();
+
+        CatalogSnapshot restarted = snapshot();
+        restarted.open();
+
+        Product product = restarted.find(1L).orElseThrow();
+        assertEquals(1L, product.getId());
+        assertEquals("Carnati", product.getName());
+        assertEquals(new BigDecimal("21.01"), product.getPrice());
+        assertEquals("Carnati de Plescoi", product.getDescription());
+        assertEquals(CREATED, product.getCreatedDate());
+        assertEquals(CREATED, product.getUpdatedDate());
+        assertNull(restarted.find(2L).orElseThrow().getDescription());
+        assertTrue(restarted.find(3L).isEmpty(), "Records that do not fit are left to the database");
+        assertTrue(restarted.find(4L).isEmpty());
+    }
+
+    @Test
+    void testChangesAfterSnapshotAreNotServed() throws Exception {
+        snapshot().shutdown();
+        when(productRepository.findIdsUpdatedAfter(any())).thenReturn(List.of(1L));
+        when(tombstoneRepository.findProductIdsDeletedAfter(any())).thenReturn(List.of(2L));
+
+        CatalogSnapshot restarted = snapshot();
+        restarted.open();
+        // The catch-up runs in the background; the deletion is the last change it applies.
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (restarted.find(2L).isPresent() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(Optional.empty(), restarted.find(1L));
+        assertEquals(Optional.empty(), restarted.find(2L));
+
+        restarted.refresh();
+        assertTrue(restarted.find(1L).isPresent(), "A newer snapshot contains the caught-up changes");
+
+        restarted.onProductChange(ProductChangeEvent.deleted(1L));
+        assertTrue(restarted.find(1L).isEmpty());
+    }
+
+    @Test
+    void testPollingMarksChangesFromOtherNodes() throws Exception {
+        snapshot().shutdown();
+        CatalogSnapshot restarted = snapshot();
+        restarted.open();
+        verify(tombstoneRepository, timeout(5_000)).findProductIdsDeletedAfter(any());
+        assertTrue(restarted.find(1L).isPresent());
+
+        LocalDateTime changedAt = LocalDateTime.now();
+        when(productRepository.findIdsUpdatedAfter(any())).thenReturn(List.of(1L));
+        // Polls are skipped until the background catch-up has finished.
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (restarted.find(1L).isPresent() && System.nanoTime() < deadline) {
+            restarted.poll();
+            Thread.sleep(10);
+        }
+
+        assertTrue(restarted.find(1L).isEmpty());
+        // Every read of the feed starts an overlap window back, not where the previous one ended.
+        verify(productRepository, atLeast(2)).findIdsUpdatedAfter(argThat(since -> since.isBefore(changedAt.minusSeconds(59))));
+    }
+
+    @Test
+    void testEnabledSnapshotRequiresAPath() {
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> new CatalogSnapshot(productRepository,
+                tombstoneRepository, jdbcTemplate, transactionTemplate, new SimpleMeterRegistry(), true, "", 96));
+        assertTrue(e.getMessage().contains("store.products.snapshot.path"));
+
+        new CatalogSnapshot(productRepository, tombstoneRepository, jdbcTemplate, transactionTemplate,
+                new SimpleMeterRegistry(), false, "", 96).shutdown();
+    }
+}
@@ -0,0 +1,70 @@
+package ro.ing.api.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ro.ing.api.dto.CatalogStatsDTO;
+import ro.ing.api.dto.PriceBucketDTO;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.event.ProductChangeType;
+import ro.ing.api.repository.ProductRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class CatalogStatisticsServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private CatalogStatisticsService statisticsService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        statisticsService = new CatalogStatisticsService(productRepository, new ShardRouter(null, false, List.of(), 0, 1),
+                new BigDecimal[]{BigDecimal.valueOf(10), BigDecimal.valueOf(100)});
+    }
+
+    @Test
+    void testStatisticsFollowProductChanges() {
+        statisticsService.onProductChange(change(ProductChangeType.CREATED, 1L, "5.00"));
+        statisticsService.onProductChange(change(ProductChangeType.CREATED, 2L, "50.00"));
+        statisticsService.onProductChange(change(ProductChangeType.CREATED, 3L, "500.00"));
+        statisticsService.onProductChange(change(ProductChangeType.PRICE_CHANGED, 3L, "20.00"));
+        statisticsService.onProductChange(ProductChangeEvent.deleted(1L));
+
+        CatalogStatsDTO stats = statisticsService.getStatistics();
+
+        assertEquals(2, stats.getProductCount());
+        assertEquals(new BigDecimal("20.00"), stats.getMinPrice());
+        assertEquals(new BigDecimal("50.00"), stats.getMaxPrice());
+        assertEquals(new BigDecimal("35.00"), stats.getAveragePrice());
+        assertEquals(List.of(0L, 2L, 0L), stats.getPriceHistogram().stream().map(PriceBucketDTO::getCount).toList());
+    }
+
+    @Test
+    void testReconcileReplacesDriftedState() {
+        statisticsService.onProductChange(change(ProductChangeType.CREATED, 1L, "5.00"));
+        when(productRepository.findAllIdsAndPrices()).thenReturn(List.of(
+                new Object[]{2L, new BigDecimal("150.00")},
+                new Object[]{3L, null}));
+
+        statisticsService.reconcile();
+        CatalogStatsDTO stats = statisticsService.getStatistics();
+
+        assertEquals(2, stats.getProductCount());
+        assertEquals(new BigDecimal("150.00"), stats.getMinPrice());
+        assertEquals(new BigDecimal("150.00"), stats.getAveragePrice());
+        assertNotNull(stats.getReconciledAt());
+    }
+
+    private static ProductChangeEvent change(ProductChangeType type, Long id, String price) {
+        return new ProductChangeEvent(type, id, "Product " + id, new BigDecimal(price), null, LocalDateTime.now());
+    }
+}
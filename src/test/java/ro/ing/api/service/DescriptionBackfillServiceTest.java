@@ -0,0 +1,154 @@
+package ro.ing.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ro.ing.api.entity.Product;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.exception.AiServiceUnavailableException;
+import ro.ing.api.repository.ProductRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the backfill against an in-memory catalog, with the checkpoint kept in an H2 database.
+ */
+class DescriptionBackfillServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private OpenAiService openAiService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private JdbcTemplate jdbcTemplate;
+    private final Map<Long, Product> catalog = new TreeMap<>();
+    private final List<DescriptionBackfillService> services = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:backfill;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE job_checkpoint (job_name VARCHAR(64) PRIMARY KEY, last_id BIGINT NOT NULL,"
+                + " updated_at TIMESTAMP(6) NOT NULL, lease_holder VARCHAR(64), lease_expires_at TIMESTAMP(6))");
+
+        for (long id = 1; id <= 7; id++) {
+            Product product = new Product();
+            product.setDescription(id == 3 ? "Existing description" : null);
+            product.setId(id);
+            product.setName("Product " + id);
+            product.setPrice(BigDecimal.TEN);
+            catalog.put(id, product);
+        }
+        when(productRepository.findIdsAndNamesWithoutDescription(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int size = invocation.<Pageable>getArgument(1).getPageSize();
+            return catalog.values().stream()
+                    .filter(product -> product.getId() > afterId && product.getDescription() == null)
+                    .limit(size)
+                    .map(product -> new Object[]{product.getId(), product.getName()})
+                    .toList();
+        });
+        when(productRepository.findByIdIn(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<Long>>getArgument(0).stream().map(catalog::get).toList());
+        when(openAiService.generateTexts(anyList())).thenAnswer(invocation -> invocation.<List<String>>getArgument(0)
+                .stream().map(prompt -> "About " + prompt.substring(prompt.lastIndexOf("Product"))).toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(DescriptionBackfillService::shutdown);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private DescriptionBackfillService service() {
+        // Pages of 4 products, 2 products per request
+        DescriptionBackfillService service = new DescriptionBackfillService(productRepository, openAiService,
+                eventPublisher, transactionTemplate, jdbcTemplate, new SimpleMeterRegistry(), true, 4, 2, 2, 600);
+        services.add(service);
+        return service;
+    }
+
+    private long checkpoint() {
+        return jdbcTemplate.queryForObject("SELECT last_id FROM job_checkpoint WHERE job_name = ?", Long.class,
+                DescriptionBackfillService.JOB_NAME);
+    }
+
+    @Test
+    void testDescribesMissingProductsInBatchedRequests() {
+        assertEquals(6, service().run());
+
+        for (Product product : catalog.values()) {
+            assertEquals(product.getId() == 3 ? "Existing description" : "About " + product.getName(), product.getDescription());
+        }
+        verify(openAiService, times(3)).generateTexts(argThat(prompts -> prompts.size() == 2));
+        verify(eventPublisher, times(6)).publishEvent(any(ProductChangeEvent.class));
+        assertEquals(0, checkpoint());
+    }
+
+    @Test
+    void testPausesWhenUnavailableAndResumesFromCheckpoint() {
+        // The first page holds products 1, 2, 4 and 5; the request for 4 and 5 fails
+        when(openAiService.generateTexts(argThat(prompts -> prompts != null && prompts.get(0).endsWith("Product 4"))))
+                .thenThrow(new AiServiceUnavailableException("The AI service is temporarily unavailable", 30));
+
+        assertEquals(2, service().run());
+        assertEquals(2, checkpoint());
+        assertNull(catalog.get(4L).getDescription());
+
+        reset(openAiService);
+        when(openAiService.generateTexts(anyList())).thenAnswer(invocation -> invocation.<List<String>>getArgument(0)
+                .stream().map(prompt -> "About " + prompt.substring(prompt.lastIndexOf("Product"))).toList());
+
+        // A restarted node continues after the checkpoint
+        assertEquals(4, service().run());
+        verify(productRepository).findIdsAndNamesWithoutDescription(eq(2L), any(Pageable.class));
+        assertEquals("About Product 4", catalog.get(4L).getDescription());
+        assertEquals(0, checkpoint());
+    }
+
+    @Test
+    void testOnlyOneNodeRunsThePass() {
+        jdbcTemplate.update("INSERT INTO job_checkpoint (job_name, last_id, updated_at, lease_holder, lease_expires_at)"
+                + " VALUES (?, 0, ?, 'other-node', ?)", DescriptionBackfillService.JOB_NAME, LocalDateTime.now(),
+                LocalDateTime.now().plusMinutes(5));
+
+        assertEquals(0, service().run());
+        verify(openAiService, never()).generateTexts(anyList());
+
+        // Once the other node's lease has expired, the job is taken over and the lease released at the end
+        jdbcTemplate.update("UPDATE job_checkpoint SET lease_expires_at = ?", LocalDateTime.now().minusSeconds(1));
+        assertEquals(6, service().run());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM job_checkpoint WHERE lease_holder IS NOT NULL",
+                Long.class));
+    }
+}
@@ -0,0 +1,71 @@
+package ro.ing.api.service;
+
+import org.junit.jupiter.api.Test;
+import ro.ing.api.dto.HotProductDTO;
+import ro.ing.api.dto.HotProductWindowDTO;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotProductTrackerTest {
+
+    @Test
+    void testHeavyHittersFoundAmongManyColdProducts() {
+        HotProductTracker tracker = new HotProductTracker(60_000, new int[]{1}, 256, 16);
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            // Products 1-5 get half of the traffic, the rest is spread over 50,000 others.
+            long id = i % 2 == 0 ? 1 + random.nextInt(5) : 100 + random.nextInt(50_000);
+            tracker.record(id, HotProductTracker.Source.LOOKUP);
+        }
+        tracker.record(1L, HotProductTracker.Source.SEARCH);
+
+        HotProductWindowDTO window = tracker.findHotProducts(HotProductTracker.Source.LOOKUP, 5).get(0);
+
+        assertEquals("1m", window.getWindow());
+        assertEquals(100_000, window.getTotalAccesses());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L),
+                window.getProducts().stream().map(HotProductDTO::getId).sorted().toList());
+        for (HotProductDTO product : window.getProducts()) {
+            assertTrue(product.getEstimatedAccesses() >= 9_000);
+            assertTrue(product.getEstimatedAccesses() <= 11_000 + window.getMaxOverestimate());
+        }
+        assertEquals(100_001, tracker.findHotProducts(null, 5).get(0).getTotalAccesses());
+    }
+
+    @Test
+    void testCandidatesFollowShiftingTraffic() {
+        HotProductTracker tracker = new HotProductTracker(60_000, new int[]{1}, 4096, 4);
+        // Products 1-4 fill the candidates early, then products 11-14 overtake them.
+        for (int i = 0; i < 400; i++) {
+            tracker.record(1L + i % 4, HotProductTracker.Source.LOOKUP);
+        }
+        for (int i = 0; i < 2_000; i++) {
+            tracker.record(11L + i % 4, HotProductTracker.Source.LOOKUP);
+        }
+
+        assertEquals(List.of(11L, 12L, 13L, 14L), tracker.findHotProducts(null, 4).get(0).getProducts().stream()
+                .map(HotProductDTO::getId).sorted().toList());
+        assertEquals(List.of(), tracker.findHotProducts(null, 0).get(0).getProducts());
+    }
+
+    @Test
+    void testOldBucketsLeaveTheWindow() {
+        HotProductTracker tracker = new HotProductTracker(60_000, new int[]{1, 3}, 256, 16);
+        tracker.record(1L, HotProductTracker.Source.AI);
+        tracker.rotate();
+        tracker.record(2L, HotProductTracker.Source.AI);
+        tracker.record(2L, HotProductTracker.Source.AI);
+
+        List<HotProductWindowDTO> windows = tracker.findHotProducts(null, 10);
+        assertEquals(List.of(2L), windows.get(0).getProducts().stream().map(HotProductDTO::getId).toList());
+        assertEquals(List.of(2L, 1L), windows.get(1).getProducts().stream().map(HotProductDTO::getId).toList());
+
+        tracker.rotate();
+        tracker.rotate();
+        assertEquals(List.of(2L), tracker.findHotProducts(null, 10).get(1).getProducts().stream()
+                .map(HotProductDTO::getId).toList());
+    }
+}
@@ -0,0 +1,186 @@
+package ro.ing.api.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ro.ing.api.exception.AiServiceUnavailableException;
+import ro.ing.api.support.StubOpenAiServer;
+import ro.ing.api.support.StubOpenAiServer.Fault;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Calls a local stub of the completions API that injects latency and faults.
+ */
+class OpenAiServiceTest {
+
+    private StubOpenAiServer stub;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubOpenAiServer(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    private OpenAiService service(long requestTimeoutMs, int maxAttempts, int maxConcurrent,
+                                  int failureThreshold, long openMs) {
+        return new OpenAiService("test-key", stub.completionsUrl(), 1000, requestTimeoutMs, maxAttempts,
+                10, 50, maxConcurrent, 0, failureThreshold, openMs, 2000);
+    }
+
+    @Test
+    void testRetriesFaultsAndReusesConnection() {
+        OpenAiService service = service(1000, 3, 4, 10, 60_000);
+
+        stub.failNext(Fault.UNAVAILABLE, 1);
+        assertEquals(StubOpenAiServer.COMPLETION_TEXT, service.generateText("prompt"));
+        stub.failNext(Fault.RATE_LIMITED, 1);
+        assertEquals(StubOpenAiServer.COMPLETION_TEXT, service.generateText("prompt"));
+        stub.failNext(Fault.DISCONNECT, 2);
+        assertEquals(StubOpenAiServer.COMPLETION_TEXT, service.generateText("prompt"));
+        for (int i = 0; i < 5; i++) {
+            service.generateText("prompt");
+        }
+        assertEquals(12, stub.requestCount());
+
+        stub.failNext(Fault.UNAVAILABLE, 3);
+        assertThrows(AiServiceUnavailableException.class, () -> service.generateText("prompt"));
+        assertEquals(15, stub.requestCount());
+
+        // Dropped connections are replaced; the successful calls in between share one connection
+        assertTrue(stub.connectionCount() <= 3, "connections: " + stub.connectionCount());
+    }
+
+    @Test
+    void testCircuitBreakerFailsFastAfterTimeoutsAndRecovers() throws Exception {
+        OpenAiService service = service(100, 1, 4, 2, 600);
+        stub.setLatencyMillis(400);
+
+        long start = System.nanoTime();
+        assertThrows(AiServiceUnavailableException.class, () -> service.generateText("prompt"));
+        assertThrows(AiServiceUnavailableException.class, () -> service.generateText("prompt"));
+        assertTrue(System.nanoTime() - start < 1_000_000_000L, "attempts must stop at the request timeout");
+        assertEquals(CircuitBreaker.State.OPEN, service.getCircuitBreakerState());
+
+        // Open: fails without calling the API
+        Thread.sleep(50);
+        int requests = stub.requestCount();
+        AiServiceUnavailableException rejected =
+                assertThrows(AiServiceUnavailableException.class, () -> service.generateText("prompt"));
+        assertEquals(1, rejected.getRetryAfterSeconds());
+        Thread.sleep(50);
+        assertEquals(requests, stub.requestCount());
+
+        stub.setLatencyMillis(0);
+        Thread.sleep(600);
+        assertEquals(StubOpenAiServer.COMPLETION_TEXT, service.generateText("prompt"));
+        assertEquals(CircuitBreaker.State.CLOSED, service.getCircuitBreakerState());
+    }
+
+    @Test
+    void testGenerateTextsSendsPromptsInOneRequest() {
+        OpenAiService service = service(1000, 1, 4, 10, 60_000);
+
+        List<String> texts = service.generateTexts(List.of("first", "second", "third"));
+
+        assertEquals(List.of(StubOpenAiServer.COMPLETION_TEXT, StubOpenAiServer.COMPLETION_TEXT,
+                StubOpenAiServer.COMPLETION_TEXT), texts);
+        assertEquals(1, stub.requestCount());
+    }
+
+    @Test
+    void testStreamRelaysTokensAsTheyArrive() {
+        OpenAiService service = service(1000, 1, 4, 10, 60_000);
+        stub.setTokenDelayMillis(100);
+
+        long start = System.nanoTime();
+        List<Long> arrivals = new ArrayList<>();
+        List<String> tokens = service.streamText("prompt")
+                .doOnNext(token -> arrivals.add(System.nanoTime() - start))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(StubOpenAiServer.COMPLETION_TEXT, String.join("", tokens));
+        assertEquals(6, tokens.size());
+        assertTrue(arrivals.get(arrivals.size() - 1) - arrivals.get(0) >= 400_000_000L,
+                "tokens must be relayed as they are generated: " + arrivals);
+    }
+
+    @Test
+    void testCancelledStreamAbortsUpstream() throws Exception {
+        OpenAiService service = service(1000, 1, 1, 10, 60_000);
+        stub.setTokenDelayMillis(100);
+
+        List<String> tokens = service.streamText("prompt").take(2).collectList().block(Duration.ofSeconds(5));
+        assertEquals(List.of("A", " stub"), tokens);
+        for (int i = 0; i < 50 && stub.abortedStreams() == 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, stub.abortedStreams());
+
+        // The bulkhead slot of the cancelled stream was released
+        stub.setTokenDelayMillis(0);
+        assertEquals(StubOpenAiServer.COMPLETION_TEXT, String.join("", service.streamText("prompt").toIterable()));
+    }
+
+    @Test
+    void testStalledStreamTimesOutAndReleasesItsSlot() throws Exception {
+        OpenAiService service = new OpenAiService("test-key", stub.completionsUrl(), 1000, 1000, 1,
+                10, 50, 1, 0, 10, 60_000, 300);
+        stub.setTokenDelayMillis(1000);
+
+        List<String> tokens = new ArrayList<>();
+        AiServiceUnavailableException error = assertThrows(AiServiceUnavailableException.class,
+                () -> service.streamText("prompt").doOnNext(tokens::add).blockLast(Duration.ofSeconds(5)));
+        assertEquals("The AI service stopped responding", error.getMessage());
+        assertEquals(List.of("A"), tokens);
+        // The stub notices the aborted response when it writes its next token
+        for (int i = 0; i < 150 && stub.abortedStreams() == 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, stub.abortedStreams());
+
+        stub.setTokenDelayMillis(0);
+        assertEquals(StubOpenAiServer.COMPLETION_TEXT, String.join("", service.streamText("prompt").toIterable()));
+    }
+
+    @Test
+    void testBulkheadLimitsCallsInFlight() throws Exception {
+        OpenAiService service = service(2000, 1, 2, 10, 60_000);
+        stub.setLatencyMillis(300);
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        List<Future<String>> calls = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            calls.add(executor.submit(() -> service.generateText("prompt")));
+        }
+        int completed = 0;
+        int rejected = 0;
+        for (Future<String> call : calls) {
+            try {
+                assertEquals(StubOpenAiServer.COMPLETION_TEXT, call.get());
+                completed++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(AiServiceUnavailableException.class, e.getCause());
+                rejected++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(2, stub.maxInFlight());
+        assertEquals(2, completed);
+        assertEquals(4, rejected);
+    }
+}
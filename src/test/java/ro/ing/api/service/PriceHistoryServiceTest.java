@@ -0,0 +1,96 @@
+package ro.ing.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import ro.ing.api.entity.Product;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.event.ProductChangeType;
+import ro.ing.api.exception.InvalidProductDataException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class PriceHistoryServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PriceHistoryService priceHistoryService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        priceHistoryService = new PriceHistoryService(jdbcTemplate, meterRegistry);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOnlyPriceChangesAreWrittenInOneBatch() {
+        priceHistoryService.onProductChange(change(ProductChangeType.CREATED, "10.00", null));
+        priceHistoryService.onProductChange(change(ProductChangeType.PRICE_CHANGED, "12.00", "10.00"));
+        priceHistoryService.onProductChange(change(ProductChangeType.UPDATED, "12.00", "12.00"));
+        priceHistoryService.onProductChange(ProductChangeEvent.deleted(1L));
+
+        priceHistoryService.flush();
+        priceHistoryService.flush();
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), argThat((List<Object> rows) -> rows.size() == 2),
+                anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFullQueueDropsAndCountsChanges() {
+        ReflectionTestUtils.setField(priceHistoryService, "maxPending", 2);
+        when(jdbcTemplate.batchUpdate(anyString(), any(List.class), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenReturn(new int[0][]);
+
+        priceHistoryService.onProductChange(change(ProductChangeType.PRICE_CHANGED, "11.00", "10.00"));
+        priceHistoryService.onProductChange(change(ProductChangeType.PRICE_CHANGED, "12.00", "11.00"));
+        priceHistoryService.onProductChange(change(ProductChangeType.PRICE_CHANGED, "13.00", "12.00"));
+        assertEquals(2, meterRegistry.get("products.price.history.pending").gauge().value());
+        assertEquals(1, meterRegistry.get("products.price.history.dropped").counter().count());
+
+        // A failed flush keeps its rows queued, so the queue stays full
+        priceHistoryService.flush();
+        priceHistoryService.onProductChange(change(ProductChangeType.PRICE_CHANGED, "14.00", "13.00"));
+        assertEquals(2, meterRegistry.get("products.price.history.pending").gauge().value());
+        assertEquals(2, meterRegistry.get("products.price.history.dropped").counter().count());
+
+        priceHistoryService.flush();
+        assertEquals(0, meterRegistry.get("products.price.history.pending").gauge().value());
+        priceHistoryService.onProductChange(change(ProductChangeType.PRICE_CHANGED, "15.00", "14.00"));
+        assertEquals(1, meterRegistry.get("products.price.history.pending").gauge().value());
+    }
+
+    @Test
+    void testRejectsEmptyRange() {
+        LocalDateTime now = LocalDateTime.now();
+        assertThrows(InvalidProductDataException.class, () -> priceHistoryService.getPriceSeries(1L, now, now));
+        assertThrows(InvalidProductDataException.class, () -> PriceHistoryService.Interval.parse("decade"));
+    }
+
+    private static ProductChangeEvent change(ProductChangeType type, String price, String previousPrice) {
+        Product product = new Product();
+        product.setId(1L);
+        product.setPrice(new BigDecimal(price));
+        return ProductChangeEvent.of(type, product, previousPrice == null ? null : new BigDecimal(previousPrice));
+    }
+}
@@ -0,0 +1,108 @@
+package ro.ing.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ro.ing.api.entity.Product;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.exception.InvalidProductDataException;
+import ro.ing.api.repository.ProductRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class PriceWriteBehindBufferTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PriceWriteBehindBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        meterRegistry = new SimpleMeterRegistry();
+        buffer = new PriceWriteBehindBuffer(productRepository, transactionTemplate, eventPublisher, meterRegistry, true, 1000);
+    }
+
+    @Test
+    void testLastWriteWinsAndFlushesInOneBatch() {
+        Product first = product(1L, "10.00");
+        Product second = product(2L, "20.00");
+        when(productRepository.findAllById(Set.of(1L, 2L, 3L))).thenReturn(List.of(first, second));
+
+        buffer.submit(1L, new BigDecimal("11.00"));
+        buffer.submit(2L, new BigDecimal("21.00"));
+        buffer.submit(1L, new BigDecimal("12.00"));
+        buffer.submit(3L, new BigDecimal("30.00"));
+        buffer.flush();
+
+        assertEquals(new BigDecimal("12.00"), first.getPrice());
+        assertEquals(new BigDecimal("21.00"), second.getPrice());
+        verify(productRepository, times(1)).findAllById(any());
+        verify(productRepository).flush();
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof ProductChangeEvent change
+                && change.getProductId() == 1L && new BigDecimal("10.00").equals(change.getPreviousPrice())));
+        assertEquals(1, meterRegistry.get("products.price.buffer.coalesced").counter().count());
+        assertEquals(1, meterRegistry.get("products.price.buffer.dropped").counter().count());
+        assertEquals(0, meterRegistry.get("products.price.buffer.pending").gauge().value());
+
+        buffer.flush();
+        verify(productRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void testFailedFlushKeepsUpdatesForRetry() {
+        when(productRepository.findAllById(any())).thenThrow(new IllegalStateException("database unavailable"));
+
+        buffer.submit(1L, new BigDecimal("11.00"));
+        buffer.flush();
+
+        assertEquals(1, meterRegistry.get("products.price.buffer.pending").gauge().value());
+        assertEquals(1, meterRegistry.get("products.price.buffer.flush.failures").counter().count());
+        assertThrows(InvalidProductDataException.class, () -> buffer.submit(1L, null));
+    }
+
+    @Test
+    void testEveryFullBufferTriggersAFlush() {
+        PriceWriteBehindBuffer small = new PriceWriteBehindBuffer(productRepository, transactionTemplate, eventPublisher,
+                new SimpleMeterRegistry(), true, 2);
+        when(productRepository.findAllById(any())).thenReturn(List.of());
+
+        small.submit(1L, new BigDecimal("11.00"));
+        small.submit(2L, new BigDecimal("21.00"));
+        verify(productRepository, timeout(5000).times(1)).findAllById(Set.of(1L, 2L));
+
+        small.submit(3L, new BigDecimal("31.00"));
+        small.submit(4L, new BigDecimal("41.00"));
+        verify(productRepository, timeout(5000).times(1)).findAllById(Set.of(3L, 4L));
+        small.shutdown();
+    }
+
+    private static Product product(Long id, String price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setPrice(new BigDecimal(price));
+        return product;
+    }
+}
@@ -0,0 +1,93 @@
+package ro.ing.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ro.ing.api.entity.Product;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.event.ProductChangeType;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ProductJsonCacheTest {
+
+    @Mock
+    private ProductService productService;
+
+    private ProductJsonCache cache;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cache = new ProductJsonCache(productService, new ObjectMapper(), new SimpleMeterRegistry(), true, 2, 60_000);
+        product = new Product();
+        product.setId(1L);
+        product.setName("Sample Product");
+        product.setPrice(BigDecimal.valueOf(19.99));
+        when(productService.findProduct(1L)).thenReturn(Optional.of(product));
+    }
+
+    @Test
+    void testServesCachedBytesUntilProductChanges() {
+        byte[] first = cache.findProductJson(1L).orElseThrow();
+        byte[] second = cache.findProductJson(1L).orElseThrow();
+
+        assertSame(first, second);
+        assertTrue(new String(first, StandardCharsets.UTF_8).contains("\"name\":\"Sample Product\""));
+        verify(productService, times(1)).findProduct(1L);
+
+        product.setPrice(BigDecimal.valueOf(9.99));
+        cache.onProductChange(ProductChangeEvent.of(ProductChangeType.PRICE_CHANGED, product, BigDecimal.valueOf(19.99)));
+
+        String reloaded = new String(cache.findProductJson(1L).orElseThrow(), StandardCharsets.UTF_8);
+        assertTrue(reloaded.contains("\"price\":9.99"));
+        verify(productService, times(2)).findProduct(1L);
+    }
+
+    @Test
+    void testEntriesExpireAndLeastRecentlyReadAreEvicted() throws Exception {
+        when(productService.findProduct(anyLong())).thenAnswer(invocation -> Optional.of(product));
+
+        cache.findProductJson(1L);
+        cache.findProductJson(2L);
+        cache.findProductJson(1L);
+        cache.findProductJson(3L);
+        cache.findProductJson(1L);
+        cache.findProductJson(2L);
+
+        verify(productService, times(1)).findProduct(1L);
+        verify(productService, times(2)).findProduct(2L);
+
+        ProductJsonCache expiring = new ProductJsonCache(productService, new ObjectMapper(), new SimpleMeterRegistry(),
+                true, 2, 1);
+        expiring.findProductJson(1L);
+        Thread.sleep(5);
+        expiring.findProductJson(1L);
+
+        verify(productService, times(3)).findProduct(1L);
+    }
+
+    @Test
+    void testChangeDuringLoadIsNotCached() {
+        when(productService.findProduct(1L)).thenAnswer(invocation -> {
+            cache.onProductChange(ProductChangeEvent.deleted(1L));
+            return Optional.of(product);
+        });
+
+        cache.findProductJson(1L);
+        cache.findProductJson(1L);
+
+        verify(productService, times(2)).findProduct(1L);
+        assertTrue(cache.findProductJson(2L).isEmpty());
+    }
+}
@@ -0,0 +1,106 @@
+package ro.ing.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ro.ing.api.entity.Product;
+import ro.ing.api.event.ProductChangeEvent;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ProductSearchCacheTest {
+
+    @Mock
+    private ProductService productService;
+
+    private ProductSearchCache cache;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cache = new ProductSearchCache(productService, new SimpleMeterRegistry(), true, 10, 2, 60_000);
+        product = new Product();
+        product.setId(1L);
+        product.setName("Covrigi");
+        product.setPrice(BigDecimal.valueOf(4.5));
+    }
+
+    @Test
+    void testServesNormalizedSearchesUntilCatalogChanges() {
+        when(productService.searchProducts(any(), any(), any())).thenReturn(List.of(product));
+
+        List<Product> first = cache.searchProducts("Covrigi", null, BigDecimal.TEN);
+        List<Product> second = cache.searchProducts("COVRIGI", null, null);
+
+        assertSame(first, second);
+        verify(productService, times(1)).searchProducts(any(), any(), any());
+
+        cache.searchProducts(null, BigDecimal.valueOf(1), BigDecimal.valueOf(10));
+        cache.searchProducts(null, new BigDecimal("1.00"), new BigDecimal("10.0"));
+        verify(productService, times(2)).searchProducts(any(), any(), any());
+
+        cache.onProductChange(ProductChangeEvent.deleted(2L));
+        assertEquals(first, cache.searchProducts("covrigi", null, null));
+        verify(productService, times(3)).searchProducts(any(), any(), any());
+    }
+
+    @Test
+    void testLongResultsAreNotCachedAndEntriesExpire() throws Exception {
+        when(productService.searchProducts(any(), any(), any())).thenReturn(List.of(product, product, product));
+        cache.searchProducts(null, null, null);
+        cache.searchProducts(null, null, null);
+        verify(productService, times(2)).searchProducts(null, null, null);
+
+        ProductSearchCache expiring = new ProductSearchCache(productService, new SimpleMeterRegistry(), true, 10, 10, 1);
+        expiring.searchProducts("Covrigi", null, null);
+        Thread.sleep(5);
+        expiring.searchProducts("Covrigi", null, null);
+        verify(productService, times(2)).searchProducts("Covrigi", null, null);
+    }
+
+    @Test
+    void testConcurrentIdenticalSearchesRunOnce() throws Exception {
+        int callers = 8;
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(productService.searchProducts("Covrigi", null, null)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(product);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            Future<List<Product>> owner = executor.submit(() -> cache.searchProducts("Covrigi", null, null));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            List<Future<List<Product>>> waiters = new ArrayList<>();
+            for (int i = 1; i < callers; i++) {
+                waiters.add(executor.submit(() -> cache.searchProducts("Covrigi", null, null)));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            List<Product> results = owner.get(5, TimeUnit.SECONDS);
+            for (Future<List<Product>> waiter : waiters) {
+                assertSame(results, waiter.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(productService, times(1)).searchProducts("Covrigi", null, null);
+    }
+}
@@ -5,22 +5,43 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import ro.ing.api.dto.BulkDeleteRequestDTO;
+import ro.ing.api.dto.ProductChangesDTO;
+import ro.ing.api.dto.ProductField;
+import ro.ing.api.dto.ProductLookupDTO;
 import ro.ing.api.entity.Product;
+import ro.ing.api.entity.ProductTombstone;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.event.ProductChangeType;
+import ro.ing.api.exception.InvalidProductDataException;
 import ro.ing.api.exception.ProductNotFoundException;
 import ro.ing.api.exception.UnauthorizedAccessException;
 import ro.ing.api.repository.ProductRepository;
+import ro.ing.api.repository.ProductTombstoneRepository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class ProductServiceTest {
@@ -28,9 +49,24 @@ class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private ProductTombstoneRepository tombstoneRepository;
+
     @Mock
     private OpenAiService aiService;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private CatalogSnapshot catalogSnapshot;
+
+    @Spy
+    private ShardRouter shards = new ShardRouter(null, false, List.of(), 0, 1);
+
     @InjectMocks
     private ProductService productService;
 
@@ -67,6 +103,16 @@ class ProductServiceTest {
         assertEquals(product.getName(), foundProduct.get().getName());
     }
 
+    @Test
+    void testFindProductServedFromSnapshot() {
+        when(catalogSnapshot.find(1L)).thenReturn(Optional.of(product));
+
+        Optional<Product> foundProduct = productService.findProduct(1L);
+
+        assertSame(product, foundProduct.orElseThrow());
+        verify(productRepository, never()).findById(anyLong());
+    }
+
     @Test
     void testFindProductNotFound() {
         when(productRepository.findById(anyLong())).thenReturn(Optional.empty());
@@ -126,6 +172,10 @@ class ProductServiceTest {
 
         assertEquals(BigDecimal.valueOf(25.99), updatedProduct.getPrice());
         verify(productRepository, times(1)).save(product);
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof ProductChangeEvent changeEvent
+                        && changeEvent.getType() == ProductChangeType.PRICE_CHANGED
+                        && BigDecimal.valueOf(19.99).equals(changeEvent.getPreviousPrice())));
     }
 
     @Test
@@ -149,8 +199,7 @@ class ProductServiceTest {
 
     @Test
     void testDeleteProduct() {
-        when(productRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(productRepository).deleteById(1L);
+        when(productRepository.deleteProductById(1L)).thenReturn(1);
 
         // Mocked authority as a string (e.g., "ADMIN")
         String authority = "ADMIN";
@@ -158,18 +207,154 @@ class ProductServiceTest {
         // Act
         productService.deleteProduct(1L, authority);
 
-        verify(productRepository, times(1)).deleteById(1L);
+        verify(productRepository, times(1)).deleteProductById(1L);
+        verify(productRepository, never()).findById(anyLong());
+        verify(tombstoneRepository, times(1)).save(any(ProductTombstone.class));
+    }
+
+    @Test
+    void testDeleteProductNotFound() {
+        when(productRepository.deleteProductById(anyLong())).thenReturn(0);
+
+        assertThrows(ProductNotFoundException.class, () -> productService.deleteProduct(1L, "ADMIN"));
+        verify(tombstoneRepository, never()).save(any(ProductTombstone.class));
+    }
+
+    @Test
+    void testBulkDeleteProductsByIds() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+        when(productRepository.findExistingIds(any())).thenReturn(List.of(1L, 2L));
+        when(productRepository.deleteProductsByIds(List.of(1L, 2L))).thenReturn(2);
+        BulkDeleteRequestDTO request = new BulkDeleteRequestDTO();
+        request.setIds(List.of(1L, 2L, 3L));
+
+        int deleted = productService.bulkDeleteProducts(request);
+
+        assertEquals(2, deleted);
+        verify(tombstoneRepository, times(1)).recordDeletions(eq(List.of(1L, 2L)), any(LocalDateTime.class));
+        verify(eventPublisher, times(2)).publishEvent(any(ProductChangeEvent.class));
+    }
+
+    @Test
+    void testBulkDeleteMatchingCountsOnlyDeletedProducts() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+        when(productRepository.findIdsMatching(eq(0L), eq("Covrigi"), any(), any(), any())).thenReturn(List.of(1L, 2L, 3L));
+        when(productRepository.findIdsMatching(eq(3L), eq("Covrigi"), any(), any(), any())).thenReturn(List.of());
+        // Product 2 was deleted by another request after it was selected
+        when(productRepository.findExistingIds(List.of(1L, 2L, 3L))).thenReturn(List.of(1L, 3L));
+        when(productRepository.deleteProductsByIds(List.of(1L, 3L))).thenReturn(2);
+        BulkDeleteRequestDTO request = new BulkDeleteRequestDTO();
+        request.setName("Covrigi");
+
+        int deleted = productService.bulkDeleteProducts(request);
+
+        assertEquals(2, deleted);
+        verify(tombstoneRepository).recordDeletions(eq(List.of(1L, 3L)), any(LocalDateTime.class));
+        verify(eventPublisher, times(2)).publishEvent(any(ProductChangeEvent.class));
+        verify(eventPublisher, never()).publishEvent(argThat((Object event) ->
+                event instanceof ProductChangeEvent change && change.getProductId() == 2L));
+    }
+
+    @Test
+    void testBulkDeleteProductsRequiresCriteria() {
+        assertThrows(InvalidProductDataException.class, () -> productService.bulkDeleteProducts(new BulkDeleteRequestDTO()));
     }
 
     @Test
     void testDeleteProductThrowsException() {
-        when(productRepository.existsById(anyLong())).thenReturn(false);
         String authority = "USER";
         assertThrows(UnauthorizedAccessException.class, () -> {
             productService.deleteProduct(1L, authority);
         });
     }
 
+    @Test
+    void testGetChangesSinceRereadsOverlapWindow() {
+        LocalDateTime watermark = LocalDateTime.now().minusHours(1);
+        LocalDateTime from = watermark.minusSeconds(60);
+        product.setUpdatedDate(watermark.plusMinutes(10));
+        ProductTombstone tombstone = new ProductTombstone(2L, watermark.plusMinutes(20));
+        when(productRepository.findChangedAfter(eq(from), eq(0L), any())).thenReturn(List.of(product));
+        when(tombstoneRepository.findDeletedAfter(eq(from), eq(0L), any())).thenReturn(List.of(tombstone));
+
+        ProductChangesDTO changes = productService.getChangesSince(ChangeToken.caughtUp(watermark, 60).encode());
+
+        assertEquals(List.of(product), changes.getUpdated());
+        assertEquals(List.of(2L), changes.getDeleted());
+        assertFalse(changes.isHasMore());
+        ChangeToken next = ChangeToken.decode(changes.getNextToken(), 60);
+        assertEquals(tombstone.getDeletedDate(), next.watermark());
+        assertEquals(tombstone.getDeletedDate().minusSeconds(60), next.productDate());
+        assertEquals(tombstone.getDeletedDate().minusSeconds(60), next.tombstoneDate());
+    }
+
+    @Test
+    void testGetChangesSincePagesFullSync() {
+        ReflectionTestUtils.setField(productService, "changesPageSize", 1);
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of(product));
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(eq(1L), any())).thenReturn(List.of());
+
+        ProductChangesDTO first = productService.getChangesSince(null);
+        ProductChangesDTO last = productService.getChangesSince(first.getNextToken());
+
+        assertEquals(List.of(product), first.getUpdated());
+        assertTrue(first.isHasMore());
+        assertTrue(last.getUpdated().isEmpty());
+        assertFalse(last.isHasMore());
+        ChangeToken next = ChangeToken.decode(last.getNextToken(), 60);
+        assertFalse(next.fullSync());
+        assertEquals(ChangeToken.decode(first.getNextToken(), 60).watermark(), next.watermark());
+    }
+
+    @Test
+    void testGetAllProductFieldsPaged() {
+        Set<ProductField> fields = ProductField.parse("name,price");
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("name", "Sample Product");
+        when(productRepository.findAllFields(fields, PageRequest.of(1, 1))).thenReturn(List.of(row));
+        when(productRepository.count()).thenReturn(3L);
+
+        Page<Map<String, Object>> page = productService.getAllProductFields(fields, PageRequest.of(1, 1));
+
+        assertEquals(3, page.getTotalElements());
+        assertEquals("Sample Product", page.getContent().get(0).get("name"));
+        verify(productRepository, never()).findAll(any(PageRequest.class));
+    }
+
+    @Test
+    void testParseProductFields() {
+        assertNull(ProductField.parse(" "));
+        assertEquals(EnumSet.of(ProductField.ID, ProductField.PRICE, ProductField.UPDATED_DATE),
+                ProductField.parse("price, updatedDate"));
+        assertThrows(InvalidProductDataException.class, () -> ProductField.parse("name,secret"));
+    }
+
+    @Test
+    void testFindProductsByIdsKeepsRequestOrder() {
+        Product other = new Product();
+        other.setId(3L);
+        other.setName("Other Product");
+        when(productRepository.findByIdIn(Set.of(1L, 2L, 3L))).thenReturn(List.of(other, product));
+
+        List<ProductLookupDTO> results = productService.findProductsByIds(List.of(3L, 2L, 1L, 3L));
+
+        assertEquals(List.of(3L, 2L, 1L, 3L), results.stream().map(ProductLookupDTO::getId).toList());
+        assertTrue(results.get(0).isFound());
+        assertFalse(results.get(1).isFound());
+        assertNull(results.get(1).getProduct());
+        assertSame(product, results.get(2).getProduct());
+        verify(productRepository, times(1)).findByIdIn(any());
+    }
+
+    @Test
+    void testFindProductsByIdsRejectsEmptyList() {
+        assertThrows(InvalidProductDataException.class, () -> productService.findProductsByIds(List.of()));
+        verify(productRepository, never()).findByIdIn(any());
+    }
+
     @Test
     void testSearchProducts() {
         when(productRepository.findByNameContainingIgnoreCase(anyString())).thenReturn(List.of(product));
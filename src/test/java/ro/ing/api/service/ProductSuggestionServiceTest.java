@@ -0,0 +1,126 @@
+package ro.ing.api.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ro.ing.api.dto.ProductSuggestionDTO;
+import ro.ing.api.event.ProductChangeEvent;
+import ro.ing.api.event.ProductChangeType;
+import ro.ing.api.repository.ProductRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class ProductSuggestionServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductSuggestionService suggestionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        suggestionService = new ProductSuggestionService(productRepository, new ShardRouter(null, false, List.of(), 0, 1), 3);
+    }
+
+    @Test
+    void testSuggestionsMatchWordStartsAndRankByViews() {
+        when(productRepository.findAllIdsAndNames()).thenReturn(List.of(
+                new Object[]{1L, "Apple Juice"},
+                new Object[]{2L, "Pineapple Slices"},
+                new Object[]{3L, "Crème Brûlée"},
+                new Object[]{4L, "Green apple"}));
+        suggestionService.initialize();
+
+        assertEquals(List.of(1L, 4L), ids(suggestionService.suggest("APP", 10)));
+        assertEquals(List.of(3L), ids(suggestionService.suggest("creme bru", 10)));
+        assertEquals(List.of(), ids(suggestionService.suggest("ineapple", 10)));
+
+        suggestionService.recordView(4L);
+        suggestionService.recordView(4L);
+        suggestionService.recordView(1L);
+        suggestionService.flushViews();
+
+        List<ProductSuggestionDTO> suggestions = suggestionService.suggest("app", 10);
+        assertEquals(List.of(4L, 1L), ids(suggestions));
+        assertEquals(2, suggestions.get(0).getPopularity());
+    }
+
+    @Test
+    void testSuggestionsFollowProductChanges() {
+        suggestionService.onProductChange(change(ProductChangeType.CREATED, 1L, "Apple Juice"));
+        suggestionService.onProductChange(change(ProductChangeType.CREATED, 2L, "Apricot Jam"));
+        suggestionService.recordView(1L);
+        suggestionService.flushViews();
+
+        suggestionService.onProductChange(change(ProductChangeType.UPDATED, 1L, "Orange Juice"));
+        suggestionService.onProductChange(ProductChangeEvent.deleted(2L));
+
+        assertEquals(List.of(), ids(suggestionService.suggest("ap", 10)));
+        List<ProductSuggestionDTO> suggestions = suggestionService.suggest("ju", 10);
+        assertEquals(List.of(1L), ids(suggestions));
+        assertEquals("Orange Juice", suggestions.get(0).getName());
+        assertEquals(1, suggestions.get(0).getPopularity());
+    }
+
+    @Test
+    void testTrieMatchesFullScanAfterRandomChanges() {
+        String[] words = {"a", "ab", "abc", "abd", "b", "ba", "bab", "apple", "app", "apply"};
+        Random random = new Random(42);
+        SuggestionTrie trie = new SuggestionTrie(3);
+        Map<Long, ProductSuggestionDTO> products = new HashMap<>();
+
+        for (int step = 0; step < 5000; step++) {
+            long id = random.nextInt(40);
+            int action = random.nextInt(4);
+            if (action == 0) {
+                trie.remove(id);
+                products.remove(id);
+            } else if (action == 1 && products.containsKey(id)) {
+                trie.addPopularity(id, 1);
+                ProductSuggestionDTO product = products.get(id);
+                products.put(id, new ProductSuggestionDTO(id, product.getName(), product.getPopularity() + 1));
+            } else {
+                String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+                long popularity = products.containsKey(id) ? products.get(id).getPopularity() : 0;
+                trie.put(id, name, popularity);
+                products.put(id, new ProductSuggestionDTO(id, name, popularity));
+            }
+            String word = words[random.nextInt(words.length)];
+            String prefix = word.substring(0, 1 + random.nextInt(word.length()));
+            assertEquals(fullScan(products, prefix, 3), ids(trie.suggest(prefix, 3)), "prefix " + prefix);
+        }
+        for (String word : words) {
+            assertEquals(fullScan(products, word, 3), ids(trie.suggest(word, 3)), "prefix " + word);
+        }
+    }
+
+    private static List<Long> fullScan(Map<Long, ProductSuggestionDTO> products, String prefix, int limit) {
+        return products.values().stream()
+                .filter(product -> (" " + product.getName()).contains(" " + prefix))
+                .sorted(Comparator.comparingLong(ProductSuggestionDTO::getPopularity).reversed()
+                        .thenComparing(ProductSuggestionDTO::getName)
+                        .thenComparing(ProductSuggestionDTO::getId))
+                .limit(limit)
+                .map(ProductSuggestionDTO::getId)
+                .toList();
+    }
+
+    private static List<Long> ids(List<ProductSuggestionDTO> suggestions) {
+        return suggestions.stream().map(ProductSuggestionDTO::getId).toList();
+    }
+
+    private static ProductChangeEvent change(ProductChangeType type, Long id, String name) {
+        return new ProductChangeEvent(type, id, name, BigDecimal.TEN, null, LocalDateTime.now());
+    }
+}
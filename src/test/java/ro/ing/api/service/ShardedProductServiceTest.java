@@ -0,0 +1,147 @@
+package ro.ing.api.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ro.ing.api.dto.ProductChangesDTO;
+import ro.ing.api.entity.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the product service on three embedded databases with sharding enabled.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.open-in-view=false",
+        "store.sharding.enabled=true",
+        "store.sharding.node-id=1",
+        "store.products.reactive.enabled=false",
+        "store.sharding.urls=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1,"
+                + "jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1",
+        "store.products.reactive.url=r2dbc:h2:mem:///shard0?options=DB_CLOSE_DELAY=-1",
+        "openai.api.key=test"})
+class ShardedProductServiceTest {
+
+    private static final int SHARDS = 3;
+
+    @Autowired
+    private ProductService productService;
+
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                    "jdbc:h2:mem:shard" + shard + ";DB_CLOSE_DELAY=-1", "sa", ""));
+            jdbc.update("DELETE FROM product");
+            jdbc.update("DELETE FROM product_tombstone");
+            shards.add(jdbc);
+        }
+    }
+
+    @Test
+    void testProductsAreSpreadAcrossShardsByTheirIds() {
+        for (int i = 0; i < 6; i++) {
+            Product product = productService.addProduct(product("Product " + i, 10 + i));
+            int shard = SnowflakeIdGenerator.shardOf(product.getId());
+            assertEquals(1, count(shard, "SELECT COUNT(*) FROM product WHERE id = ?", product.getId()));
+        }
+
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertEquals(2, count(shard, "SELECT COUNT(*) FROM product"));
+        }
+    }
+
+    @Test
+    void testPointOperationsRunOnTheShardOfTheProduct() {
+        Product added = productService.addProduct(product("Carnati", 12));
+        Long id = added.getId();
+        int shard = SnowflakeIdGenerator.shardOf(id);
+
+        assertEquals("Carnati description", productService.findProduct(id).orElseThrow().getDescription());
+        productService.updateProductPartially(id, Map.of("description", "Afumati"));
+        productService.changePrice(id, BigDecimal.valueOf(15));
+        Product changed = productService.findProduct(id).orElseThrow();
+        assertEquals("Afumati", changed.getDescription());
+        assertEquals(0, BigDecimal.valueOf(15).compareTo(changed.getPrice()));
+
+        productService.deleteProduct(id, "ADMIN");
+        assertTrue(productService.findProduct(id).isEmpty());
+        assertEquals(0, count(shard, "SELECT COUNT(*) FROM product"));
+        assertEquals(1, count(shard, "SELECT COUNT(*) FROM product_tombstone WHERE product_id = ?", id));
+    }
+
+    @Test
+    void testPagedListingMergesShardsInOrder() {
+        int[] prices = {70, 20, 50, 10, 60, 30, 40};
+        for (int i = 0; i < prices.length; i++) {
+            productService.addProduct(product("Product " + i, prices[i]));
+        }
+
+        Page<Product> page = productService.getAllProducts(PageRequest.of(1, 3, Sort.by(Sort.Direction.DESC, "price")));
+
+        assertEquals(7, page.getTotalElements());
+        assertEquals(List.of(40, 30, 20), page.getContent().stream().map(p -> p.getPrice().intValue()).toList());
+    }
+
+    @Test
+    void testSearchFansOutAndFindsLegacyProducts() {
+        shards.get(0).update("INSERT INTO product (name, price) VALUES ('Legacy mustar', 3)");
+        Long legacyId = shards.get(0).queryForObject("SELECT id FROM product WHERE name = 'Legacy mustar'", Long.class);
+        for (int i = 0; i < 3; i++) {
+            productService.addProduct(product("Mustar " + i, 5 + i));
+        }
+
+        assertEquals(4, productService.searchProducts("mustar", null, null).size());
+        assertEquals("Legacy mustar", productService.findProduct(legacyId).orElseThrow().getName());
+    }
+
+    @Test
+    void testChangeFeedPagesAcrossShards() {
+        for (int i = 0; i < 4; i++) {
+            productService.addProduct(product("Feed " + i, 20 + i));
+        }
+
+        ProductChangesDTO full = productService.getChangesSince(null);
+        assertEquals(4, full.getUpdated().size());
+        assertFalse(full.isHasMore());
+
+        Long deletedId = full.getUpdated().get(0).getId();
+        productService.deleteProduct(deletedId, "ADMIN");
+        ProductChangesDTO changes = productService.getChangesSince(full.getNextToken());
+
+        // The overlap window re-reads the products written just before the full synchronization finished.
+        assertEquals(3, changes.getUpdated().size());
+        assertEquals(List.of(deletedId), changes.getDeleted());
+        assertNotNull(changes.getNextToken());
+    }
+
+    private long count(int shard, String sql, Object... args) {
+        return shards.get(shard).queryForObject(sql, Long.class, args);
+    }
+
+    private static Product product(String name, int price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(BigDecimal.valueOf(price));
+        product.setDescription(name + " description");
+        return product;
+    }
+}
@@ -0,0 +1,232 @@
+package ro.ing.api.service;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import ro.ing.api.dto.StockDTO;
+import ro.ing.api.dto.StockReservationDTO;
+import ro.ing.api.exception.InsufficientStockException;
+import ro.ing.api.exception.ReservationNotFoundException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress tests for the leased stock: many threads reserve, commit and release the same product on two instances
+ * sharing one database, and the books must balance without a single unit being sold twice.
+ */
+class StockServiceConcurrencyTest {
+
+    private static final long INITIAL_STOCK = 5_000;
+    private static final int THREADS = 16;
+    private static final AtomicInteger databases = new AtomicInteger();
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private StockService first;
+    private StockService second;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:stock" + databases.incrementAndGet() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO product (id, name, price) VALUES (1, 'Covrigi', 4.5)");
+        jdbcTemplate.update("INSERT INTO product_stock (product_id, on_hand) VALUES (1, ?)", INITIAL_STOCK);
+        first = node();
+        second = node();
+    }
+
+    @Test
+    void testConcurrentReservationsNeverOversell() throws Exception {
+        StockService[] nodes = {first, second};
+        AtomicLong committed = new AtomicLong();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            workers.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (rejected.get() < THREADS * 50) {
+                    long quantity = 1 + random.nextInt(3);
+                    StockReservationDTO reservation;
+                    try {
+                        reservation = nodes[thread % 2].reserve(1L, quantity);
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                        continue;
+                    }
+                    // Settled on either instance.
+                    StockService settling = nodes[random.nextInt(2)];
+                    if (random.nextInt(4) == 0) {
+                        settling.release(reservation.getReservationId());
+                    } else {
+                        settling.commit(reservation.getReservationId());
+                        committed.addAndGet(quantity);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(120, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        first.reconcile();
+        second.reconcile();
+
+        StockDTO stock = first.getStock(1L);
+        assertTrue(committed.get() <= INITIAL_STOCK, "Sold more units than were in stock");
+        assertEquals(0, stock.getReserved());
+        assertTrue(stock.getAvailable() >= 0);
+        assertEquals(INITIAL_STOCK, committed.get() + stock.getAvailable());
+
+        // Once the second instance hands its units back, every remaining unit can still be reserved on the first.
+        second.shutdown();
+        for (long unit = 0; unit < stock.getAvailable(); unit++) {
+            first.commit(first.reserve(1L, 1).getReservationId());
+            committed.incrementAndGet();
+        }
+        assertThrows(InsufficientStockException.class, () -> first.reserve(1L, 1));
+        assertEquals(INITIAL_STOCK, committed.get());
+
+        first.shutdown();
+        assertEquals(0, count("SELECT on_hand FROM product_stock WHERE product_id = 1"));
+        assertEquals(0, count("SELECT COALESCE(SUM(units), 0) FROM stock_lease"));
+        assertEquals(0, count("SELECT COUNT(*) FROM stock_reservation"));
+    }
+
+    @Test
+    void testReservationCanOnlyBeSettledOnce() {
+        StockReservationDTO reservation = first.reserve(1L, 10);
+
+        second.commit(reservation.getReservationId());
+
+        assertThrows(ReservationNotFoundException.class, () -> first.release(reservation.getReservationId()));
+        assertThrows(InsufficientStockException.class, () -> first.reserve(1L, INITIAL_STOCK));
+        StockDTO stock = second.getStock(1L);
+        assertEquals(INITIAL_STOCK - 10, stock.getOnHand());
+        assertEquals(INITIAL_STOCK - 10, stock.getAvailable());
+    }
+
+    @Test
+    void testExpiredReservationsAreReleased() {
+        ReflectionTestUtils.setField(first, "reservationTtlSeconds", -1L);
+        StockReservationDTO reservation = first.reserve(1L, 7);
+
+        first.expireReservations();
+
+        assertEquals(INITIAL_STOCK, first.getStock(1L).getAvailable());
+        assertThrows(ReservationNotFoundException.class, () -> first.commit(reservation.getReservationId()));
+    }
+
+    @Test
+    void testLeaseOfStoppedInstanceIsReclaimed() {
+        StockReservationDTO reservation = first.reserve(1L, 7);
+        jdbcTemplate.update("UPDATE stock_lease SET expires_at = ?", LocalDateTime.now().minusMinutes(5));
+
+        second.expireReservations();
+
+        StockDTO stock = second.getStock(1L);
+        assertEquals(INITIAL_STOCK, stock.getOnHand());
+        assertEquals(7, stock.getReserved());
+        assertEquals(0, count("SELECT COUNT(*) FROM stock_lease"));
+
+        // The stopped instance still counts its leased units, but cannot reserve them any more.
+        first.reserve(1L, 1);
+        assertEquals(8, second.getStock(1L).getReserved());
+        assertEquals(INITIAL_STOCK, second.getStock(1L).getOnHand());
+
+        second.commit(reservation.getReservationId());
+        assertEquals(INITIAL_STOCK - 7, second.getStock(1L).getOnHand());
+    }
+
+    @Test
+    void testStripedCounterHandsOutEveryUnitExactlyOnce() throws Exception {
+        StripedStockCounter counter = new StripedStockCounter(8, 10_000);
+        AtomicLong taken = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(executor.submit(() -> {
+                int misses = 0;
+                while (misses < 100) {
+                    if (counter.tryTake(1)) {
+                        taken.incrementAndGet();
+                    } else {
+                        misses++;
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(10_000, taken.get());
+        assertEquals(0, counter.sum());
+    }
+
+    @Test
+    void testStripedCounterNeverRejectsUnitsItHolds() throws Exception {
+        // Every thread holds at most one batch at a time, so a batch is always there for the taking.
+        long batch = 5;
+        StripedStockCounter counter = new StripedStockCounter(8, batch * THREADS);
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    if (counter.tryTake(batch)) {
+                        counter.add(batch);
+                    } else {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(0, rejected.get());
+        assertEquals(batch * THREADS, counter.sum());
+    }
+
+    private StockService node() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        StockService node = new StockService(transactionTemplate, jdbcTemplate,
+                new ShardRouter(transactionTemplate, false, List.of(), 0, 1));
+        ReflectionTestUtils.setField(node, "stripes", 4);
+        ReflectionTestUtils.setField(node, "leaseBlock", 50L);
+        return node;
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
@@ -0,0 +1,101 @@
+package ro.ing.api.service;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.sampler.Sampler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import ro.ing.api.controller.TraceEndpoint;
+import ro.ing.api.dto.TraceDTO;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceStoreTest {
+
+    private Tracing tracing;
+
+    private Tracer tracer(TraceStore store, Sampler sampler) {
+        Tracing.Builder builder = Tracing.newBuilder().sampler(sampler).addSpanHandler(store);
+        if (store.isTailSampling()) {
+            builder.alwaysSampleLocal();
+        }
+        tracing = builder.build();
+        return tracing.tracer();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracing.close();
+    }
+
+    /**
+     * Runs a root span with one child span, taking the given number of microseconds.
+     */
+    private static void trace(Tracer tracer, String name, long durationMicros) {
+        long start = 1_700_000_000_000_000L;
+        Span root = tracer.newTrace().name(name).start(start);
+        tracer.newChild(root.context()).name("ProductRepository.findById").start(start + 1).finish(start + 2);
+        root.finish(start + durationMicros);
+    }
+
+    @Test
+    void testSampledTraceIsAssembledFromItsSpans() {
+        TraceStore store = new TraceStore(10, 10, 0, 100, 100);
+        Tracer tracer = tracer(store, Sampler.ALWAYS_SAMPLE);
+
+        trace(tracer, "http get /api/products/{id}", 1_000);
+
+        List<TraceDTO> traces = store.findTraces(0, null, 10);
+        assertEquals(1, traces.size());
+        TraceDTO trace = traces.get(0);
+        assertEquals("sampled", trace.getRetainedBecause());
+        assertEquals(1_000, trace.getDurationMicros());
+        assertEquals(2, trace.getSpans().size());
+        assertEquals(trace.getSpans().get(0).getSpanId(), trace.getSpans().get(1).getParentId());
+        assertSame(trace, store.findTrace(trace.getTraceId()).orElseThrow());
+        assertEquals(1, store.findTraces(0, "findbyid", 10).size());
+        assertTrue(store.findTraces(2_000, null, 10).isEmpty());
+    }
+
+    @Test
+    void testSlowTraceIsKeptEvenWhenNotSampled() {
+        TraceStore store = new TraceStore(10, 10, 5, 100, 100);
+        Tracer tracer = tracer(store, Sampler.NEVER_SAMPLE);
+
+        trace(tracer, "fast", 1_000);
+        trace(tracer, "slow", 10_000);
+
+        List<TraceDTO> traces = store.findTraces(0, null, 10);
+        assertEquals(1, traces.size());
+        assertEquals("slow", traces.get(0).getName());
+        assertEquals("slow", traces.get(0).getRetainedBecause());
+    }
+
+    @Test
+    void testStoreKeepsOnlyTheNewestTraces() {
+        TraceStore store = new TraceStore(3, 1, 0, 100, 100);
+        Tracer tracer = tracer(store, Sampler.ALWAYS_SAMPLE);
+
+        for (int i = 1; i <= 5; i++) {
+            trace(tracer, "trace " + i, i);
+        }
+
+        List<TraceDTO> traces = store.findTraces(0, null, 10);
+        assertEquals(List.of("trace 5", "trace 4", "trace 3"), traces.stream().map(TraceDTO::getName).toList());
+    }
+
+    @Test
+    void testEndpointRejectsNegativeLimit() {
+        TraceStore store = new TraceStore(10, 10, 0, 100, 100);
+        trace(tracer(store, Sampler.ALWAYS_SAMPLE), "trace", 1_000);
+        TraceEndpoint endpoint = new TraceEndpoint(store);
+
+        assertThrows(InvalidEndpointRequestException.class, () -> endpoint.traces(null, null, -1));
+        assertTrue(endpoint.traces(null, null, 0).isEmpty());
+        assertEquals(1, endpoint.traces(null, null, null).size());
+    }
+}
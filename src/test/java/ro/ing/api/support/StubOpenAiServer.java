@@ -0,0 +1,208 @@
+package ro.ing.api.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal local stand-in for the OpenAI completions API, used by tests and the load harness.
+ * Every request to {@code /v1/completions} is answered with a fixed completion after a configurable delay.
+ * Requests with {@code "stream":true} get the completion as a chunked stream of server-sent events, one word per
+ * event; requests with an array of prompts get one choice per prompt. Faults can be injected for a number of
+ * upcoming requests or for a random share of all requests.
+ */
+public class StubOpenAiServer implements AutoCloseable {
+
+    public static final String COMPLETION_TEXT = "A stub description generated for testing.";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * A failure the stub can answer with instead of the completion.
+     */
+    public enum Fault {
+        /** 503 Service Unavailable with an error body */
+        UNAVAILABLE,
+        /** 429 Too Many Requests with an error body */
+        RATE_LIMITED,
+        /** The connection is closed without a response */
+        DISCONNECT
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger pendingFaults = new AtomicInteger();
+    private final AtomicInteger abortedStreams = new AtomicInteger();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private volatile long latencyMillis;
+    private volatile long tokenDelayMillis;
+    private volatile Fault fault = Fault.UNAVAILABLE;
+    private volatile double faultRate;
+
+    /**
+     * Starts the stub on a free local port.
+     * @param latencyMillis delay applied before answering each request
+     * @throws IOException if the server socket cannot be opened
+     */
+    public StubOpenAiServer(long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/v1/completions", this::handleCompletion);
+        server.start();
+    }
+
+    /**
+     * @return the completions URL to configure as {@code openai.api.url}
+     */
+    public String completionsUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/v1/completions";
+    }
+
+    public int requestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return the highest number of requests handled at the same time
+     */
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    /**
+     * @return the number of distinct client connections that sent requests
+     */
+    public int connectionCount() {
+        return clientPorts.size();
+    }
+
+    /**
+     * @return the number of streamed responses the client disconnected from before the end
+     */
+    public int abortedStreams() {
+        return abortedStreams.get();
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * @param tokenDelayMillis delay between two events of a streamed response
+     */
+    public void setTokenDelayMillis(long tokenDelayMillis) {
+        this.tokenDelayMillis = tokenDelayMillis;
+    }
+
+    /**
+     * Answers the next requests with a fault, after the configured latency.
+     * @param fault the fault to inject
+     * @param requests the number of requests to fail
+     */
+    public void failNext(Fault fault, int requests) {
+        this.fault = fault;
+        pendingFaults.set(requests);
+    }
+
+    /**
+     * Answers a random share of all requests with a fault, after the configured latency.
+     * @param fault the fault to inject
+     * @param rate the share of requests to fail, between 0 and 1
+     */
+    public void setFaultRate(Fault fault, double rate) {
+        this.fault = fault;
+        this.faultRate = rate;
+    }
+
+    private void handleCompletion(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            sleep(latencyMillis);
+            boolean failed = pendingFaults.getAndUpdate(n -> Math.max(0, n - 1)) > 0
+                    || ThreadLocalRandom.current().nextDouble() < faultRate;
+            if (!failed && request.contains("\"stream\":true")) {
+                stream(exchange);
+                return;
+            }
+            if (!failed) {
+                int prompts = Math.max(1, OBJECT_MAPPER.readTree(request).path("prompt").size());
+                StringBuilder choices = new StringBuilder();
+                for (int i = 0; i < prompts; i++) {
+                    choices.append(i == 0 ? "" : ",").append("{\"index\":").append(i)
+                            .append(",\"text\":\"").append(COMPLETION_TEXT).append("\"}");
+                }
+                respond(exchange, 200, "{\"choices\":[" + choices + "]}");
+                return;
+            }
+            switch (fault) {
+                case UNAVAILABLE -> respond(exchange, 503, "{\"error\":{\"message\":\"Stub unavailable\"}}");
+                case RATE_LIMITED -> respond(exchange, 429, "{\"error\":{\"message\":\"Stub rate limit\"}}");
+                case DISCONNECT -> exchange.close();
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void stream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);  // Chunked
+        try (OutputStream out = exchange.getResponseBody()) {
+            String[] words = COMPLETION_TEXT.split(" ");
+            for (int i = 0; i < words.length; i++) {
+                String token = i == 0 ? words[i] : " " + words[i];
+                out.write(("data: {\"choices\":[{\"text\":\"" + token + "\"}]}\n\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                sleep(tokenDelayMillis);
+            }
+            out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            abortedStreams.incrementAndGet();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}